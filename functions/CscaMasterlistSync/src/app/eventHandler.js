@@ -9,6 +9,8 @@ const S3_BUCKET_NAME = process.env.S3_BUCKET_NAME;
 const S3_OBJECT_KEY = process.env.S3_OBJECT_KEY;
 const ECS_CLUSTER_NAME = process.env.ECS_CLUSTER_NAME;
 const ECS_SERVICE_NAME = process.env.ECS_SERVICE_NAME;
+// The service reloads the master list by itself when the S3 object ETag changes: the forced redeploy is optional
+const ECS_FORCE_REDEPLOY = process.env.ECS_FORCE_REDEPLOY !== 'false';
 
 /**
  * Checks if an error is retriable based on its type and code.
@@ -109,12 +111,21 @@ async function handler(event, context) {
     };
   }
 
-  console.log("File content has changed or is new. Updating S3, SSM, and triggering ECS redeploy.");
+  console.log("File content has changed or is new. Updating S3 and SSM.");
 
   await awsService.saveFileToS3(S3_BUCKET_NAME, S3_OBJECT_KEY, fileBuffer);
 
   await awsService.updateSsmParameter(SHA256_SSM_PARAMETER_NAME, newSha256);
 
+  if (!ECS_FORCE_REDEPLOY) {
+    console.log("Successfully synchronized, verified, and stored the new CSCA masterlist. ECS redeploy disabled: the service will hot reload it.");
+    return {
+      status: 'SUCCESS',
+      newSha256: newSha256,
+      fileSize: fileBuffer.length
+    };
+  }
+
   const ecsResponse = await awsService.updateEcsService(ECS_CLUSTER_NAME, ECS_SERVICE_NAME);
 
   console.log("Successfully synchronized, verified, and stored the new CSCA masterlist. ECS service redeployment triggered.", {
@@ -3,10 +3,21 @@ package it.pagopa.pn.ciechecker;
 import it.pagopa.pn.ciechecker.exception.CieCheckerException;
 import it.pagopa.pn.ciechecker.model.CieValidationData;
 import it.pagopa.pn.ciechecker.model.ResultCieChecker;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 public interface CieChecker {
 
+    /**
+     * Chiave del context Reactor con l'MDC del chiamante, propagato agli step di {@link #validateMandateAsync(CieValidationData, Scheduler)}
+     */
+    String CALLER_MDC_CONTEXT_KEY = "cieCheckerCallerMdc";
+
     void init() throws CieCheckerException;
 
+    boolean reloadCscaAnchorIfChanged();
+
     ResultCieChecker validateMandate(CieValidationData data);
+
+    Mono<ResultCieChecker> validateMandateAsync(CieValidationData data, Scheduler scheduler);
 }
@@ -1,10 +1,16 @@
 package it.pagopa.pn.ciechecker;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import it.pagopa.pn.ciechecker.client.s3.S3BucketClient;
 import it.pagopa.pn.ciechecker.utils.CieCheckerConstants;
+import it.pagopa.pn.ciechecker.utils.CryptoProviders;
+import it.pagopa.pn.ciechecker.utils.CscaAnchorSnapshot;
+import it.pagopa.pn.ciechecker.utils.CscaTrustContext;
 import it.pagopa.pn.ciechecker.utils.LogsConstant;
 import it.pagopa.pn.ciechecker.utils.ValidateUtils;
 import it.pagopa.pn.mandate.config.PnMandateConfig;
+import jakarta.annotation.PreDestroy;
 import lombok.*;
 import org.bouncycastle.asn1.pkcs.RSAPublicKey;
 import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
@@ -13,15 +19,20 @@ import org.bouncycastle.crypto.encodings.PKCS1Encoding;
 import org.bouncycastle.crypto.engines.RSAEngine;
 import org.bouncycastle.crypto.params.RSAKeyParameters;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.util.encoders.Hex;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.math.BigInteger;
 import java.security.*;
 import java.security.cert.X509Certificate;
 import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
 
 import it.pagopa.pn.ciechecker.exception.CieCheckerException;
 import static it.pagopa.pn.ciechecker.utils.CieCheckerConstants.*;
@@ -32,9 +43,12 @@ import org.bouncycastle.asn1.cms.Attribute;
 import org.bouncycastle.cert.X509CertificateHolder;
 import org.bouncycastle.cms.CMSException;
 import org.bouncycastle.cms.CMSSignedData;
+import org.slf4j.MDC;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
-import java.io.IOException;
 import java.security.PublicKey;
 import java.security.Security;
 import static it.pagopa.pn.ciechecker.utils.ValidateUtils.*;
@@ -43,26 +57,83 @@ import java.util.Hashtable;
 import java.util.List;
 
 @lombok.CustomLog
-@RequiredArgsConstructor
 @Data
 @Service
 public class CieCheckerImpl implements CieChecker, CieCheckerInterface {
 
     private static final Set<String> COMPATIBLE_ALGOS = Set.of(CieCheckerConstants.SHA_1, CieCheckerConstants.SHA_256, CieCheckerConstants.SHA_384, CieCheckerConstants.SHA_512);
+    // byte di header che precedono il CMS nel SOD letto dalla CIE
+    private static final int SOD_HEADER_LENGTH = 4;
+
+    /**
+     * Chiave della cache delle verifiche di catena dei DSC: il contesto di fiducia è confrontato per identità,
+     * così un esito ottenuto con le CSCA precedenti non viene mai riusato dopo un ricaricamento
+     */
+    private record DscValidationKey(CscaTrustContext trustContext, String dscFingerprint, LocalDate validationDay) {
+    }
 
     private final PnMandateConfig pnMandateConfig;
 
     private final S3BucketClient s3BucketClient;
 
-    private List<X509Certificate> cscaAnchor;
+    private volatile List<X509Certificate> cscaAnchor;
+    @Setter(AccessLevel.NONE)
+    private volatile CscaTrustContext cscaTrustContext;
+    /** ETag dell'oggetto S3 da cui sono state caricate le CSCA correnti, null se non disponibile */
+    @Setter(AccessLevel.NONE)
+    private volatile String cscaAnchorETag;
     private String ciecheckerCscaAnchorPathFilename;
 
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final Cache<DscValidationKey, Boolean> dscValidationCache;
+
+    /** Pool dedicato alle verifiche crittografiche in parallelo, null se la modalità parallela è disabilitata */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final ThreadPoolExecutor verificationExecutor;
+
+    public CieCheckerImpl(PnMandateConfig pnMandateConfig, S3BucketClient s3BucketClient) {
+        this.pnMandateConfig = pnMandateConfig;
+        this.s3BucketClient = s3BucketClient;
+
+        PnMandateConfig.CacheConfig cacheConfig = pnMandateConfig.getDscValidationCache();
+        if (cacheConfig != null && cacheConfig.isEnabled()) {
+            log.info("dsc validation cache enabled ttl={} maxSize={}", cacheConfig.getTtl(), cacheConfig.getMaxSize());
+            this.dscValidationCache = Caffeine.newBuilder()
+                    .expireAfterWrite(cacheConfig.getTtl())
+                    .maximumSize(cacheConfig.getMaxSize())
+                    .build();
+        } else {
+            this.dscValidationCache = null;
+        }
+
+        PnMandateConfig.ExecutorConfig parallelConfig = pnMandateConfig.getCieParallelVerification();
+        if (parallelConfig != null && parallelConfig.isEnabled()) {
+            log.info("cie parallel verification enabled threads={} queueSize={}", parallelConfig.getThreads(), parallelConfig.getQueueSize());
+            // a coda piena lo stage viene eseguito dal thread chiamante: sotto carico si degrada alla modalità sequenziale
+            this.verificationExecutor = new ThreadPoolExecutor(parallelConfig.getThreads(), parallelConfig.getThreads(),
+                    60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(parallelConfig.getQueueSize()),
+                    new CustomizableThreadFactory("cie-verification-"), new ThreadPoolExecutor.CallerRunsPolicy());
+            this.verificationExecutor.allowCoreThreadTimeOut(true);
+        } else {
+            this.verificationExecutor = null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (verificationExecutor != null) {
+            verificationExecutor.shutdown();
+        }
+    }
+
     @Override
     public void init() throws CieCheckerException {
 
         log.debug(LogsConstant.INVOKING_OPERATION_LABEL, LogsConstant.CIECHECKER_INIT);
         if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
-            Security.addProvider(new BouncyCastleProvider());
+            Security.addProvider(CryptoProviders.BOUNCY_CASTLE);
         }
 
         String cscaPath = pnMandateConfig.getCiecheckerCscaAnchorPathFilename();
@@ -73,24 +144,147 @@ public class CieCheckerImpl implements CieChecker, CieCheckerInterface {
                 log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.CIECHECKER_INIT,ResultCieChecker.KO_EXC_NO_CSCA_ANCHORS_PROVIDED.getValue());
                 throw new CieCheckerException(ResultCieChecker.KO_EXC_NO_CSCA_ANCHORS_PROVIDED);
             }
-            InputStream inputStreamCscaAnchor;
-            if (cscaPath.startsWith(PROTOCOLLO_S3) ){
-               inputStreamCscaAnchor= s3BucketClient.getObjectContent(cscaPath);
-            } else {
+            if (!cscaPath.startsWith(PROTOCOLLO_S3) ){
                 log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.CIECHECKER_INIT,ResultCieChecker.KO_EXC_NOVALID_URI_CSCA_ANCHORS.getValue());
                 throw new CieCheckerException(ResultCieChecker.KO_EXC_NOVALID_URI_CSCA_ANCHORS);
             }
 
+            // l'ETag viene letto prima del contenuto: se l'oggetto cambia nel frattempo il primo reload lo ricarica
+            String eTag = readCscaAnchorETag(cscaPath);
+            this.setCscaAnchor(loadCscaAnchor(cscaPath));
+            this.cscaAnchorETag = eTag;
+        }catch (Exception e){
+            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.CIECHECKER_INIT, e.getClass().getName()+ LogsConstant.MESSAGE +e.getMessage());
+            throw new CieCheckerException(ResultCieChecker.KO_EXC_NOVALID_URI_CSCA_ANCHORS, e);
+        }
+    }
+
+    /**
+     * Ricarica le CSCA se l'ETag dell'oggetto S3 è cambiato rispetto a quello caricato.
+     * Le nuove CSCA vengono lette e validate per intero prima di sostituire quelle correnti (e di svuotare la cache dei DSC):
+     * in caso di errore restano in uso le CSCA precedenti
+     * @return true se le CSCA sono state sostituite
+     */
+    @Override
+    public synchronized boolean reloadCscaAnchorIfChanged() {
+        String cscaPath = pnMandateConfig.getCiecheckerCscaAnchorPathFilename();
+        if (Objects.isNull(cscaPath) || !cscaPath.startsWith(PROTOCOLLO_S3)) {
+            log.debug("csca anchor reload skipped, path {} is not on s3", cscaPath);
+            return false;
+        }
+        try {
+            String eTag = readCscaAnchorETag(cscaPath);
+            if (Objects.isNull(eTag) || eTag.equals(cscaAnchorETag)) {
+                log.debug("csca anchor unchanged, eTag={}", eTag);
+                return false;
+            }
+            log.info("csca anchor changed, reloading: previous eTag={} new eTag={}", cscaAnchorETag, eTag);
+            List<X509Certificate> anchors = loadCscaAnchor(cscaPath);
+            if (Objects.isNull(anchors) || anchors.isEmpty()) {
+                log.warn("csca anchor reload returned no certificates, keeping the current ones");
+                return false;
+            }
+            this.setCscaAnchor(anchors);
+            this.cscaAnchorETag = eTag;
+            log.info("csca anchor reloaded, certificates={}", anchors.size());
+            return true;
+        } catch (Exception e) {
+            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.CIECHECKER_RELOAD_CSCA_ANCHOR, e.getClass().getName() + LogsConstant.MESSAGE + e.getMessage());
+            return false;
+        }
+    }
+
+    private List<X509Certificate> loadCscaAnchor(String cscaPath) throws Exception {
+        try (InputStream inputStreamCscaAnchor = s3BucketClient.getObjectContent(cscaPath)) {
             if (cscaPath.endsWith(".zip") || cscaPath.endsWith(".ZIP")) {
-                  cscaAnchor = ValidateUtils.extractCscaAnchorFromZip(inputStreamCscaAnchor);
+                return loadCscaAnchorFromZip(inputStreamCscaAnchor.readAllBytes());
             } else if (cscaPath.endsWith(".pem") || cscaPath.endsWith(".PEM")) {
-                  cscaAnchor = ValidateUtils.loadCertificateFromPemFile(inputStreamCscaAnchor);
+                return ValidateUtils.loadCertificateFromPemFile(inputStreamCscaAnchor);
             }
+            return cscaAnchor;
+        }
+    }
 
-            this.setCscaAnchor(cscaAnchor);
-        }catch (Exception e){
-            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.CIECHECKER_INIT, e.getClass().getName()+ LogsConstant.MESSAGE +e.getMessage());
-            throw new CieCheckerException(ResultCieChecker.KO_EXC_NOVALID_URI_CSCA_ANCHORS, e);
+    /**
+     * Estrae le CSCA dalla master list. Se è configurato uno snapshot su S3 (con la relativa chiave HMAC) relativo
+     * alla stessa master list (stesso SHA-256) le CSCA vengono lette da quello, evitando il parsing della master list;
+     * altrimenti lo snapshot viene rigenerato dopo l'estrazione
+     * @param zip contenuto della master list
+     * @return certificati CSCA
+     */
+    private List<X509Certificate> loadCscaAnchorFromZip(byte[] zip) throws NoSuchAlgorithmException {
+        String snapshotPath = pnMandateConfig.getCiecheckerCscaAnchorSnapshotPathFilename();
+        String hmacKey = pnMandateConfig.getCiecheckerCscaAnchorSnapshotHmacKey();
+        if (Objects.isNull(snapshotPath) || snapshotPath.isBlank()) {
+            return ValidateUtils.extractCscaAnchorFromZip(new ByteArrayInputStream(zip));
+        }
+        if (!snapshotPath.startsWith(PROTOCOLLO_S3) || Objects.isNull(hmacKey) || hmacKey.isBlank()) {
+            log.warn("csca anchor snapshot {} ignored: it must be on s3 and have an hmac key", snapshotPath);
+            return ValidateUtils.extractCscaAnchorFromZip(new ByteArrayInputStream(zip));
+        }
+
+        String sourceHash = CscaAnchorSnapshot.sourceHash(zip);
+        List<X509Certificate> snapshotAnchors = readCscaAnchorSnapshot(snapshotPath, sourceHash, hmacKey);
+        if (snapshotAnchors != null) {
+            log.info("csca anchor loaded from snapshot {}, sourceHash={} certificates={}", snapshotPath, sourceHash, snapshotAnchors.size());
+            return snapshotAnchors;
+        }
+
+        List<X509Certificate> anchors = ValidateUtils.extractCscaAnchorFromZip(new ByteArrayInputStream(zip));
+        writeCscaAnchorSnapshot(snapshotPath, sourceHash, anchors, hmacKey);
+        return anchors;
+    }
+
+    private List<X509Certificate> readCscaAnchorSnapshot(String snapshotPath, String sourceHash, String hmacKey) {
+        try (InputStream snapshot = s3BucketClient.getObjectContent(snapshotPath)) {
+            List<X509Certificate> anchors = CscaAnchorSnapshot.read(snapshot, sourceHash, hmacKey);
+            if (anchors == null) {
+                log.warn("csca anchor snapshot {} is not valid for the master list, sourceHash={}", snapshotPath, sourceHash);
+            }
+            return anchors;
+        } catch (Exception e) {
+            log.info("csca anchor snapshot {} not available: {}", snapshotPath, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeCscaAnchorSnapshot(String snapshotPath, String sourceHash, List<X509Certificate> anchors, String hmacKey) {
+        try {
+            s3BucketClient.putObject(snapshotPath, CscaAnchorSnapshot.write(sourceHash, anchors, hmacKey));
+            log.info("csca anchor snapshot {} written, sourceHash={} certificates={}", snapshotPath, sourceHash, anchors.size());
+        } catch (Exception e) {
+            log.warn("unable to write csca anchor snapshot {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    private String readCscaAnchorETag(String cscaPath) {
+        try {
+            return s3BucketClient.getObjectETag(cscaPath);
+        } catch (CieCheckerException e) {
+            log.warn("unable to read csca anchor eTag: {}", e.getMessage());
+            return null;
+        }
+    }
+
+
+    /**
+     * Imposta i certificati CSCA, ricostruisce il contesto di fiducia PKIX usato da verifyTrustChain
+     * e svuota la cache delle verifiche dei DSC
+     * @param cscaAnchor certificati CSCA
+     */
+    @Override
+    public void setCscaAnchor(List<X509Certificate> cscaAnchor) {
+        try {
+            // il nuovo contesto viene costruito per intero prima di sostituire quello corrente
+            CscaTrustContext trustContext = Objects.isNull(cscaAnchor) || cscaAnchor.isEmpty() ? null : CscaTrustContext.of(cscaAnchor);
+            this.cscaAnchor = cscaAnchor;
+            this.cscaTrustContext = trustContext;
+            if (dscValidationCache != null) {
+                dscValidationCache.invalidateAll();
+            }
+        } catch (InvalidAlgorithmParameterException ie) {
+            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.CIECHECKER_INIT, ie.getClass().getName() + LogsConstant.MESSAGE + ie.getMessage());
+            throw new CieCheckerException(ResultCieChecker.KO_EXC_INVALID_PARAMETER_CERTPATHVALIDATOR, ie);
         }
     }
 
@@ -99,57 +293,213 @@ public class CieCheckerImpl implements CieChecker, CieCheckerInterface {
     public ResultCieChecker validateMandate(CieValidationData data) {
         log.logStartingProcess(LogsConstant.CIECHECKER_VALIDATE_MANDATE);
 
-        CMSSignedData cms;
         try {
-            ValidateUtils.validateDataInput(data);
-
-            cms = new CMSSignedData(truncSodBytes(data.getCieIas().getSod()));
-            data.getCieMrtd().setSod(truncSodBytes(data.getCieMrtd().getSod()));
-            log.debug(LogsConstant.CIECHECKER_VALIDATE_MANDATE, "CMSSignedData={}", cms);
-            //dopo aver controllato eventuali null facciamo pulizia dei dati (da possili padding) come step preliminare alle validazioni
-            ValidateUtils.cleanAllCieFields(data);
-
-            //16048-bis - NIS: nis_verify_sod.sh
-            verifyDigitalSignature(cms);
+            ParsedSod iasSod = prepareValidation(data);
 
-            //16049 NIS: nis_verify_sod_passive_auth.sh
-            verifySodPassiveAuthCie(cms, data.getCieIas().getNis());
+            ResultCieChecker result = verificationExecutor == null
+                    ? verifyStagesSequentially(data, iasSod)
+                    : verifyStagesInParallel(data, iasSod);
+            return endValidation(result);
+        }catch (Exception e ) {
+            return failValidation(e);
+        }
+    }
 
-            //16050 NIS: nis_verify_challenge.sh - verifica del nonce: verifica la firma di una challenge IAS
-            verifyChallengeFromSignature(data);
+    /**
+     * Variante reattiva di validateMandate: gli step vengono eseguiti sullo scheduler indicato.
+     * In modalità sequenziale ogni step è uno stage distinto, per cui un annullamento della sottoscrizione interrompe
+     * la validazione prima dello step successivo; se è abilitata la verifica parallela gli step vengono eseguiti
+     * sul pool dedicato come in validateMandate.
+     * L'MDC del chiamante, letto dal context Reactor ({@link #CALLER_MDC_CONTEXT_KEY}) o in mancanza dal thread
+     * di sottoscrizione, viene propagato a ogni step
+     * @param data CieValidationData
+     * @param scheduler scheduler su cui eseguire gli step
+     * @return Mono con l'esito della validazione
+     */
+    @Override
+    public Mono<ResultCieChecker> validateMandateAsync(CieValidationData data, Scheduler scheduler) {
+        return Mono.deferContextual(ctx -> {
+            Map<String, String> mdc = ctx.<Map<String, String>>getOrEmpty(CALLER_MDC_CONTEXT_KEY)
+                    .orElseGet(MDC::getCopyOfContextMap);
+            return stage(mdc, () -> {
+                        log.logStartingProcess(LogsConstant.CIECHECKER_VALIDATE_MANDATE);
+                        return prepareValidation(data);
+                    })
+                    .flatMap(iasSod -> verificationExecutor == null
+                            ? verifyStagesAsync(mdc, data, iasSod)
+                            : stage(mdc, () -> verifyStagesInParallel(data, iasSod)))
+                    .flatMap(result -> stage(mdc, () -> endValidation(result)))
+                    .onErrorResume(e -> stage(mdc, () -> failValidation(e)))
+                    .subscribeOn(scheduler);
+        });
+    }
 
-            //16051 MRTD: verify_integrity.sh
-            verifyIntegrity(data.getCieMrtd());
+    private Mono<ResultCieChecker> verifyStagesAsync(Map<String, String> mdc, CieValidationData data, ParsedSod iasSod) {
+        //16048-bis, 16049, 16050 - NIS: firma del SOD, passive authentication e challenge
+        return stage(mdc, () -> verifyDigitalSignature(iasSod))
+                .then(stage(mdc, () -> verifySodPassiveAuthCie(iasSod, data.getCieIas().getNis())))
+                .then(stage(mdc, () -> verifyChallengeFromSignature(data)))
+                //16051, 16052 - MRTD: integrità e firma
+                .then(stage(mdc, () -> ValidateUtils.parseSod(data.getCieMrtd().getSod())))
+                .flatMap(mrtdSod -> stage(mdc, () -> verifyIntegrity(data.getCieMrtd(), mrtdSod))
+                        .then(stage(mdc, () -> verifyDigitalSignature(mrtdSod))))
+                //16304 - codice fiscale del delegante
+                .then(stage(mdc, () -> verifyCodFiscDelegante(data)))
+                //16669 - scadenza CIE
+                .then(stage(mdc, () -> verifyExpirationCie(data.getCieMrtd().getDg1())));
+    }
 
-            //16052 MRTD: verify_signature.sh
-            cms = new CMSSignedData(data.getCieMrtd().getSod());
-            verifyDigitalSignature(cms);
+    /**
+     * Controlla i dati in input, ne rimuove il padding e decodifica il SOD IAS
+     * @param data CieValidationData
+     * @return SOD IAS decodificato
+     */
+    private ParsedSod prepareValidation(CieValidationData data) throws CMSException {
+        ValidateUtils.validateDataInput(data);
+
+        // il SOD IAS viene decodificato direttamente dalla vista che salta l'header, senza copiarlo;
+        // il SOD MRTD troncato resta invece nei dati perché viene riletto dagli step successivi
+        CMSSignedData cms = new CMSSignedData(sodContent(data.getCieIas().getSod()));
+        data.getCieMrtd().setSod(truncSodBytes(data.getCieMrtd().getSod()));
+        log.debug(LogsConstant.CIECHECKER_VALIDATE_MANDATE, "CMSSignedData={}", cms);
+        //dopo aver controllato eventuali null facciamo pulizia dei dati (da possili padding) come step preliminare alle validazioni
+        ValidateUtils.cleanAllCieFields(data);
+
+        // ogni SOD viene decodificato una sola volta (CMS, firmatario, DSC e chiave pubblica) e condiviso tra gli step
+        return ValidateUtils.parseSod(cms);
+    }
 
-            //16304 - Verifica codice fiscale del delegante con quanto presente nei dati della CIE
-            verifyCodFiscDelegante(data);
+    private ResultCieChecker endValidation(ResultCieChecker result) {
+        if(OK.equals(result.getValue()) )
+            log.logEndingProcess(LogsConstant.CIECHECKER_VALIDATE_MANDATE, true, ResultCieChecker.OK.getValue(), null);
+        else
+            log.logEndingProcess(LogsConstant.CIECHECKER_VALIDATE_MANDATE, false, result.getValue(), null);
+        return result;
+    }
 
-            //16669 - verifica scadenza CIE
-            ResultCieChecker result = verifyExpirationCie(data.getCieMrtd().getDg1());
-            if(OK.equals(result.getValue()) )
-                log.logEndingProcess(LogsConstant.CIECHECKER_VALIDATE_MANDATE, true, ResultCieChecker.OK.getValue(), null);
-            else
-                log.logEndingProcess(LogsConstant.CIECHECKER_VALIDATE_MANDATE, false, result.getValue(), null);
-            return result;
-        }catch(CMSException cmse){
+    private ResultCieChecker failValidation(Throwable e) {
+        if (e instanceof CMSException cmse) {
             log.logEndingProcess(LogsConstant.CIECHECKER_VALIDATE_MANDATE, false, cmse.getClass().getName() + LogsConstant.MESSAGE  + ResultCieChecker.KO_EXC_GENERATE_CMSSIGNEDDATA.getValue(), cmse);
             return ResultCieChecker.KO_EXC_GENERATE_CMSSIGNEDDATA;
-        }catch (CieCheckerException cce ) {
+        } else if (e instanceof CieCheckerException cce) {
             log.logEndingProcess(LogsConstant.CIECHECKER_VALIDATE_MANDATE, false, cce.getClass().getName() + LogsConstant.MESSAGE  + cce.getResult().getValue(), cce);
             return cce.getResult();
-        }catch (Exception e ) {
-            log.logEndingProcess(LogsConstant.CIECHECKER_VALIDATE_MANDATE, false, e.getClass().getName() + LogsConstant.MESSAGE  + e.getMessage(), e);
-            return ResultCieChecker.KO;
+        }
+        log.logEndingProcess(LogsConstant.CIECHECKER_VALIDATE_MANDATE, false, e.getClass().getName() + LogsConstant.MESSAGE  + e.getMessage(), e);
+        return ResultCieChecker.KO;
+    }
+
+
+    private ResultCieChecker verifyStagesSequentially(CieValidationData data, ParsedSod iasSod) throws CieCheckerException {
+        //16048-bis - NIS: nis_verify_sod.sh
+        verifyDigitalSignature(iasSod);
+
+        //16049 NIS: nis_verify_sod_passive_auth.sh
+        verifySodPassiveAuthCie(iasSod, data.getCieIas().getNis());
+
+        //16050 NIS: nis_verify_challenge.sh - verifica del nonce: verifica la firma di una challenge IAS
+        verifyChallengeFromSignature(data);
+
+        //16051 MRTD: verify_integrity.sh
+        ParsedSod mrtdSod = ValidateUtils.parseSod(data.getCieMrtd().getSod());
+        verifyIntegrity(data.getCieMrtd(), mrtdSod);
+
+        //16052 MRTD: verify_signature.sh
+        verifyDigitalSignature(mrtdSod);
+
+        //16304 - Verifica codice fiscale del delegante con quanto presente nei dati della CIE
+        verifyCodFiscDelegante(data);
+
+        //16669 - verifica scadenza CIE
+        return verifyExpirationCie(data.getCieMrtd().getDg1());
+    }
+
+    /**
+     * Esegue gli stessi step di verifyStagesSequentially in parallelo sul pool dedicato.
+     * Gli esiti vengono raccolti nell'ordine sequenziale: viene restituito l'errore del primo step (in quell'ordine)
+     * che fallisce, come nella modalità sequenziale, e gli step successivi non ancora avviati vengono annullati
+     * @param data CieValidationData
+     * @param iasSod SOD IAS già decodificato
+     * @return esito della verifica di scadenza se tutti gli step precedenti hanno esito positivo
+     */
+    private ResultCieChecker verifyStagesInParallel(CieValidationData data, ParsedSod iasSod) throws CieCheckerException {
+        CompletableFuture<ParsedSod> mrtdSod = submitStage(() -> ValidateUtils.parseSod(data.getCieMrtd().getSod()));
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        List<CompletableFuture<ResultCieChecker>> stages = List.of(
+                submitStage(() -> verifyDigitalSignature(iasSod)),
+                submitStage(() -> verifySodPassiveAuthCie(iasSod, data.getCieIas().getNis()) ? ResultCieChecker.OK : ResultCieChecker.KO),
+                submitStage(() -> verifyChallengeFromSignature(data)),
+                mrtdSod.thenApplyAsync(sod -> withMdc(mdc, () -> verifyIntegrity(data.getCieMrtd(), sod)), verificationExecutor),
+                mrtdSod.thenApplyAsync(sod -> withMdc(mdc, () -> verifyDigitalSignature(sod)), verificationExecutor),
+                submitStage(() -> verifyCodFiscDelegante(data)),
+                submitStage(() -> verifyExpirationCie(data.getCieMrtd().getDg1())));
+
+        ResultCieChecker result = ResultCieChecker.OK;
+        try {
+            for (CompletableFuture<ResultCieChecker> stage : stages) {
+                result = stage.join();
+            }
+            return result;
+        } catch (CompletionException | CancellationException e) {
+            mrtdSod.cancel(false);
+            stages.forEach(stage -> stage.cancel(false));
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new CieCheckerException(ResultCieChecker.KO, new ExecutionException(cause));
+        }
+    }
+
+    private <T> CompletableFuture<T> submitStage(Supplier<T> stage) {
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        return CompletableFuture.supplyAsync(() -> withMdc(mdc, stage), verificationExecutor);
+    }
+
+    private static <T> Mono<T> stage(Map<String, String> mdc, Callable<T> step) {
+        return Mono.fromCallable(() -> callWithMdc(mdc, step));
+    }
+
+    private static <T> T withMdc(Map<String, String> mdc, Supplier<T> stage) {
+        try {
+            return callWithMdc(mdc, stage::get);
+        } catch (RuntimeException re) {
+            throw re;
+        } catch (Exception e) {
+            throw new CieCheckerException(ResultCieChecker.KO, e);
+        }
+    }
+
+    private static <T> T callWithMdc(Map<String, String> mdc, Callable<T> stage) throws Exception {
+        Map<String, String> previous = MDC.getCopyOfContextMap();
+        if (mdc != null) {
+            MDC.setContextMap(mdc);
+        }
+        try {
+            return stage.call();
+        } finally {
+            if (previous != null) {
+                MDC.setContextMap(previous);
+            } else {
+                MDC.clear();
+            }
         }
     }
 
 
     private static byte[] truncSodBytes(byte [] inSod) {
-    	return Arrays.copyOfRange(inSod, 4, inSod.length);
+    	return Arrays.copyOfRange(inSod, SOD_HEADER_LENGTH, inSod.length);
+    }
+
+    /**
+     * @param inSod SOD comprensivo dell'header
+     * @return stream sul contenuto del SOD senza l'header, che condivide l'array originale
+     */
+    private static InputStream sodContent(byte [] inSod) {
+        if (inSod.length < SOD_HEADER_LENGTH) {
+            throw new IllegalArgumentException("SOD shorter than its header");
+        }
+        return new ByteArrayInputStream(inSod, SOD_HEADER_LENGTH, inSod.length - SOD_HEADER_LENGTH);
     }
 
     /**
@@ -262,15 +612,32 @@ public class CieCheckerImpl implements CieChecker, CieCheckerInterface {
      */
     @Override
     public boolean verifySodPassiveAuthCie(CMSSignedData cms, byte[] cieIasNis) throws CieCheckerException {
+        ParsedSod sod;
+        try {
+            sod = ValidateUtils.parseSod(cms);
+        } catch (CieCheckerException cce) {
+            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.CIECHECKER_VERIFY_SOD_PASSIVE_AUTH_CIE, cce.getClass().getName() + LogsConstant.MESSAGE  + cce.getMessage());
+            throw new CieCheckerException(ResultCieChecker.KO, cce);
+        }
+        return verifySodPassiveAuthCie(sod, cieIasNis);
+    }
+
+    /**
+     * Effettua la verifica completa del SOD della CIE già decodificato
+     * @param sod ParsedSod
+     * @param cieIasNis byte[]
+     * @return boolean
+     * @throws CieCheckerException ce
+     */
+    public boolean verifySodPassiveAuthCie(ParsedSod sod, byte[] cieIasNis) throws CieCheckerException {
 
         try {
             log.info(LogsConstant.INVOKING_OPERATION_LABEL, LogsConstant.CIECHECKER_VERIFY_SOD_PASSIVE_AUTH_CIE);
             //*****************************************************
             // ** PASSO 1 - ANALISI E ESTRAZIONE DEI COMPONENTI
             // *****************************************************/
-            X509CertificateHolder certHolder = ValidateUtils.extractDscCertDer(cms);
-
-            PublicKey publicKey = ValidateUtils.extractPublicKeyFromHolder(certHolder);
+            CMSSignedData cms = sod.getCms();
+            PublicKey publicKey = sod.getPublicKey();
             if ( Objects.isNull(publicKey) ) {
                 log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.CIECHECKER_VERIFY_SOD_PASSIVE_AUTH_CIE, ResultCieChecker.KO_EXC_EXTRACTION_PUBLICKEY.getValue());
                 throw new CieCheckerException(ResultCieChecker.KO_EXC_EXTRACTION_PUBLICKEY);
@@ -355,6 +722,25 @@ public class CieCheckerImpl implements CieChecker, CieCheckerInterface {
         }
     }
 
+    /**
+     * Come verifyIntegrity(CieMrtd) ma usa il SOD MRTD già decodificato
+     * @param mrtd CieMrtd
+     * @param mrtdSod ParsedSod
+     * @return ResultCieChecker
+     */
+    private ResultCieChecker verifyIntegrity(CieMrtd mrtd, ParsedSod mrtdSod) throws CieCheckerException {
+        log.info(LogsConstant.INVOKING_OPERATION_LABEL, LogsConstant.CIECHECKER_VERIFY_INTEGRITY);
+        try {
+            return verifyIntegrityCore(ValidateUtils.decodeSodHr(mrtdSod), mrtd.getDg1(), mrtd.getDg11());
+        } catch (CieCheckerException ce) {
+            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.CIECHECKER_VERIFY_INTEGRITY, ce.getClass().getName() + LogsConstant.MESSAGE  + ce.getMessage());
+            throw new CieCheckerException(ce.getResult(), ce);
+        } catch (Exception e) {
+            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.CIECHECKER_VERIFY_INTEGRITY, e.getClass().getName() + LogsConstant.MESSAGE  + e.getMessage());
+            throw new CieCheckerException(ResultCieChecker.KO_EXC_DIGEST_NOT_VERIFIED, e);
+        }
+    }
+
     /**
      * Il metodo esegue la logica vera e propria e propaga le eccezioni.
      * - usa ValidateUtils.decodeSodHr(...) per ottenere SodSummary (equivalente a sod_summary dello script)
@@ -367,8 +753,11 @@ public class CieCheckerImpl implements CieChecker, CieCheckerInterface {
      * @throws Exception e
      */
     public ResultCieChecker verifyIntegrityCore(byte[] sodBytes, byte[] dg1, byte[] dg11) throws Exception {
+        return verifyIntegrityCore(decodeSodHr(sodBytes), dg1, dg11);
+    }
+
+    private ResultCieChecker verifyIntegrityCore(SodSummary sodSummary, byte[] dg1, byte[] dg11) throws Exception {
         log.info(LogsConstant.INVOKING_OPERATION_LABEL, LogsConstant.CIECHECKER_VERIFY_INTEGRITY_CORE);
-        SodSummary sodSummary = decodeSodHr(sodBytes);
 
         String hashAlgorithmName = getDigestName(sodSummary.getDgDigestAlgorithm().getAlgorithm().getId());
         if (hashAlgorithmName == null || hashAlgorithmName.isBlank()) {
@@ -411,21 +800,60 @@ public class CieCheckerImpl implements CieChecker, CieCheckerInterface {
      * @return ResultCieChecker
      */
     public ResultCieChecker verifyTrustChain(CMSSignedData cms) throws CieCheckerException {
+        return verifyTrustChain(ValidateUtils.parseSod(cms));
+    }
+
+    /**
+     * Verifica la validità della catena di fiducia del SOD già decodificato
+     * @param sod ParsedSod
+     * @return ResultCieChecker
+     */
+    public ResultCieChecker verifyTrustChain(ParsedSod sod) throws CieCheckerException {
         log.info(LogsConstant.INVOKING_OPERATION_LABEL, LogsConstant.CIECHECKER_VERIFY_TRUST_CHAIN);
-        try {
-            X509CertificateHolder holder = ValidateUtils.extractDscCertDer(cms);
-            byte[] dscDer = holder.getEncoded();
+        ResultCieChecker result = verifyDscAgainstTrustContext(sod.getDscHolder(), sod.getDscEncoded(), new Date());
+        if (!result.getValue().equals(OK)) {
+            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.CIECHECKER_VERIFY_TRUST_CHAIN, ResultCieChecker.KO_EXC_CERTIFICATE_NOT_SIGNED.getValue());
+            throw new CieCheckerException(ResultCieChecker.KO_EXC_CERTIFICATE_NOT_SIGNED);
+        }
+        log.info(LogsConstant.SUCCESSFUL_OPERATION_ON_LABEL, LogsConstant.CIECHECKER_VERIFY_TRUST_CHAIN, "ResultCieChecker", result.getValue());
+        return ValidateUtils.verifyDigitalSignature(sod);
+    }
 
-            ResultCieChecker result = ValidateUtils.verifyDscAgainstTrustBundle(dscDer, cscaAnchor, new Date());
-            if (!result.getValue().equals(OK)) {
-                log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.CIECHECKER_VERIFY_TRUST_CHAIN, ResultCieChecker.KO_EXC_CERTIFICATE_NOT_SIGNED.getValue());
-                throw new CieCheckerException(ResultCieChecker.KO_EXC_CERTIFICATE_NOT_SIGNED);
-            }
-            log.info(LogsConstant.SUCCESSFUL_OPERATION_ON_LABEL, LogsConstant.CIECHECKER_VERIFY_TRUST_CHAIN, "ResultCieChecker", result.getValue());
-            return ValidateUtils.verifyDigitalSignature(cms);
-        }catch(IOException ioe){
-            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.CIECHECKER_VERIFY_TRUST_CHAIN, ioe.getClass().getName() + LogsConstant.MESSAGE  + ioe.getMessage());
-            throw new CieCheckerException(ResultCieChecker.KO_EXC_IOEXCEPTION, ioe);
+
+    /**
+     * Verifica il DSC rispetto alle CSCA correnti riusando, se presente, l'esito positivo già ottenuto
+     * per lo stesso DSC (fingerprint SHA-256) nella stessa giornata.
+     * Solo le verifiche con esito positivo vengono memorizzate e un DSC scaduto viene sempre riverificato
+     * @param holder certificato DSC
+     * @param dscDer certificato DSC in formato DER
+     * @param atTime data di validazione
+     * @return ResultCieChecker
+     */
+    private ResultCieChecker verifyDscAgainstTrustContext(X509CertificateHolder holder, byte[] dscDer, Date atTime) throws CieCheckerException {
+        CscaTrustContext trustContext = this.cscaTrustContext;
+        if (dscValidationCache == null || trustContext == null) {
+            return ValidateUtils.verifyDscAgainstTrustBundle(dscDer, trustContext, atTime);
+        }
+
+        DscValidationKey key = new DscValidationKey(trustContext, dscFingerprint(dscDer), LocalDate.ofInstant(atTime.toInstant(), ZoneOffset.UTC));
+        if (dscValidationCache.getIfPresent(key) != null && holder.isValidOn(atTime)) {
+            log.debug("dsc validation cache hit fingerprint={}", key.dscFingerprint());
+            return ResultCieChecker.OK;
+        }
+
+        ResultCieChecker result = ValidateUtils.verifyDscAgainstTrustBundle(dscDer, trustContext, atTime);
+        if (OK.equals(result.getValue())) {
+            dscValidationCache.put(key, Boolean.TRUE);
+        }
+        return result;
+    }
+
+    private static String dscFingerprint(byte[] dscDer) throws CieCheckerException {
+        try {
+            return Hex.toHexString(MessageDigest.getInstance(SHA_256).digest(dscDer));
+        } catch (NoSuchAlgorithmException nsae) {
+            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.CIECHECKER_VERIFY_TRUST_CHAIN, nsae.getClass().getName() + LogsConstant.MESSAGE + nsae.getMessage());
+            throw new CieCheckerException(ResultCieChecker.KO_EXC_INVALID_ALGORITHM, nsae);
         }
     }
 
@@ -438,8 +866,17 @@ public class CieCheckerImpl implements CieChecker, CieCheckerInterface {
      */
     @Override
     public ResultCieChecker verifyDigitalSignature( CMSSignedData cms) throws CieCheckerException {
+        return verifyDigitalSignature(ValidateUtils.parseSod(cms));
+    }
+
+    /**
+     * Verifica la validità della firma e della catena di fiducia del SOD già decodificato
+     * @param sod ParsedSod
+     * @return ResultCieChecker
+     */
+    public ResultCieChecker verifyDigitalSignature(ParsedSod sod) throws CieCheckerException {
         log.info(LogsConstant.INVOKING_OPERATION_LABEL, LogsConstant.CIECHECKER_VERIFY_DIGITAL_SIGNATURE);
-        ResultCieChecker result = verifyTrustChain(cms);
+        ResultCieChecker result = verifyTrustChain(sod);
         if( !(result.getValue().equals(OK)) ) {
             log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.CIECHECKER_VERIFY_DIGITAL_SIGNATURE, result.getValue());
             throw new CieCheckerException(result);
@@ -0,0 +1,26 @@
+package it.pagopa.pn.ciechecker;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Job che controlla l'ETag della master list CSCA su S3 e, se è cambiato, sostituisce a caldo le CSCA in uso
+ * senza richiedere un nuovo deploy del servizio.
+ * La schedulazione è configurata dalla property pn.mandate.csca-anchor-reload-cron (disabilitata con "-").
+ */
+@Component
+@lombok.CustomLog
+@RequiredArgsConstructor
+public class CscaAnchorReloadJob {
+
+    private final CieChecker cieChecker;
+
+    @Scheduled(cron = "${pn.mandate.csca-anchor-reload-cron:-}")
+    public void reloadCscaAnchor() {
+        log.debug("checking csca anchor for changes");
+        if (cieChecker.reloadCscaAnchorIfChanged()) {
+            log.info("csca anchor hot reload completed");
+        }
+    }
+}
@@ -9,6 +9,10 @@ public interface S3BucketClient {
 
   InputStream getObjectContent(String key);
 
+  String getObjectETag(String key) throws CieCheckerException;
+
   void uploadContent(String key, InputStream file, long size, String checksum) throws CieCheckerException;
 
+  void putObject(String key, byte[] content) throws CieCheckerException;
+
 }
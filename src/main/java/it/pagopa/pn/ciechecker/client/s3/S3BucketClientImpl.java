@@ -11,6 +11,7 @@ import lombok.extern.slf4j.Slf4j;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
 
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -53,6 +54,32 @@ public class S3BucketClientImpl  implements S3BucketClient {
         }
     }
 
+    /**
+     * Legge l'ETag dell'oggetto con una HEAD, senza scaricarne il contenuto
+     * @param s3Uri uri s3 dell'oggetto
+     * @return ETag dell'oggetto
+     */
+    @Override
+    public String getObjectETag(String s3Uri) throws CieCheckerException {
+
+        if(Objects.isNull(this.clientS3 )) {
+            this.clientS3 = pnMandateConfig.s3Client();
+        }
+
+        log.debug(LogsConstant.INVOKING_OPERATION_LABEL, LogsConstant.S3BUCKETCLIENTIMPL_HEAD_OBJECT, "Call s3 bucket for read ETag of object with s3Uri: {}", s3Uri);
+        String[] uriInfo = ValidateUtils.extractS3Components( s3Uri);
+        if(Objects.isNull(uriInfo)) {
+            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.S3BUCKETCLIENTIMPL_HEAD_OBJECT, ResultCieChecker.KO_EXC_NOVALID_URI_CSCA_ANCHORS.getValue());
+            throw new CieCheckerException(ResultCieChecker.KO_EXC_NOVALID_URI_CSCA_ANCHORS);
+        }
+        try {
+            return clientS3.headObject(HeadObjectRequest.builder().bucket(uriInfo[0]).key(uriInfo[1]).build()).eTag();
+        } catch (Exception e){
+            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.S3BUCKETCLIENTIMPL_HEAD_OBJECT, e.getClass().getName()+" Message: " +e.getMessage());
+            throw new CieCheckerException(ResultCieChecker.KO_EXC_NOVALID_CONNECT_S3,e);
+        }
+    }
+
     @Override
     public void uploadContent(String s3Uri, InputStream file, long size, String checksum) throws CieCheckerException {
 
@@ -76,4 +103,30 @@ public class S3BucketClientImpl  implements S3BucketClient {
         }
     }
 
+    /**
+     * Scrive il contenuto esattamente nella chiave indicata dall'uri s3
+     * @param s3Uri uri s3 dell'oggetto
+     * @param content contenuto dell'oggetto
+     */
+    @Override
+    public void putObject(String s3Uri, byte[] content) throws CieCheckerException {
+
+        if(Objects.isNull(this.clientS3 )) {
+            this.clientS3 = pnMandateConfig.s3Client();
+        }
+
+        log.info(LogsConstant.INVOKING_OPERATION_LABEL, LogsConstant.S3BUCKETCLIENTIMPL_PUT_OBJECT, "Call s3 bucket for write object with s3Uri: {}", s3Uri);
+        String[] uriInfo = ValidateUtils.extractS3Components( s3Uri);
+        if(Objects.isNull(uriInfo)) {
+            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.S3BUCKETCLIENTIMPL_PUT_OBJECT, ResultCieChecker.KO_EXC_NOVALID_URI_CSCA_ANCHORS.getValue());
+            throw new CieCheckerException(ResultCieChecker.KO_EXC_NOVALID_URI_CSCA_ANCHORS);
+        }
+        try {
+            clientS3.putObject(PutObjectRequest.builder().bucket(uriInfo[0]).key(uriInfo[1]).build(), RequestBody.fromBytes(content));
+        } catch (Exception e){
+            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.S3BUCKETCLIENTIMPL_PUT_OBJECT, e.getClass().getName()+" Message: " +e.getMessage());
+            throw new CieCheckerException(ResultCieChecker.KO_EXC_NOVALID_CONNECT_S3,e);
+        }
+    }
+
 }
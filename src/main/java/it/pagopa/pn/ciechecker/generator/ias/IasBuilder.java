@@ -4,6 +4,7 @@ package it.pagopa.pn.ciechecker.generator.ias;
 import it.pagopa.pn.ciechecker.exception.CieCheckerException;
 import it.pagopa.pn.ciechecker.model.CieIas;
 import it.pagopa.pn.ciechecker.model.ResultCieChecker;
+import it.pagopa.pn.ciechecker.utils.CryptoProviders;
 import it.pagopa.pn.ciechecker.utils.LogsConstant;
 import lombok.extern.slf4j.Slf4j;
 import org.bouncycastle.asn1.*;
@@ -14,7 +15,6 @@ import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
 import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
 import org.bouncycastle.cert.jcajce.JcaCertStore;
 import org.bouncycastle.cms.jcajce.JcaSignerInfoGeneratorBuilder;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
@@ -162,12 +162,12 @@ public class IasBuilder {
 
             // CMS Signature
             ContentSigner contentSigner = new JcaContentSignerBuilder("SHA512withRSA")
-                    .setProvider(new BouncyCastleProvider()).build(dsKey);
+                    .setProvider(CryptoProviders.BOUNCY_CASTLE).build(dsKey);
 
             CMSSignedDataGenerator generator = new CMSSignedDataGenerator();
             generator.addSignerInfoGenerator(
                     new JcaSignerInfoGeneratorBuilder(
-                            new JcaDigestCalculatorProviderBuilder().setProvider(new BouncyCastleProvider()).build()
+                            new JcaDigestCalculatorProviderBuilder().setProvider(CryptoProviders.BOUNCY_CASTLE).build()
                     ).build(contentSigner, dsCert)
             );
 
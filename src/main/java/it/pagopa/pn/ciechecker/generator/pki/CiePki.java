@@ -3,13 +3,13 @@ package it.pagopa.pn.ciechecker.generator.pki;
 import it.pagopa.pn.ciechecker.exception.CieCheckerException;
 import it.pagopa.pn.ciechecker.generator.model.CertAndKey;
 import it.pagopa.pn.ciechecker.generator.model.Issuer;
+import it.pagopa.pn.ciechecker.utils.CryptoProviders;
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x509.BasicConstraints;
 import org.bouncycastle.asn1.x509.Extension;
 import org.bouncycastle.asn1.x509.KeyUsage;
 import org.bouncycastle.cert.CertIOException;
 import org.bouncycastle.cert.X509CertificateHolder;
-import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
 import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
 import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
 import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
@@ -86,7 +86,7 @@ public class CiePki {
         builder.addExtension(Extension.subjectKeyIdentifier, false, ext.createSubjectKeyIdentifier(kp.getPublic()));
         builder.addExtension(Extension.authorityKeyIdentifier, false, ext.createAuthorityKeyIdentifier(issuer.certificate()));
 
-        X509Certificate cert = new JcaX509CertificateConverter().getCertificate(builder.build(signer));
+        X509Certificate cert = CryptoProviders.CERTIFICATE_CONVERTER.getCertificate(builder.build(signer));
         return new CertAndKey(cert, kp);
     }
 
@@ -145,7 +145,7 @@ public class CiePki {
 
             ContentSigner signer = new JcaContentSignerBuilder(SIGNATURE_ALGORITHM).build(issuerKey);
             X509CertificateHolder holder = b.build(signer);
-            return new JcaX509CertificateConverter().getCertificate(holder);
+            return CryptoProviders.CERTIFICATE_CONVERTER.getCertificate(holder);
         } catch (Exception e) {
             throw new IllegalStateException(EXC_CERT_ISSUANCE_FAILED, e);
         }
@@ -200,7 +200,7 @@ public class CiePki {
 
             ContentSigner signer = new JcaContentSignerBuilder(SIGNATURE_ALGORITHM).build(keyPair.getPrivate());
             X509CertificateHolder holder = builder.build(signer);
-            return new JcaX509CertificateConverter().getCertificate(holder);
+            return CryptoProviders.CERTIFICATE_CONVERTER.getCertificate(holder);
         } catch (RuntimeException | CertificateException | OperatorCreationException | NoSuchAlgorithmException |
                  CertIOException e) {
             throw new CieCheckerException(e);
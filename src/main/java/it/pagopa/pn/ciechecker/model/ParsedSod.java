@@ -0,0 +1,29 @@
+package it.pagopa.pn.ciechecker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cms.CMSSignedData;
+import org.bouncycastle.cms.SignerInformation;
+
+import java.security.PublicKey;
+import java.security.cert.X509Certificate;
+
+/**
+ * Rappresenta un EF.SOD già decodificato una sola volta e condiviso tra tutti gli step di verifica:
+ * - CMSSignedData
+ * - primo firmatario (SignerInformation), null se assente
+ * - certificato DSC (holder, encoding DER e X509Certificate)
+ * - chiave pubblica del DSC
+ * Il riassunto con gli hash dei DataGroup si ottiene con ValidateUtils.decodeSodHr(ParsedSod) senza ridecodificare il CMS
+ */
+@Getter
+@AllArgsConstructor
+public final class ParsedSod {
+    private final CMSSignedData cms;
+    private final SignerInformation signerInformation;
+    private final X509CertificateHolder dscHolder;
+    private final byte[] dscEncoded;
+    private final X509Certificate dscCertificate;
+    private final PublicKey publicKey;
+}
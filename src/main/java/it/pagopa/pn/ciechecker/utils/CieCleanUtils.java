@@ -60,7 +60,7 @@ public class CieCleanUtils {
         byte[] before = ias.getNis();
         byte[] after = cleanNis(before);
         ias.setNis(after);
-        if (Arrays.equals(before, after)) {
+        if (before == after) {
             log.trace("cleanNisField() - NIS già corretto, nessuna correzione sul padding");
         }
     }
@@ -71,16 +71,15 @@ public class CieCleanUtils {
             log.debug("cleanSodField() - SOD è null, skip della pulizia per {}", label);
             return;
         }
-        byte[] cleaned = cleanAsn1OrTlvField(sod, label);
-        if (Arrays.equals(sod, cleaned)) {
+        // il SOD non viene sostituito: basta verificarne la lunghezza TLV, senza copiarlo
+        if (asn1Length(sod, label) == sod.length) {
             log.trace("cleanSodField() - {} già corretto: nessuna pulizia del padding", label);
         }
     }
     /**
      * Pulisce un campo ASN.1 o TLV rimuovendo eventuali padding finali o byte extra.
      * Supporta chiavi pubbliche (SEQUENCE 0x30) e DG.
-     * In ASN.1 DER/TLV, il byte della lunghezza può essere codificato in due modi: short form o long form: va individuato
-     * per sapere la lunghezza effettiva
+     * Se il campo non ha padding viene restituito lo stesso array, senza copie
      *
      * @param fieldBytes byte array da pulire
      * @return byte array pulito, troncato alla lunghezza ASN.1 reale
@@ -91,10 +90,30 @@ public class CieCleanUtils {
             log.debug("cleanAsn1OrTlvField() - {} nullo, skip della pulizia", label);
             return null;
         }
+        int realLength = asn1Length(fieldBytes, label);
+        if (realLength == fieldBytes.length) {
+            log.trace("cleanAsn1OrTlvField() - {} già corretto, nessuna pulizia di padding necessaria", label);
+            return fieldBytes;
+        }
+        //troncamento di eventuali byte extra
+        log.trace("cleanAsn1OrTlvField() - {}: padding rimosso: {} byte", label, fieldBytes.length - realLength);
+        return Arrays.copyOf(fieldBytes, realLength);
+    }
+
+    /**
+     * Calcola la lunghezza reale di un campo ASN.1 o TLV (tag + byte di lunghezza + valore) senza copiarlo.
+     * In ASN.1 DER/TLV, il byte della lunghezza può essere codificato in due modi: short form o long form: va individuato
+     * per sapere la lunghezza effettiva
+     *
+     * @param fieldBytes byte array del campo
+     * @return lunghezza TLV reale, oppure la lunghezza del campo se troppo corto per essere un TLV
+     * @throws CieCheckerException se il TLV è invalido o la lunghezza non corrisponde
+     */
+    public static int asn1Length(byte[] fieldBytes, String label) {
         //un TLV valido deve avere almeno 2 byte: 1 per il tag e 1 per la lunghezza
         if (fieldBytes.length < 2) {
-            log.trace("cleanAsn1OrTlvField() - {}: lunghezza troppo corta per TLV valido", label);
-            return fieldBytes;
+            log.trace("asn1Length() - {}: lunghezza troppo corta per TLV valido", label);
+            return fieldBytes.length;
         }
         //recupero del byte di lunghezza
         int lengthByte = fieldBytes[1] & 0xFF;
@@ -105,7 +124,7 @@ public class CieCleanUtils {
         } else { // il primo bit indica che la lunghezza è codificata su più byte
             int numLengthBytes = lengthByte & 0x7F; // numero di byte utilizzati per la lunghezza
             if (numLengthBytes + 2 > fieldBytes.length) {
-                log.error("cleanAsn1OrTlvField() - {}: lunghezza dei byte > dimensione del campo", label);
+                log.error("asn1Length() - {}: lunghezza dei byte > dimensione del campo", label);
                 throw new CieCheckerException(ResultCieChecker.KO_EXC_CLEANING);
             }
             //calcolo della lunghezza effettiva del valore combinando i byte della lunghezza
@@ -117,19 +136,10 @@ public class CieCleanUtils {
         }
         //controlla che la lunghezza reale non ecceda la dimensione del campo
         if (realLength > fieldBytes.length) {
-            log.error("cleanAsn1OrTlvField() - {}: lunghezza ASN.1 reale > lunghezza del campo", label);
+            log.error("asn1Length() - {}: lunghezza ASN.1 reale > lunghezza del campo", label);
             throw new CieCheckerException(ResultCieChecker.KO_EXC_CLEANING);
         }
-        //troncamento di eventuali byte extra
-        byte[] cleaned = Arrays.copyOf(fieldBytes, realLength);
-
-        if (!Arrays.equals(fieldBytes, cleaned)) {
-            log.trace("cleanAsn1OrTlvField() - {}: padding rimosso: {} byte", label, fieldBytes.length - cleaned.length);
-        } else {
-            log.trace("cleanAsn1OrTlvField() - {} già corretto, nessuna pulizia di padding necessaria", label);
-        }
-
-        return cleaned;
+        return realLength;
     }
 
     public static byte[] cleanNis(byte[] nisBytes) {
@@ -0,0 +1,71 @@
+package it.pagopa.pn.ciechecker.utils;
+
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoVerifierBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.openssl.jcajce.JcaPEMKeyConverter;
+
+import java.security.Provider;
+import java.security.Security;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+
+import static it.pagopa.pn.ciechecker.utils.CieCheckerConstants.X_509;
+
+/**
+ * Infrastruttura crittografica condivisa da tutto il package it.pagopa.pn.ciechecker.
+ * Il provider BouncyCastle è un oggetto pesante (tabelle dei servizi): viene istanziato una sola volta
+ * (o riusato se già registrato) insieme ai builder/converter, che sono stateless e quindi thread-safe.
+ * Le CertificateFactory non sono thread-safe e sono mantenute una per thread.
+ */
+public final class CryptoProviders {
+
+    public static final Provider BOUNCY_CASTLE = resolveBouncyCastle();
+
+    /** Builder dei verificatori di firma CMS con provider BouncyCastle */
+    public static final JcaSimpleSignerInfoVerifierBuilder SIGNER_INFO_VERIFIER_BUILDER = new JcaSimpleSignerInfoVerifierBuilder().setProvider(BOUNCY_CASTLE);
+
+    /** Converter X509CertificateHolder -> X509Certificate con il provider di default della JVM */
+    public static final JcaX509CertificateConverter CERTIFICATE_CONVERTER = new JcaX509CertificateConverter();
+
+    /** Converter X509CertificateHolder -> X509Certificate con provider BouncyCastle */
+    public static final JcaX509CertificateConverter BC_CERTIFICATE_CONVERTER = new JcaX509CertificateConverter().setProvider(BOUNCY_CASTLE);
+
+    /** Converter delle chiavi PEM con provider BouncyCastle */
+    public static final JcaPEMKeyConverter PEM_KEY_CONVERTER = new JcaPEMKeyConverter().setProvider(BOUNCY_CASTLE);
+
+    private static final ThreadLocal<CertificateFactory> CERTIFICATE_FACTORY = new ThreadLocal<>();
+    private static final ThreadLocal<CertificateFactory> BC_CERTIFICATE_FACTORY = new ThreadLocal<>();
+
+    private CryptoProviders() {
+    }
+
+    /**
+     * @return CertificateFactory X.509 del provider di default, riusata dal thread corrente
+     */
+    public static CertificateFactory x509CertificateFactory() throws CertificateException {
+        CertificateFactory factory = CERTIFICATE_FACTORY.get();
+        if (factory == null) {
+            factory = CertificateFactory.getInstance(X_509);
+            CERTIFICATE_FACTORY.set(factory);
+        }
+        return factory;
+    }
+
+    /**
+     * @return CertificateFactory X.509 del provider BouncyCastle, riusata dal thread corrente
+     */
+    public static CertificateFactory bcX509CertificateFactory() throws CertificateException {
+        CertificateFactory factory = BC_CERTIFICATE_FACTORY.get();
+        if (factory == null) {
+            factory = CertificateFactory.getInstance(X_509, BOUNCY_CASTLE);
+            BC_CERTIFICATE_FACTORY.set(factory);
+        }
+        return factory;
+    }
+
+    private static Provider resolveBouncyCastle() {
+        Provider registered = Security.getProvider(BouncyCastleProvider.PROVIDER_NAME);
+        return registered != null ? registered : new BouncyCastleProvider();
+    }
+}
@@ -0,0 +1,130 @@
+package it.pagopa.pn.ciechecker.utils;
+
+import org.bouncycastle.util.encoders.Hex;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static it.pagopa.pn.ciechecker.utils.CieCheckerConstants.SHA_256;
+
+/**
+ * Snapshot compatto delle CSCA già estratte e validate dalla master list:
+ * contiene lo SHA-256 della master list di origine, i certificati in DER (Base64, uno per riga)
+ * e in coda l'HMAC-SHA256 di tutto il contenuto precedente.
+ * Se l'HMAC è valido e l'hash corrisponde alla master list corrente le CSCA si caricano dallo snapshot senza rifare
+ * il parsing della master list né la verifica delle firme: lo snapshot è scritto solo con CSCA già validate
+ * e l'HMAC garantisce che non sia stato modificato.
+ */
+public final class CscaAnchorSnapshot {
+
+    private static final String HEADER = "CSCA-SNAPSHOT v2";
+    private static final String SOURCE_HASH_PREFIX = "source-sha256=";
+    private static final String HMAC_PREFIX = "hmac-sha256=";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private CscaAnchorSnapshot() {
+    }
+
+    /**
+     * @param source contenuto della master list
+     * @return SHA-256 esadecimale della master list
+     */
+    public static String sourceHash(byte[] source) throws NoSuchAlgorithmException {
+        return Hex.toHexString(MessageDigest.getInstance(SHA_256).digest(source));
+    }
+
+    /**
+     * Serializza le CSCA nello snapshot
+     * @param sourceHash SHA-256 della master list da cui sono state estratte
+     * @param anchors certificati CSCA
+     * @param hmacKey chiave con cui autenticare lo snapshot
+     * @return contenuto dello snapshot
+     */
+    public static byte[] write(String sourceHash, List<X509Certificate> anchors, String hmacKey) throws GeneralSecurityException {
+        StringBuilder snapshot = new StringBuilder()
+                .append(HEADER).append('\n')
+                .append(SOURCE_HASH_PREFIX).append(sourceHash).append('\n');
+        Base64.Encoder encoder = Base64.getEncoder();
+        for (X509Certificate anchor : anchors) {
+            snapshot.append(encoder.encodeToString(anchor.getEncoded())).append('\n');
+        }
+        byte[] content = snapshot.toString().getBytes(StandardCharsets.US_ASCII);
+        snapshot.append(HMAC_PREFIX).append(Hex.toHexString(hmac(content, hmacKey))).append('\n');
+        return snapshot.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Legge le CSCA dallo snapshot
+     * @param snapshot contenuto dello snapshot
+     * @param expectedSourceHash SHA-256 della master list corrente
+     * @param hmacKey chiave con cui è stato autenticato lo snapshot
+     * @return certificati CSCA, null se lo snapshot non è valido, non è autentico o è relativo a un'altra master list
+     */
+    public static List<X509Certificate> read(InputStream snapshot, String expectedSourceHash, String hmacKey) throws IOException, GeneralSecurityException {
+        byte[] bytes = snapshot.readAllBytes();
+        int hmacStart = lastLineStart(bytes);
+        String hmacLine = new String(bytes, hmacStart, bytes.length - hmacStart, StandardCharsets.US_ASCII).trim();
+        if (!hmacLine.startsWith(HMAC_PREFIX)) {
+            return null;
+        }
+        byte[] content = Arrays.copyOf(bytes, hmacStart);
+        if (!MessageDigest.isEqual(hmac(content, hmacKey), Hex.decode(hmacLine.substring(HMAC_PREFIX.length())))) {
+            return null;
+        }
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.US_ASCII));
+        if (!HEADER.equals(reader.readLine())) {
+            return null;
+        }
+        String sourceLine = reader.readLine();
+        if (sourceLine == null || !sourceLine.equals(SOURCE_HASH_PREFIX + expectedSourceHash)) {
+            return null;
+        }
+        CertificateFactory factory = CryptoProviders.x509CertificateFactory();
+        Base64.Decoder decoder = Base64.getDecoder();
+        List<X509Certificate> anchors = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isBlank()) {
+                anchors.add((X509Certificate) factory.generateCertificate(new ByteArrayInputStream(decoder.decode(line))));
+            }
+        }
+        return anchors.isEmpty() ? null : anchors;
+    }
+
+    private static byte[] hmac(byte[] content, String hmacKey) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+        mac.init(new SecretKeySpec(hmacKey.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+        return mac.doFinal(content);
+    }
+
+    /**
+     * @return posizione di inizio dell'ultima riga (esclusa la terminazione finale)
+     */
+    private static int lastLineStart(byte[] bytes) {
+        int end = bytes.length;
+        while (end > 0 && (bytes[end - 1] == '\n' || bytes[end - 1] == '\r')) {
+            end--;
+        }
+        int start = end;
+        while (start > 0 && bytes[start - 1] != '\n') {
+            start--;
+        }
+        return start;
+    }
+}
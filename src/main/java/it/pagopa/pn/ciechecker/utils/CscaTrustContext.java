@@ -0,0 +1,142 @@
+package it.pagopa.pn.ciechecker.utils;
+
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.SubjectKeyIdentifier;
+import org.bouncycastle.util.encoders.Hex;
+
+import javax.security.auth.x500.X500Principal;
+import java.io.ByteArrayInputStream;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.*;
+import java.util.*;
+
+import static it.pagopa.pn.ciechecker.utils.CieCheckerConstants.PKIX;
+
+/**
+ * Contesto di fiducia immutabile costruito una sola volta a partire dai certificati CSCA.
+ * I TrustAnchor e i PKIXParameters sono pre-calcolati e indicizzati per subject DN e per
+ * Subject Key Identifier, in modo che ogni validazione di un DSC consideri solo le CSCA candidate
+ * senza ricostruire l'intero trust store.
+ */
+public final class CscaTrustContext {
+
+    // CertPathValidator non è thread-safe: un'istanza per thread
+    private static final ThreadLocal<CertPathValidator> CERT_PATH_VALIDATOR = new ThreadLocal<>();
+
+    private final List<X509Certificate> anchors;
+    private final PKIXParameters allAnchorsParams;
+    private final Map<X500Principal, PKIXParameters> paramsBySubject;
+    private final Map<String, PKIXParameters> paramsBySki;
+
+    private CscaTrustContext(List<X509Certificate> anchors) throws InvalidAlgorithmParameterException {
+        this.anchors = List.copyOf(anchors);
+
+        Map<X500Principal, Set<TrustAnchor>> bySubject = new HashMap<>();
+        Map<String, Set<TrustAnchor>> bySki = new HashMap<>();
+        Set<TrustAnchor> all = new HashSet<>();
+        for (X509Certificate anchor : this.anchors) {
+            TrustAnchor trustAnchor = new TrustAnchor(anchor, null);
+            all.add(trustAnchor);
+            bySubject.computeIfAbsent(anchor.getSubjectX500Principal(), k -> new HashSet<>()).add(trustAnchor);
+            String ski = subjectKeyIdentifier(anchor);
+            if (ski != null) {
+                bySki.computeIfAbsent(ski, k -> new HashSet<>()).add(trustAnchor);
+            }
+        }
+
+        this.allAnchorsParams = buildParams(all);
+        Map<X500Principal, PKIXParameters> subjectParams = new HashMap<>();
+        for (Map.Entry<X500Principal, Set<TrustAnchor>> entry : bySubject.entrySet()) {
+            subjectParams.put(entry.getKey(), buildParams(entry.getValue()));
+        }
+        Map<String, PKIXParameters> skiParams = new HashMap<>();
+        for (Map.Entry<String, Set<TrustAnchor>> entry : bySki.entrySet()) {
+            skiParams.put(entry.getKey(), buildParams(entry.getValue()));
+        }
+        this.paramsBySubject = Collections.unmodifiableMap(subjectParams);
+        this.paramsBySki = Collections.unmodifiableMap(skiParams);
+    }
+
+    /**
+     * Costruisce il contesto di fiducia a partire dai certificati CSCA
+     * @param cscaTrustAnchors certificati CSCA
+     * @return CscaTrustContext
+     * @throws InvalidAlgorithmParameterException se la lista dei certificati è vuota
+     */
+    public static CscaTrustContext of(Collection<X509Certificate> cscaTrustAnchors) throws InvalidAlgorithmParameterException {
+        return new CscaTrustContext(new ArrayList<>(cscaTrustAnchors));
+    }
+
+    public List<X509Certificate> getAnchors() {
+        return anchors;
+    }
+
+    public boolean isEmpty() {
+        return anchors.isEmpty();
+    }
+
+    /**
+     * Valida il certificato DSC (DER) rispetto alle sole CSCA candidate: prima per Authority Key Identifier,
+     * poi per issuer DN e, in mancanza di corrispondenze, rispetto a tutte le CSCA.
+     * Nessuna eccezione = catena valida
+     * @param dscDer certificato DSC in formato DER
+     * @param atTime data di validazione (se null si usa la data corrente)
+     */
+    public void validate(byte[] dscDer, Date atTime) throws CertificateException, CertPathValidatorException, InvalidAlgorithmParameterException, NoSuchAlgorithmException {
+        CertificateFactory x509Cf = CryptoProviders.x509CertificateFactory();
+        X509Certificate dsc = (X509Certificate) x509Cf.generateCertificate(new ByteArrayInputStream(dscDer));
+        CertPath path = x509Cf.generateCertPath(Collections.singletonList(dsc));
+
+        PKIXParameters params = (PKIXParameters) selectParams(dsc).clone();
+        if (atTime != null) params.setDate(atTime);
+
+        certPathValidator().validate(path, params);
+    }
+
+    private PKIXParameters selectParams(X509Certificate dsc) {
+        String aki = authorityKeyIdentifier(dsc);
+        if (aki != null && paramsBySki.containsKey(aki)) {
+            return paramsBySki.get(aki);
+        }
+        return paramsBySubject.getOrDefault(dsc.getIssuerX500Principal(), allAnchorsParams);
+    }
+
+    private static PKIXParameters buildParams(Set<TrustAnchor> trustAnchors) throws InvalidAlgorithmParameterException {
+        PKIXParameters params = new PKIXParameters(trustAnchors);
+        params.setRevocationEnabled(false);
+        return params;
+    }
+
+    private static String subjectKeyIdentifier(X509Certificate cert) {
+        byte[] ext = cert.getExtensionValue(Extension.subjectKeyIdentifier.getId());
+        if (ext == null) return null;
+        try {
+            return Hex.toHexString(SubjectKeyIdentifier.getInstance(ASN1OctetString.getInstance(ext).getOctets()).getKeyIdentifier());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String authorityKeyIdentifier(X509Certificate cert) {
+        byte[] ext = cert.getExtensionValue(Extension.authorityKeyIdentifier.getId());
+        if (ext == null) return null;
+        try {
+            byte[] keyId = AuthorityKeyIdentifier.getInstance(ASN1OctetString.getInstance(ext).getOctets()).getKeyIdentifierOctets();
+            return keyId == null ? null : Hex.toHexString(keyId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static CertPathValidator certPathValidator() throws NoSuchAlgorithmException {
+        CertPathValidator validator = CERT_PATH_VALIDATOR.get();
+        if (validator == null) {
+            validator = CertPathValidator.getInstance(PKIX);
+            CERT_PATH_VALIDATOR.set(validator);
+        }
+        return validator;
+    }
+}
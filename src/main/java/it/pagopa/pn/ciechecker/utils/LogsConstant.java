@@ -7,6 +7,7 @@ public abstract class LogsConstant {
     public static final String CIECHECKER_VALIDATE_MANDATE = "CieCheckerImpl.validateMandate()";
 
     public static final String CIECHECKER_INIT = "CieCheckerImpl.init()";
+    public static final String CIECHECKER_RELOAD_CSCA_ANCHOR = "CieCheckerImpl.reloadCscaAnchorIfChanged()";
 
     // METODI
     public static final String CIECHECKER_VALIDATE_DATA_INPUT = "ValidateUtils.validateDataInput()";
@@ -17,6 +18,7 @@ public abstract class LogsConstant {
     public static final String CIECHECKER_VERIFY_INTEGRITY = "CieCheckerImpl.verifyIntegrity()";
     public static final String CIECHECKER_VERIFY_INTEGRITY_CORE = "CieCheckerImpl.verifyIntegrityCore()";
     public static final String VALIDATEUTILS_DECEODESODHR = "ValidateUtils.decodeSodHr()";
+    public static final String VALIDATEUTILS_PARSE_SOD = "ValidateUtils.parseSod()";
     public static final String CIECHECKER_VERIFY_DIGESTLIST = "CieCheckerImpl.verifyDigestList()";
     public static final String VALIDATEUTILS_VERIFY_DSC_AGAINST_TRUST_BUNDLE = "ValidateUtils.verifyDscAgainstTrustBundle()";
     public static final String VALIDATEUTILS_EXTRACT_DSC_CERT_DER = "ValidateUtils.extractDscCertDer()";
@@ -35,6 +37,8 @@ public abstract class LogsConstant {
     public static final String VALIDATEUTILS_EXTRACT_CODICEFISCALE_DELEGANTE = "ValidateUtils.extractCodiceFiscaleByOid()";
     public static final String S3BUCKETCLIENTIMPL_GET_OBJECT_CONTENT = "S3BucketClientImpl.getObjectContent()";
     public static final String S3BUCKETCLIENTIMPL_PUT_OBJECT_CONTENT = "S3BucketClientImpl.uploadContent()";
+    public static final String S3BUCKETCLIENTIMPL_HEAD_OBJECT = "S3BucketClientImpl.getObjectETag()";
+    public static final String S3BUCKETCLIENTIMPL_PUT_OBJECT = "S3BucketClientImpl.putObject()";
     public static final String VALIDATEUTILS_LOAD_CSCAANCHOR_PEM = "ValidateUtils.loadCertificateFromPemFile()";
     public static final String VALIDATEUTILS_PARSER_TLV_TAGVALUE = "ValidateUtils.parserTLVTagValue()";
     public static final String CIECHECKER_VERIFY_EXPIRATION_CIE = "CieCheckerImpl.verifyExpirationCie()";
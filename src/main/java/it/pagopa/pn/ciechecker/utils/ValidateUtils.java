@@ -29,7 +29,6 @@ import java.security.*;
 import java.security.cert.*;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 import static it.pagopa.pn.ciechecker.utils.CieCheckerConstants.*;
 import static it.pagopa.pn.ciechecker.utils.CieCleanUtils.*;
@@ -40,16 +39,12 @@ import org.bouncycastle.asn1.cms.Attribute;
 import org.bouncycastle.asn1.cms.AttributeTable;
 import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
 import org.bouncycastle.cert.X509CertificateHolder;
-import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
 import org.bouncycastle.cms.*;
 import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.util.DigestFactory;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
-import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoVerifierBuilder;
 import org.bouncycastle.openssl.PEMEncryptedKeyPair;
 import org.bouncycastle.openssl.PEMKeyPair;
 import org.bouncycastle.openssl.PEMParser;
-import org.bouncycastle.openssl.jcajce.JcaPEMKeyConverter;
 import org.bouncycastle.operator.OperatorCreationException;
 import org.bouncycastle.pkcs.PKCS8EncryptedPrivateKeyInfo;
 import org.bouncycastle.util.Store;
@@ -119,23 +114,33 @@ public class ValidateUtils {
 
     public static ResultCieChecker verifyDscAgainstTrustBundle(byte[] dscDer, Collection<X509Certificate> cscaTrustAnchors, Date atTime) throws CieCheckerException {
 
-        log.info(INVOKING_OPERATION_LABEL, LogsConstant.VALIDATEUTILS_VERIFY_DSC_AGAINST_TRUST_BUNDLE);
         if (Objects.isNull(dscDer) || dscDer.length == 0) throw new CieCheckerException(ResultCieChecker.KO_EXC_PARSING_CERTIFICATION);
         if (Objects.isNull(cscaTrustAnchors) || cscaTrustAnchors.isEmpty()) throw new CieCheckerException(ResultCieChecker.KO_EXC_NO_CSCA_ANCHORS_PROVIDED);
 
         try {
-            CertificateFactory x509Cf = CertificateFactory.getInstance(X_509);
-
-            X509Certificate dsc = (X509Certificate) x509Cf.generateCertificate(new ByteArrayInputStream(dscDer));
-            CertPath path = x509Cf.generateCertPath(Collections.singletonList(dsc));
+            return verifyDscAgainstTrustBundle(dscDer, CscaTrustContext.of(cscaTrustAnchors), atTime);
+        } catch ( InvalidAlgorithmParameterException ie) {
+            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.VALIDATEUTILS_VERIFY_DSC_AGAINST_TRUST_BUNDLE, ie.getClass().getName()  + LogsConstant.MESSAGE + ie.getMessage());
+            throw new CieCheckerException(ResultCieChecker.KO_EXC_INVALID_PARAMETER_CERTPATHVALIDATOR, ie);
+        }
+    }
 
-            Set<TrustAnchor> anchors = cscaTrustAnchors.stream().map(a -> new TrustAnchor(a, null)).collect(Collectors.toSet());
+    /**
+     * Verifica il certificato DSC rispetto al contesto di fiducia CSCA pre-calcolato
+     * @param dscDer certificato DSC in formato DER
+     * @param trustContext contesto di fiducia costruito all'init
+     * @param atTime data di validazione
+     * @return ResultCieChecker
+     * @throws CieCheckerException se la catena non è valida
+     */
+    public static ResultCieChecker verifyDscAgainstTrustBundle(byte[] dscDer, CscaTrustContext trustContext, Date atTime) throws CieCheckerException {
 
-            PKIXParameters params = new PKIXParameters(anchors);
-            params.setRevocationEnabled(false);
-            if (atTime != null) params.setDate(atTime);
+        log.info(INVOKING_OPERATION_LABEL, LogsConstant.VALIDATEUTILS_VERIFY_DSC_AGAINST_TRUST_BUNDLE);
+        if (Objects.isNull(dscDer) || dscDer.length == 0) throw new CieCheckerException(ResultCieChecker.KO_EXC_PARSING_CERTIFICATION);
+        if (Objects.isNull(trustContext) || trustContext.isEmpty()) throw new CieCheckerException(ResultCieChecker.KO_EXC_NO_CSCA_ANCHORS_PROVIDED);
 
-            CertPathValidator.getInstance(PKIX).validate(path, params); // No exception thrown = ok
+        try {
+            trustContext.validate(dscDer, atTime); // No exception thrown = ok
 
             log.info(LogsConstant.SUCCESSFUL_OPERATION_ON_LABEL, LogsConstant.VALIDATEUTILS_VERIFY_DSC_AGAINST_TRUST_BUNDLE, "ResultCieChecker", ResultCieChecker.OK.getValue());
             return ResultCieChecker.OK;
@@ -182,6 +187,46 @@ public class ValidateUtils {
         throw new CieCheckerException(ResultCieChecker.KO_EXC_NOTFOUND_CERTIFICATES);
     }
 
+    /**
+     * Decodifica una sola volta l'EF.SOD (senza i 4 byte di header) in un ParsedSod condiviso dagli step di verifica
+     * @param sodBytes byte[]
+     * @return ParsedSod
+     * @throws CieCheckerException KO_EXC_GENERATE_CMSSIGNEDDATA se il CMS non è valido
+     */
+    public static ParsedSod parseSod(byte[] sodBytes) throws CieCheckerException {
+        CMSSignedData cms;
+        try {
+            cms = new CMSSignedData(sodBytes);
+        } catch (CMSException | IllegalArgumentException | ClassCastException e) {
+            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.VALIDATEUTILS_PARSE_SOD, e.getClass().getName() + LogsConstant.MESSAGE + e.getMessage());
+            throw new CieCheckerException(ResultCieChecker.KO_EXC_GENERATE_CMSSIGNEDDATA, e);
+        }
+        return parseSod(cms);
+    }
+
+    /**
+     * Estrae una sola volta firmatario, DSC e chiave pubblica da un CMSSignedData già decodificato
+     * @param cms CMSSignedData
+     * @return ParsedSod
+     * @throws CieCheckerException KO_EXC_NOTFOUND_CMSSIGNEDDATA, KO_EXC_NOTFOUND_CERTIFICATES, KO_EXC_PARSING_CERTIFICATION
+     */
+    public static ParsedSod parseSod(CMSSignedData cms) throws CieCheckerException {
+        log.debug(INVOKING_OPERATION_LABEL, LogsConstant.VALIDATEUTILS_PARSE_SOD);
+        X509CertificateHolder holder = extractDscCertDer(cms);
+        try {
+            X509Certificate dsc = CryptoProviders.CERTIFICATE_CONVERTER.getCertificate(holder);
+            Iterator<SignerInformation> signers = cms.getSignerInfos().getSigners().iterator();
+            SignerInformation signerInformation = signers.hasNext() ? signers.next() : null;
+            return new ParsedSod(cms, signerInformation, holder, holder.getEncoded(), dsc, dsc.getPublicKey());
+        } catch (CertificateException ce) {
+            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.VALIDATEUTILS_PARSE_SOD, ce.getClass().getName() + LogsConstant.MESSAGE + ce.getMessage());
+            throw new CieCheckerException(ResultCieChecker.KO_EXC_PARSING_CERTIFICATION, ce);
+        } catch (IOException ioe) {
+            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.VALIDATEUTILS_PARSE_SOD, ioe.getClass().getName() + LogsConstant.MESSAGE + ioe.getMessage());
+            throw new CieCheckerException(ResultCieChecker.KO_EXC_IOEXCEPTION, ioe);
+        }
+    }
+
     /**
      * Estrazione la PublicKey dal Certificato X509 - riga 64
      * @param certHolder certificato
@@ -197,9 +242,8 @@ public class ValidateUtils {
         }
         try {
             // Per convertire X509CertificateHolder in un X509Certificate utilizzo la classe JcaX509CertificateConverter
-            JcaX509CertificateConverter converter = new JcaX509CertificateConverter();
             //converter.setProvider(BouncyCastleProvider.PROVIDER_NAME); java.security.cert.CertificateException: Errore durante la conversione del certificato per ottenere la chiave pubblica.
-            X509Certificate certificate = converter.getCertificate(certHolder);
+            X509Certificate certificate = CryptoProviders.CERTIFICATE_CONVERTER.getCertificate(certHolder);
             // Estrae la chiave pubblica dall'oggetto X509Certificate
             return certificate.getPublicKey();
 
@@ -615,21 +659,27 @@ public class ValidateUtils {
     public static ResultCieChecker verifyDigitalSignature(CMSSignedData cms) throws CieCheckerException {
 
         log.info(INVOKING_OPERATION_LABEL, LogsConstant.VALIDATEUTILS_VERIFY_DIGITAL_SIGNATURE);
-        try {
-            SignerInformationStore signers = cms.getSignerInfos();
-            Collection<SignerInformation> c = signers.getSigners();
-            Iterator<SignerInformation> it = c.iterator();
-
-            if (it.hasNext()) {
-                SignerInformation signer = it.next();
+        if (cms.getSignerInfos().getSigners().isEmpty()) {
+            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.VALIDATEUTILS_VERIFY_DIGITAL_SIGNATURE, CieCheckerException.class.getName() + LogsConstant.MESSAGE +ResultCieChecker.KO_EXC_NO_SIGNERINFORMATION.getValue());
+            throw new CieCheckerException(ResultCieChecker.KO_EXC_NO_SIGNERINFORMATION);
+        }
+        return verifyDigitalSignature(parseSod(cms));
+    }
 
-                X509CertificateHolder certHolder = extractDscCertDer(cms);
-                PublicKey pubKey = extractPublicKeyFromHolder(certHolder);
+    /**
+     * VERIFICA FINALE DELLA FIRMA DIGITALE sul SOD già decodificato
+     * @param sod ParsedSod
+     * @return ResultCieChecker
+     * @throws CieCheckerException c
+     */
+    public static ResultCieChecker verifyDigitalSignature(ParsedSod sod) throws CieCheckerException {
 
-                // Crea il verificatore di firma
-                JcaSimpleSignerInfoVerifierBuilder verifierBuilder = new JcaSimpleSignerInfoVerifierBuilder();
-                verifierBuilder.setProvider(new BouncyCastleProvider());
-                if (!signer.verify(verifierBuilder.build(pubKey))) {
+        log.info(INVOKING_OPERATION_LABEL, LogsConstant.VALIDATEUTILS_VERIFY_DIGITAL_SIGNATURE);
+        try {
+            SignerInformation signer = sod.getSignerInformation();
+            if (signer != null) {
+                // Crea il verificatore di firma (builder condiviso, provider BouncyCastle)
+                if (!signer.verify(CryptoProviders.SIGNER_INFO_VERIFIER_BUILDER.build(sod.getPublicKey()))) {
                     log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.VALIDATEUTILS_VERIFY_DIGITAL_SIGNATURE, CieCheckerException.class.getName() + LogsConstant.MESSAGE +ResultCieChecker.KO_EXC_INVALID_VERIFIER.getValue());
                     throw new CMSException(CieCheckerConstants.EXC_INVALID_VERIFIER);
                 }
@@ -678,9 +728,32 @@ public class ValidateUtils {
     //creazione oggetto rappresentante EF.SOD -> decode_sod_hr.sh
     public static SodSummary decodeSodHr(byte[] sodBytes) throws CieCheckerException {
         log.info(INVOKING_OPERATION_LABEL, LogsConstant.VALIDATEUTILS_DECEODESODHR);
+        ParsedSod sod;
         try {
-            CMSSignedData cms = new CMSSignedData(sodBytes);
+            sod = parseSod(new CMSSignedData(sodBytes));
+        }catch(CMSException ce ){
+            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.VALIDATEUTILS_DECEODESODHR, ce.getClass().getName() + LogsConstant.MESSAGE + ce.getMessage());
+            throw new CieCheckerException(ResultCieChecker.KO_EXC_GENERATE_CMSSIGNEDDATA , ce);
+        } catch (CieCheckerException cce) {
+            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.VALIDATEUTILS_DECEODESODHR, cce.getClass().getName() + LogsConstant.MESSAGE + cce.getMessage());
+            throw new CieCheckerException(cce.getResult(), cce);
+        }catch(Exception e ){
+            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.VALIDATEUTILS_DECEODESODHR, e.getClass().getName() + LogsConstant.MESSAGE + e.getMessage());
+            throw new CieCheckerException(ResultCieChecker.KO_EXC_ERROR_SOD_DECODE , e);
+        }
+        return decodeSodHr(sod);
+    }
 
+    /**
+     * Riassunto dell'EF.SOD (decode_sod_hr.sh) a partire dal SOD già decodificato:
+     * decodifica solo l'LDSSecurityObject, CMS e DSC vengono riusati
+     * @param sod ParsedSod
+     * @return SodSummary
+     * @throws CieCheckerException KO_EXC_ERROR_SOD_DECODE
+     */
+    public static SodSummary decodeSodHr(ParsedSod sod) throws CieCheckerException {
+        try {
+            CMSSignedData cms = sod.getCms();
             String contentTypeOid = cms.getSignedContentTypeOID();
             byte[] eContent = (byte[]) Objects.requireNonNull(cms.getSignedContent()).getContent();
             LDSSecurityObject lds = LDSSecurityObject.getInstance(
@@ -693,23 +766,11 @@ public class ValidateUtils {
                 dgMap.put(dgh.getDataGroupNumber(), dgh.getDataGroupHashValue().getOctets());
             }
 
-            SignerInformation si = cms.getSignerInfos().getSigners().iterator().next();
+            SignerInformation si = Objects.requireNonNull(sod.getSignerInformation());
             AlgorithmIdentifier sigAlg = AlgorithmIdentifier.getInstance(si.getDigestAlgorithmID());
             byte[] signature = si.getSignature();
 
-            X509Certificate dsc = null;
-            X509CertificateHolder holder = extractDscCertDer(cms);
-            if (holder != null) {
-                dsc = new JcaX509CertificateConverter().setProvider(new BouncyCastleProvider()).getCertificate(holder);
-            }
-
-            return new SodSummary(contentTypeOid, dgDigestAlg, dgMap, sigAlg, signature, dsc);
-        }catch(CMSException ce ){
-            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.VALIDATEUTILS_DECEODESODHR, ce.getClass().getName() + LogsConstant.MESSAGE + ce.getMessage());
-            throw new CieCheckerException(ResultCieChecker.KO_EXC_GENERATE_CMSSIGNEDDATA , ce);
-        } catch (CieCheckerException cce) {
-            log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.VALIDATEUTILS_DECEODESODHR, cce.getClass().getName() + LogsConstant.MESSAGE + cce.getMessage());
-            throw new CieCheckerException(cce.getResult(), cce);
+            return new SodSummary(contentTypeOid, dgDigestAlg, dgMap, sigAlg, signature, sod.getDscCertificate());
         }catch(Exception e ){
             log.error(LogsConstant.EXCEPTION_IN_PROCESS, LogsConstant.VALIDATEUTILS_DECEODESODHR, e.getClass().getName() + LogsConstant.MESSAGE + e.getMessage());
             throw new CieCheckerException(ResultCieChecker.KO_EXC_ERROR_SOD_DECODE , e);
@@ -759,7 +820,7 @@ public class ValidateUtils {
                                     && rdn.getFirst().getValue() != null) {
                                 String country = rdn.getFirst().getValue().toString();
                                 if (country.equals("IT")) {
-                                    X509Certificate cert = new JcaX509CertificateConverter().getCertificate(holder);
+                                    X509Certificate cert = CryptoProviders.CERTIFICATE_CONVERTER.getCertificate(holder);
                                     if (isSelfSigned(cert)) {
                                         x509List.add(cert);
                                     }
@@ -863,9 +924,7 @@ public class ValidateUtils {
     private static X509Certificate getCertificateFromPemFile(InputStream pemFileStream)
             throws CertificateException {
 
-        CertificateFactory factory =
-                CertificateFactory.getInstance("X.509", new BouncyCastleProvider());
-        return (X509Certificate) factory.generateCertificate(pemFileStream);
+        return (X509Certificate) CryptoProviders.bcX509CertificateFactory().generateCertificate(pemFileStream);
 
     }
 
@@ -932,7 +991,7 @@ public class ValidateUtils {
                 new StringReader(new String(derOrPem, StandardCharsets.US_ASCII)))) {
 
             Object obj = pp.readObject();
-            var conv = new JcaPEMKeyConverter().setProvider(new BouncyCastleProvider());
+            var conv = CryptoProviders.PEM_KEY_CONVERTER;
 
             if (obj instanceof PrivateKeyInfo pki) {
                 return conv.getPrivateKey(pki);
@@ -957,7 +1016,7 @@ public class ValidateUtils {
 
     public static X509Certificate parseCertificate(byte[] derOrPem) throws CertificateException, IOException {
         try {
-            return (X509Certificate) CertificateFactory.getInstance("X.509")
+            return (X509Certificate) CryptoProviders.x509CertificateFactory()
                     .generateCertificate(new ByteArrayInputStream(derOrPem));
         } catch (CertificateException ignore) { /* non era DER */ }
 
@@ -965,8 +1024,7 @@ public class ValidateUtils {
                 new java.io.StringReader(new String(derOrPem, StandardCharsets.US_ASCII)))) {
             Object obj = pp.readObject();
             if (obj instanceof X509CertificateHolder holder) {
-                return new JcaX509CertificateConverter()
-                        .setProvider(new BouncyCastleProvider()).getCertificate(holder);
+                return CryptoProviders.BC_CERTIFICATE_CONVERTER.getCertificate(holder);
             }
         }
         throw new CertificateException("Formato certificato non riconosciuto (attesi DER o PEM).");
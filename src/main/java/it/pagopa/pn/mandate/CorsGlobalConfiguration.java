@@ -1,6 +1,7 @@
 package it.pagopa.pn.mandate;
 
 
+import it.pagopa.pn.mandate.rest.mandate.PagedResponses;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.config.CorsRegistry;
@@ -26,6 +27,8 @@ public class CorsGlobalConfiguration implements WebFluxConfigurer {
         corsRegistry.addMapping("/**")
                 .allowedOrigins( corsAllowedDomains.toArray( new String[0] ) )
                 .allowedMethods("GET", "HEAD", "OPTIONS", "POST", "PUT", "DELETE", "PATCH")
+                // la chiave della pagina successiva delle liste paginate va resa leggibile ai client browser
+                .exposedHeaders(PagedResponses.NEXT_PAGE_KEY_HEADER)
                 .maxAge(3600);
     }
 }
\ No newline at end of file
@@ -44,7 +44,29 @@ public class PnMandateConfig {
 
     private Boolean revokeCieMandateOnVerificationFailure;
 
+    private Boolean pendingCounterEnabled;
+    /** Durata del lease che impedisce a più istanze di eseguire insieme la riconciliazione dei contatori */
+    private Duration pendingCounterReconciliationLease;
+
+    private CacheConfig delegateMandatesCache = new CacheConfig();
+    private CacheConfig recipientDenominationCache = new CacheConfig();
+    private CacheConfig recipientInternalIdCache = new CacheConfig();
+    private CacheConfig paSummaryCache = new CacheConfig();
+    private CacheConfig pgGroupsCache = new CacheConfig();
+    private CacheConfig dscValidationCache = new CacheConfig();
+
+    private ExecutorConfig cieParallelVerification = new ExecutorConfig();
+    private ExecutorConfig cieValidationScheduler = new ExecutorConfig();
+
+    private AdaptivePageSizeConfig searchAdaptivePageSize = new AdaptivePageSizeConfig();
+    /** Nella ricerca per delegato le deleghe oltre la pagina restituita si leggono con le sole chiavi (non riduce le RCU: il GSI ha proiezione ALL) */
+    private Boolean searchKeyOnlyLookAhead;
+
     private String ciecheckerCscaAnchorPathFilename;
+    /** Snapshot delle CSCA già estratte dalla master list (uri s3), vuoto per disabilitarlo */
+    private String ciecheckerCscaAnchorSnapshotPathFilename;
+    /** Chiave HMAC con cui viene autenticato lo snapshot delle CSCA, senza chiave lo snapshot non viene usato */
+    private String ciecheckerCscaAnchorSnapshotHmacKey;
 
     @Value("${aws.region-code}")
     private String regionCode;
@@ -74,6 +96,42 @@ public class PnMandateConfig {
         return builder;
     }
 
+    /**
+     * Configurazione di una cache in memoria: se disabilitata le letture vanno sempre alla sorgente.
+     * Se valorizzato refreshAfterWrite, le entry vengono aggiornate in background (solo per le cache che lo supportano)
+     */
+    @Getter
+    @Setter
+    public static class CacheConfig {
+        private boolean enabled;
+        private Duration ttl = Duration.ofSeconds(5);
+        private long maxSize = 10000;
+        private Duration refreshAfterWrite;
+    }
+
+    /**
+     * Configurazione di un pool di thread dedicato e limitato (numero di thread e dimensione massima complessiva della coda)
+     */
+    @Getter
+    @Setter
+    public static class ExecutorConfig {
+        private boolean enabled;
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private int queueSize = 100;
+    }
+
+    /**
+     * Configurazione del dimensionamento adattivo delle pagine DynamoDB: il limit è stimato dalla selettività
+     * osservata dei filtri (media mobile esponenziale con peso smoothing), fino a maxMultiplier volte la dimensione richiesta
+     */
+    @Getter
+    @Setter
+    public static class AdaptivePageSizeConfig {
+        private boolean enabled;
+        private int maxMultiplier = 10;
+        private double smoothing = 0.2;
+    }
+
 
 
 }
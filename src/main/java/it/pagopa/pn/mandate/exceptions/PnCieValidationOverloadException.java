@@ -0,0 +1,14 @@
+package it.pagopa.pn.mandate.exceptions;
+
+import it.pagopa.pn.commons.exceptions.PnRuntimeException;
+import org.springframework.http.HttpStatus;
+
+import static it.pagopa.pn.mandate.exceptions.PnMandateExceptionCodes.ERROR_CODE_MANDATE_CIE_VALIDATION_OVERLOAD;
+
+public class PnCieValidationOverloadException extends PnRuntimeException {
+
+    public PnCieValidationOverloadException() {
+        super("Validazione CIE non disponibile", "Troppe validazioni CIE in corso, riprovare più tardi",
+                HttpStatus.SERVICE_UNAVAILABLE.value(), ERROR_CODE_MANDATE_CIE_VALIDATION_OVERLOAD, null, null);
+    }
+}
@@ -21,6 +21,8 @@ public class PnMandateExceptionCodes extends PnExceptionsCodes {
     public static final String ERROR_CODE_MANDATE_INVALID_MESSAGE_HEADERS = "ERROR_CODE_MANDATE_INVALIDMESSAGEHEADERS";
     public static final String ERROR_CODE_MANDATE_HANDLER_NOT_PRESENT = "ERROR_CODE_MANDATE_HANDLERNOTPRESENT";
     public static final String ERROR_CODE_JSON_PROCESSING_SQS_SERVICE = "PN_MANDATE_JSON_PROCESSING_SQS_SERVICE";
+    public static final String ERROR_CODE_SQS_SEND_MESSAGE = "PN_MANDATE_SQS_SEND_MESSAGE";
     public static final String ERROR_CODE_MANDATE_UNSUPPORTED_LAST_EVALUTED_KEY = "PN_MANDATE_UNSUPPORTED_LAST_EVALUTED_KEY";
+    public static final String ERROR_CODE_MANDATE_CIE_VALIDATION_OVERLOAD = "PN_MANDATE_CIE_VALIDATION_OVERLOAD";
 
 }
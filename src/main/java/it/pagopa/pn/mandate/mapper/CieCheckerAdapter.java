@@ -1,8 +1,8 @@
 package it.pagopa.pn.mandate.mapper;
 
-import it.pagopa.pn.ciechecker.exception.CieCheckerException;
 import it.pagopa.pn.mandate.appio.generated.openapi.server.v1.dto.CIEValidationData;
+import reactor.core.publisher.Mono;
 
 public interface CieCheckerAdapter {
-    void validateCie(CIEValidationData data, String nonce, String delegatorTaxId) throws CieCheckerException;
+    Mono<Void> validateCieAsync(CIEValidationData data, String nonce, String delegatorTaxId);
 }
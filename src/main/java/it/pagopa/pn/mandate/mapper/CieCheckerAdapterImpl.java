@@ -1,13 +1,12 @@
 package it.pagopa.pn.mandate.mapper;
 
 import it.pagopa.pn.ciechecker.CieChecker;
-import it.pagopa.pn.ciechecker.exception.CieCheckerException;
-import it.pagopa.pn.ciechecker.model.CieValidationData;
-import it.pagopa.pn.ciechecker.model.ResultCieChecker;
 import it.pagopa.pn.mandate.appio.generated.openapi.server.v1.dto.CIEValidationData;
 import it.pagopa.pn.mandate.utils.CieResultAnalyzer;
+import it.pagopa.pn.mandate.utils.CieValidationScheduler;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
 
 @Component
 @Slf4j
@@ -16,21 +15,30 @@ public class CieCheckerAdapterImpl implements CieCheckerAdapter {
     private final CieChecker cieChecker;
     private final CieCheckerAdapterMapper cieCheckerAdapterMapper;
     private final CieResultAnalyzer cieResultAnalyzer;
+    private final CieValidationScheduler cieValidationScheduler;
 
-    public CieCheckerAdapterImpl(CieCheckerAdapterMapper cieCheckerAdapterMapper, CieChecker cieChecker, CieResultAnalyzer cieResultAnalyzer) {
+    public CieCheckerAdapterImpl(CieCheckerAdapterMapper cieCheckerAdapterMapper, CieChecker cieChecker, CieResultAnalyzer cieResultAnalyzer,
+                                 CieValidationScheduler cieValidationScheduler) {
         this.cieCheckerAdapterMapper = cieCheckerAdapterMapper;
         this.cieResultAnalyzer = cieResultAnalyzer;
         this.cieChecker = cieChecker;
+        this.cieValidationScheduler = cieValidationScheduler;
         cieChecker.init();
     }
 
+    /**
+     * Validazione CIE non bloccante: la validazione viene eseguita sullo scheduler dedicato
+     * e l'esito analizzato con {@link CieResultAnalyzer}
+     */
     @Override
-    public void validateCie(CIEValidationData data, String nonce, String delegatorTaxId) throws CieCheckerException {
-        log.info("Starting CIE Checker validation");
-        CieValidationData cieValidationData = cieCheckerAdapterMapper.mapToLibDto(data, nonce, delegatorTaxId);
-        ResultCieChecker resultCieChecker = cieChecker.validateMandate(cieValidationData);
-        cieResultAnalyzer.analyzeResult(resultCieChecker);
-        log.info("CIE Checker validation completed successfully");
+    public Mono<Void> validateCieAsync(CIEValidationData data, String nonce, String delegatorTaxId) {
+        return Mono.fromCallable(() -> {
+                    log.info("Starting CIE Checker validation");
+                    return cieCheckerAdapterMapper.mapToLibDto(data, nonce, delegatorTaxId);
+                })
+                .flatMap(cieValidationData -> cieValidationScheduler.schedule(scheduler -> cieChecker.validateMandateAsync(cieValidationData, scheduler)))
+                .doOnNext(cieResultAnalyzer::analyzeResult)
+                .doOnNext(resultCieChecker -> log.info("CIE Checker validation completed successfully"))
+                .then();
     }
 }
-
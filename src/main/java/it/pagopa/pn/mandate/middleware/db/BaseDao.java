@@ -5,6 +5,7 @@ import software.amazon.awssdk.enhanced.dynamodb.Key;
 public class BaseDao {
 
     public static final String GSI_INDEX_DELEGATE_STATE = "delegate-state-gsi";
+    public static final String GSI_INDEX_MANDATEID = "mandateid-gsi";
 
     protected Key getKeyBuild(String pk) {
         return getKeyBuild(pk, null);
@@ -9,16 +9,25 @@ import it.pagopa.pn.mandate.generated.openapi.server.v1.dto.MandateDto;
 import it.pagopa.pn.mandate.utils.DateUtils;
 import it.pagopa.pn.mandate.utils.TypeSegregatorFilter;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
 import software.amazon.awssdk.services.dynamodb.model.Select;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,6 +41,7 @@ public class DelegateDao extends BaseDao {
     DynamoDbAsyncTable<DelegateEntity> userTable;
     DynamoDbAsyncClient dynamoDbAsyncClient;
     String table ;
+    boolean pendingCounterEnabled;
 
     public DelegateDao(DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient,
                        DynamoDbAsyncClient dynamoDbAsyncClient,
@@ -39,31 +49,196 @@ public class DelegateDao extends BaseDao {
         this.userTable = dynamoDbEnhancedAsyncClient.table(awsConfigs.getDynamodbTable(), TableSchema.fromBean(DelegateEntity.class));
         this.dynamoDbAsyncClient = dynamoDbAsyncClient;
         this.table = awsConfigs.getDynamodbTable();
+        this.pendingCounterEnabled = Boolean.TRUE.equals(awsConfigs.getPendingCounterEnabled());
     }
 
     public Mono<DelegateEntity> countMandates(String delegateInternaluserid, CxTypeAuthFleet cxTypeAuthFleet, List<String> cxGroups) {
         if (log.isInfoEnabled())
             log.info("Get user pending count uid:{}", delegateInternaluserid);
 
+        // il contatore materializzato non è suddiviso per gruppo: le deleghe in pending non hanno gruppi
+        // (vengono assegnati in accettazione) e il filtro per gruppi è in OR, quindi non additivo.
+        // In questo caso, o se il contatore non è ancora stato inizializzato (o è negativo per un disallineamento
+        // che sarà corretto dalla riconciliazione), si effettua la query di conteggio.
+        // NB: il contatore viene decrementato solo quando la scadenza di una delega in pending viene elaborata,
+        // quindi tra il superamento di validto e l'elaborazione della scadenza (TTL di DynamoDB, che può ritardare
+        // anche di qualche ora) conta deleghe che la query di conteggio esclude già
+        boolean groupFilter = CxTypeAuthFleet.PG.equals(cxTypeAuthFleet) && cxGroups != null && !cxGroups.isEmpty();
+        if (pendingCounterEnabled && !groupFilter) {
+            return getPendingCounter(delegateInternaluserid)
+                    .filter(counter -> Boolean.TRUE.equals(counter.getSeeded()) && counter.getPendingcount() >= 0)
+                    .switchIfEmpty(Mono.defer(() -> countMandatesByQuery(delegateInternaluserid, cxTypeAuthFleet, cxGroups, true)));
+        }
+        return countMandatesByQuery(delegateInternaluserid, cxTypeAuthFleet, cxGroups, true);
+    }
+
+    /**
+     * Riallinea il contatore materializzato delle deleghe in pending di tutti i delegati
+     * che hanno un contatore o almeno una delega in pending, inizializzandolo se non presente.
+     *
+     * @return numero di contatori aggiornati
+     */
+    public Mono<Long> reconcilePendingCounters() {
+        Map<String, AttributeValue> expressionValues = new HashMap<>();
+        expressionValues.put(":countersk", AttributeValue.builder().s(DelegateEntity.PENDING_COUNTER_SK).build());
+        expressionValues.put(":mandateprefix", AttributeValue.builder().s(MandateEntity.MANDATE_PREFIX).build());
+        expressionValues.put(":state", AttributeValue.builder().n(StatusEnumMapper.intValfromStatus(MandateDto.StatusEnum.PENDING) + "").build());
+
+        ScanRequest scanRequest = ScanRequest.builder()
+                .tableName(table)
+                .projectionExpression(MandateEntity.COL_PK + ", " + MandateEntity.COL_SK + ", " + MandateEntity.COL_S_DELEGATE)
+                .filterExpression(MandateEntity.COL_SK + " = :countersk OR (begins_with(" + MandateEntity.COL_SK + ", :mandateprefix) AND " + MandateEntity.COL_I_STATE + " = :state)")
+                .expressionAttributeValues(expressionValues)
+                .build();
+
+        return Flux.from(dynamoDbAsyncClient.scanPaginator(scanRequest).items())
+                .map(item -> DelegateEntity.PENDING_COUNTER_SK.equals(item.get(MandateEntity.COL_SK).s())
+                        ? item.get(MandateEntity.COL_PK).s()
+                        : item.get(MandateEntity.COL_S_DELEGATE).s())
+                .distinct()
+                .concatMap(this::reconcilePendingCounter)
+                .filter(Boolean::booleanValue)
+                .count()
+                .doOnNext(total -> log.info("pending counters reconciliation completed, updated counters={}", total));
+    }
+
+    /**
+     * Acquisisce il lease della riconciliazione dei contatori, con una scrittura condizionata che riesce solo
+     * se il lease non esiste o è scaduto. Il lease non viene rilasciato a fine riconciliazione, così che le altre istanze
+     * schedulate sullo stesso cron la saltino: la durata deve quindi essere maggiore della durata della riconciliazione
+     * e minore dell'intervallo del cron.
+     *
+     * @param owner         identificativo dell'istanza, salvato per diagnostica
+     * @param leaseDuration durata del lease
+     * @return true se il lease è stato acquisito
+     */
+    public Mono<Boolean> acquireReconciliationLease(String owner, Duration leaseDuration) {
+        Instant now = Instant.now();
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put(DelegateEntity.COL_PK, AttributeValue.builder().s(DelegateEntity.RECONCILIATION_LEASE_PK).build());
+        item.put(DelegateEntity.COL_SK, AttributeValue.builder().s(DelegateEntity.RECONCILIATION_LEASE_SK).build());
+        item.put(DelegateEntity.COL_S_LEASEOWNER, AttributeValue.builder().s(owner).build());
+        item.put(DelegateEntity.COL_I_LEASEUNTIL, AttributeValue.builder().n(String.valueOf(now.plus(leaseDuration).getEpochSecond())).build());
+
+        PutItemRequest putItemRequest = PutItemRequest.builder()
+                .tableName(table)
+                .item(item)
+                .conditionExpression("attribute_not_exists(" + DelegateEntity.COL_PK + ") OR " + DelegateEntity.COL_I_LEASEUNTIL + " < :now")
+                .expressionAttributeValues(Map.of(":now", AttributeValue.builder().n(String.valueOf(now.getEpochSecond())).build()))
+                .build();
+
+        return Mono.fromFuture(dynamoDbAsyncClient.putItem(putItemRequest))
+                .thenReturn(true)
+                .onErrorResume(ConditionalCheckFailedException.class, e -> {
+                    log.info("pending counters reconciliation lease held by another instance");
+                    return Mono.just(false);
+                });
+    }
+
+    /**
+     * Riallinea il contatore materializzato delle deleghe in pending del delegato con il conteggio da query.
+     * Come il contatore, il conteggio include le deleghe in pending con validto superato ma la cui scadenza non è ancora
+     * stata elaborata: escluderle porterebbe il contatore sotto il valore reale quando la scadenza viene elaborata.
+     * Il contatore viene prima creato se assente (le scritture lo aggiornano con ADD, quindi da quel momento tiene conto
+     * di tutte le variazioni), poi riletto, e il conteggio viene salvato con una condition sul valore letto:
+     * se nel frattempo una scrittura lo ha aggiornato il riallineamento viene rimandato all'esecuzione successiva.
+     *
+     * @param delegateInternaluserid internaluserid del delegato
+     * @return true se il contatore è stato aggiornato
+     */
+    public Mono<Boolean> reconcilePendingCounter(String delegateInternaluserid) {
+        return ensurePendingCounter(delegateInternaluserid)
+                .flatMap(current -> countMandatesByQuery(delegateInternaluserid, CxTypeAuthFleet.PF, null, false)
+                        .flatMap(counted -> {
+                            if (Boolean.TRUE.equals(current.getSeeded()) && current.getPendingcount() == counted.getPendingcount()) {
+                                return Mono.just(false);
+                            }
+                            if (current.getPendingcount() < 0) {
+                                log.warn("negative pending counter for delegate uid={} stored={} counted={}", delegateInternaluserid,
+                                        current.getPendingcount(), counted.getPendingcount());
+                            } else {
+                                log.warn("pending counter drift for delegate uid={} stored={} seeded={} counted={}", delegateInternaluserid,
+                                        current.getPendingcount(), current.getSeeded(), counted.getPendingcount());
+                            }
+                            return savePendingCounter(delegateInternaluserid, counted.getPendingcount(), current.getPendingcount());
+                        }));
+    }
+
+    private Mono<DelegateEntity> getPendingCounter(String delegateInternaluserid) {
+        return Mono.fromFuture(userTable.getItem(getKeyBuild(delegateInternaluserid, DelegateEntity.PENDING_COUNTER_SK)));
+    }
+
+    /**
+     * Crea il contatore se assente (ADD di 0) e ne restituisce il valore corrente
+     */
+    private Mono<DelegateEntity> ensurePendingCounter(String delegateInternaluserid) {
+        UpdateItemRequest updateItemRequest = UpdateItemRequest.builder()
+                .tableName(table)
+                .key(pendingCounterKey(delegateInternaluserid))
+                .updateExpression("ADD " + DelegateEntity.COL_I_PENDINGCOUNT + " :zero")
+                .expressionAttributeValues(Map.of(":zero", AttributeValue.builder().n("0").build()))
+                .returnValues(ReturnValue.ALL_NEW)
+                .build();
+
+        return Mono.fromFuture(dynamoDbAsyncClient.updateItem(updateItemRequest))
+                .map(response -> {
+                    DelegateEntity counter = new DelegateEntity(delegateInternaluserid);
+                    counter.setPendingcount(Integer.parseInt(response.attributes().get(DelegateEntity.COL_I_PENDINGCOUNT).n()));
+                    AttributeValue seeded = response.attributes().get(DelegateEntity.COL_B_SEEDED);
+                    counter.setSeeded(seeded != null && Boolean.TRUE.equals(seeded.bool()));
+                    return counter;
+                });
+    }
+
+    private Mono<Boolean> savePendingCounter(String delegateInternaluserid, int pendingcount, int currentPendingcount) {
+        UpdateItemRequest updateItemRequest = UpdateItemRequest.builder()
+                .tableName(table)
+                .key(pendingCounterKey(delegateInternaluserid))
+                .updateExpression("SET " + DelegateEntity.COL_I_PENDINGCOUNT + " = :pendingcount, " + DelegateEntity.COL_B_SEEDED + " = :seeded")
+                .conditionExpression(DelegateEntity.COL_I_PENDINGCOUNT + " = :current")
+                .expressionAttributeValues(Map.of(
+                        ":pendingcount", AttributeValue.builder().n(String.valueOf(pendingcount)).build(),
+                        ":seeded", AttributeValue.builder().bool(true).build(),
+                        ":current", AttributeValue.builder().n(String.valueOf(currentPendingcount)).build()))
+                .build();
+
+        return Mono.fromFuture(dynamoDbAsyncClient.updateItem(updateItemRequest))
+                .thenReturn(true)
+                .onErrorResume(ConditionalCheckFailedException.class, e -> {
+                    log.info("pending counter for delegate uid={} updated concurrently, skip reconciliation", delegateInternaluserid);
+                    return Mono.just(false);
+                });
+    }
+
+    private Map<String, AttributeValue> pendingCounterKey(String delegateInternaluserid) {
+        return Map.of(
+                DelegateEntity.COL_PK, AttributeValue.builder().s(delegateInternaluserid).build(),
+                DelegateEntity.COL_SK, AttributeValue.builder().s(DelegateEntity.PENDING_COUNTER_SK).build());
+    }
+
+    private Mono<DelegateEntity> countMandatesByQuery(String delegateInternaluserid, CxTypeAuthFleet cxTypeAuthFleet, List<String> cxGroups,
+                                                      boolean excludeExpired) {
         // qui l'internaluserid è quello del DELEGATO, devo passare quindi per l'indice sul delegato,
         // e fare il count delle deleghe in pending.
         Map<String, AttributeValue> expressionValues = new HashMap<>();
         expressionValues.put(":delegate", AttributeValue.builder().s(delegateInternaluserid).build());
-        expressionValues.put(":now", AttributeValue.builder().s(DateUtils.formatDate(ZonedDateTime.now().toInstant())).build());
         expressionValues.put(":state", AttributeValue.builder().n(StatusEnumMapper.intValfromStatus(MandateDto.StatusEnum.PENDING) + "").build());  //anche se numero, va convertito in stringa, a dynamo piace così
 
-        String expression = getValidToFilterExpression();
+        List<String> expressions = new ArrayList<>();
+        if (excludeExpired) {
+            expressionValues.put(":now", AttributeValue.builder().s(DateUtils.formatDate(ZonedDateTime.now().toInstant())).build());
+            expressions.add(getValidToFilterExpression());
+        }
 
         if(CxTypeAuthFleet.PG.equals(cxTypeAuthFleet) && cxGroups!=null && !cxGroups.isEmpty())
-            expression += " AND " + buildExpressionGroupFilter(cxGroups, expressionValues);
-
-        TypeSegregatorFilter.STANDARD.buildExpression(expressionValues);
+            expressions.add(buildExpressionGroupFilter(cxGroups, expressionValues));
 
         TypeSegregatorFilter typeSegregatorFilter = TypeSegregatorFilter.STANDARD;
         String workflowTypeExpression = typeSegregatorFilter.buildExpression(expressionValues);
         if (!workflowTypeExpression.isEmpty()) {
-            expression += " AND " + workflowTypeExpression;
+            expressions.add(workflowTypeExpression);
         }
+        String expression = String.join(" AND ", expressions);
 
         QueryRequest qeRequest = QueryRequest
                 .builder()
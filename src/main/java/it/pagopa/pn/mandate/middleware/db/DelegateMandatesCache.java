@@ -0,0 +1,126 @@
+package it.pagopa.pn.mandate.middleware.db;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import it.pagopa.pn.mandate.config.PnMandateConfig;
+import it.pagopa.pn.mandate.generated.openapi.server.v1.dto.CxTypeAuthFleet;
+import it.pagopa.pn.mandate.middleware.db.entities.MandateEntity;
+import it.pagopa.pn.mandate.model.InputSearchMandateDto;
+import it.pagopa.pn.mandate.utils.TypeSegregatorFilter;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache in memoria, limitata in dimensione e durata, delle deleghe restituite dalla ricerca per delegato
+ * usata dalle API private (invocate ad ogni visualizzazione di notifica da parte di un delegato).
+ * <p>
+ * Le ricerche sono indicizzate per delegato (max-size limita il numero di delegati), così che una scrittura fatta
+ * da {@link MandateDao} in questa istanza le invalidi tutte con una sola operazione. Ogni invalidazione crea una nuova
+ * generazione delle entry del delegato: una ricerca iniziata prima della scrittura non può rimettere in cache
+ * una lista ormai superata.
+ * <p>
+ * Le scritture fatte da altre istanze non invalidano la cache locale: finché l'entry non scade un delegato
+ * può ancora vedere (per al più il ttl configurato) una delega appena revocata o non vedere una delega appena accettata
+ * su un'altra istanza. Per questo la cache è disabilitata di default e va abilitata solo con un ttl compatibile
+ * con tale finestra.
+ */
+@Component
+@lombok.CustomLog
+public class DelegateMandatesCache {
+
+    /**
+     * Proiezione immutabile dei filtri della ricerca per delegato usati da {@link MandateDao#listMandatesByDelegate}
+     */
+    private record SearchKey(Integer status, String mandateId, CxTypeAuthFleet cxType, List<String> groups,
+                             String iun, Instant notificationSentAt, String rootSenderId,
+                             TypeSegregatorFilter typeSegregatorFilter) {
+
+        static SearchKey of(InputSearchMandateDto searchMandateDto, TypeSegregatorFilter typeSegregatorFilter) {
+            List<String> groups = searchMandateDto.getGroups() == null
+                    ? null
+                    : Collections.unmodifiableList(new ArrayList<>(searchMandateDto.getGroups()));
+            return new SearchKey(searchMandateDto.getStatus(), searchMandateDto.getMandateId(), searchMandateDto.getCxType(),
+                    groups, searchMandateDto.getIun(), searchMandateDto.getNotificationSentAt(),
+                    searchMandateDto.getRootSenderId(), typeSegregatorFilter);
+        }
+    }
+
+    /**
+     * Generazione delle ricerche in cache di un delegato, sostituita ad ogni invalidazione
+     */
+    private static final class DelegateEntries {
+        private final Map<SearchKey, List<MandateEntity>> searches = new ConcurrentHashMap<>();
+    }
+
+    private final Cache<String, DelegateEntries> cache;
+
+    public DelegateMandatesCache(PnMandateConfig pnMandateConfig) {
+        PnMandateConfig.CacheConfig cacheConfig = pnMandateConfig.getDelegateMandatesCache();
+        if (cacheConfig != null && cacheConfig.isEnabled()) {
+            log.info("delegate mandates cache enabled ttl={} maxSize={}", cacheConfig.getTtl(), cacheConfig.getMaxSize());
+            this.cache = Caffeine.newBuilder()
+                    .expireAfterWrite(cacheConfig.getTtl())
+                    .maximumSize(cacheConfig.getMaxSize())
+                    .build();
+        } else {
+            this.cache = null;
+        }
+    }
+
+    /**
+     * Restituisce le deleghe in cache per la ricerca, altrimenti esegue la ricerca e ne salva il risultato
+     *
+     * @param searchMandateDto     filtri della ricerca
+     * @param typeSegregatorFilter filtro sul tipo di workflow
+     * @param loader               ricerca da eseguire in caso di miss
+     * @return deleghe trovate
+     */
+    public Flux<MandateEntity> get(InputSearchMandateDto searchMandateDto, TypeSegregatorFilter typeSegregatorFilter,
+                                   Supplier<Flux<MandateEntity>> loader) {
+        String delegateId = searchMandateDto.getDelegateId();
+        if (cache == null || delegateId == null) {
+            return loader.get();
+        }
+
+        SearchKey key = SearchKey.of(searchMandateDto, typeSegregatorFilter);
+        return Flux.defer(() -> {
+            DelegateEntries entries = cache.get(delegateId, k -> new DelegateEntries());
+            List<MandateEntity> cached = entries.searches.get(key);
+            if (cached != null) {
+                log.debug("delegate mandates cache hit delegateId={}", delegateId);
+                return Flux.fromIterable(cached);
+            }
+            // le deleghe vengono emesse man mano che sono lette, la ricerca va in cache solo se letta per intero
+            // e solo se nel frattempo non c'è stata un'invalidazione del delegato (se avviene dopo il controllo
+            // la lista finisce nella generazione già rimossa e non viene più letta).
+            // Non si riscrive l'entry del delegato per non prolungarne il ttl
+            List<MandateEntity> loaded = new ArrayList<>();
+            return loader.get()
+                    .doOnNext(loaded::add)
+                    .doOnComplete(() -> {
+                        if (cache.getIfPresent(delegateId) == entries) {
+                            entries.searches.put(key, List.copyOf(loaded));
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Rimuove dalla cache tutte le ricerche del delegato
+     *
+     * @param delegateId internaluserid del delegato
+     */
+    public void invalidate(String delegateId) {
+        if (cache != null && delegateId != null) {
+            cache.invalidate(delegateId);
+        }
+    }
+}
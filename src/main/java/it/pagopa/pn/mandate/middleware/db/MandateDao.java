@@ -11,9 +11,13 @@ import it.pagopa.pn.mandate.generated.openapi.server.v1.dto.DelegateType;
 import it.pagopa.pn.mandate.generated.openapi.server.v1.dto.MandateByDelegatorRequestDto;
 import it.pagopa.pn.mandate.generated.openapi.server.v1.dto.MandateDto.StatusEnum;
 import it.pagopa.pn.mandate.mapper.StatusEnumMapper;
+import it.pagopa.pn.mandate.middleware.db.entities.DelegateEntity;
 import it.pagopa.pn.mandate.middleware.db.entities.MandateEntity;
 import it.pagopa.pn.mandate.middleware.db.entities.MandateSupportEntity;
+import it.pagopa.pn.mandate.model.ExpireMandateRequestDto;
+import it.pagopa.pn.mandate.model.ExpireMandateResultDto;
 import it.pagopa.pn.mandate.model.InputSearchMandateDto;
+import it.pagopa.pn.mandate.model.PageResultDto;
 import it.pagopa.pn.mandate.model.WorkFlowType;
 import it.pagopa.pn.mandate.utils.DateUtils;
 import it.pagopa.pn.mandate.utils.MandateUtils;
@@ -27,17 +31,26 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.function.Tuple2;
 import reactor.util.function.Tuples;
+import software.amazon.awssdk.core.async.SdkPublisher;
 import software.amazon.awssdk.enhanced.dynamodb.*;
 import software.amazon.awssdk.enhanced.dynamodb.model.*;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
 import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
 import software.amazon.awssdk.services.dynamodb.model.Select;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.Update;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
 
 import java.time.*;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static it.pagopa.pn.commons.utils.MDCUtils.*;
 import static it.pagopa.pn.mandate.utils.PgUtils.buildExpressionGroupFilter;
@@ -49,6 +62,8 @@ public class MandateDao extends BaseDao {
 
 
     private static final int MAX_DYNAMODB_BATCH_SIZE = 100;
+    private static final int MAX_DYNAMODB_TRANSACTION_SIZE = 100;
+    private static final int EXPIRE_ITEMS_PER_MANDATE = 3;
 
     private static final String AND = " AND ";
     private static final String CONTAINS = "contains";
@@ -65,10 +80,13 @@ public class MandateDao extends BaseDao {
     String table;
     Duration pendingExpire;
     Duration ciePendingExpire;
+    boolean pendingCounterEnabled;
+    DelegateMandatesCache delegateMandatesCache;
 
     public MandateDao(DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient,
                       DynamoDbAsyncClient dynamoDbAsyncClient,
-                      PnMandateConfig awsConfigs) {
+                      PnMandateConfig awsConfigs,
+                      DelegateMandatesCache delegateMandatesCache) {
         this.mandateTable = dynamoDbEnhancedAsyncClient.table(awsConfigs.getDynamodbTable(), TableSchema.fromBean(MandateEntity.class));
         this.mandateSupportTable = dynamoDbEnhancedAsyncClient.table(awsConfigs.getDynamodbTable(), TableSchema.fromBean(MandateSupportEntity.class));
         this.mandateHistoryTable = dynamoDbEnhancedAsyncClient.table(awsConfigs.getDynamodbTableHistory(), TableSchema.fromBean(MandateEntity.class));
@@ -77,6 +95,8 @@ public class MandateDao extends BaseDao {
         this.dynamoDbEnhancedAsyncClient = dynamoDbEnhancedAsyncClient;
         this.pendingExpire = awsConfigs.getPendingDuration();
         this.ciePendingExpire= awsConfigs.getCiePendingDuration();
+        this.pendingCounterEnabled = Boolean.TRUE.equals(awsConfigs.getPendingCounterEnabled());
+        this.delegateMandatesCache = delegateMandatesCache;
     }
 
     //#region public methods
@@ -89,12 +109,42 @@ public class MandateDao extends BaseDao {
      * @return lista delle deleghe
      */
     public Flux<MandateEntity> listMandatesByDelegate(InputSearchMandateDto searchMandateDto, TypeSegregatorFilter typeSegregatorFilter) {
+        log.info("listMandatesByDelegate searchMandateDto={}", searchMandateDto);
+        QueryEnhancedRequest qeRequest = listMandatesByDelegateRequest(searchMandateDto, typeSegregatorFilter).build();
+        return Flux.from(mandateTable.index(GSI_INDEX_DELEGATE_STATE).query(qeRequest)
+                .flatMapIterable(Page::items));
+    }
+
+    /**
+     * Versione paginata di {@link #listMandatesByDelegate(InputSearchMandateDto, TypeSegregatorFilter)}:
+     * vengono lette al più size deleghe a partire da lastEvaluatedKey
+     *
+     * @param searchMandateDto parametri di ricerca
+     * @param typeSegregatorFilter segregatore da utilizzare per filtrare i tipi di delega (OPZIONALE)
+     * @param size dimensione della pagina
+     * @param lastEvaluatedKey chiave da cui riprendere la lettura (OPZIONALE)
+     * @return pagina di deleghe, con la chiave della pagina successiva se ci sono altre deleghe
+     */
+    public Mono<PageResultDto<MandateEntity, PnLastEvaluatedKey>> listMandatesByDelegatePaged(InputSearchMandateDto searchMandateDto,
+                                                                                             TypeSegregatorFilter typeSegregatorFilter,
+                                                                                             int size,
+                                                                                             @Nullable PnLastEvaluatedKey lastEvaluatedKey) {
+        log.info("listMandatesByDelegatePaged searchMandateDto={} size={} lek={}", searchMandateDto, size, lastEvaluatedKey);
+        return readPage(request -> mandateTable.index(GSI_INDEX_DELEGATE_STATE).query(request),
+                listMandatesByDelegateRequest(searchMandateDto, typeSegregatorFilter), size, lastEvaluatedKey,
+                entity -> Map.of(
+                        MandateEntity.COL_PK, AttributeValue.builder().s(entity.getDelegator()).build(),
+                        MandateEntity.COL_SK, AttributeValue.builder().s(entity.getSk()).build(),
+                        MandateEntity.COL_I_STATE, AttributeValue.builder().n(Integer.toString(entity.getState())).build(),
+                        MandateEntity.COL_S_DELEGATE, AttributeValue.builder().s(entity.getDelegate()).build()));
+    }
+
+    private QueryEnhancedRequest.Builder listMandatesByDelegateRequest(InputSearchMandateDto searchMandateDto, TypeSegregatorFilter typeSegregatorFilter) {
         // devo sempre filtrare. Se lo stato è passato, vuol dire che voglio filtrare solo per quello stato.
         // altrimenti, è IMPLICITO il fatto di filtrare per le deleghe pendenti e attive (ovvero < 20)
         // NB: listMandatesByDelegate e listMandatesByDelegator si assomigliano, ma a livello di query fanno
         // affidamento ad indici diversi e query diverse
         // listMandatesByDelegate si affida all'indice GSI delegate-state, che filtra per utente delegato E stato.
-        log.info("listMandatesByDelegate searchMandateDto={}", searchMandateDto);
 
         QueryConditional queryConditional = QueryConditional.sortLessThanOrEqualTo(getKeyBuild(searchMandateDto.getDelegateId(), StatusEnumMapper.intValfromStatus(StatusEnum.ACTIVE)));
         if (searchMandateDto.getStatus() != null) {
@@ -148,18 +198,11 @@ public class MandateDao extends BaseDao {
 
         // il filtro cambia in base al fatto se ho chiesto uno stato specifico (uso =)
         //   o se invece non chiedo lo stato (e quindi mi interessano pendenti e attive, uso <=)
-        QueryEnhancedRequest qeRequest = QueryEnhancedRequest
+        return QueryEnhancedRequest
                 .builder()
                 .queryConditional(queryConditional)
                 .filterExpression(exp)
-                .scanIndexForward(true)
-                .build();
-
-
-        // viene volutamente ignorata la gestione della paginazione, che per ora non serve.
-        // si suppone infatti che la lista delle deleghe non sia troppo lunga e quindi non vada a sforare il limite di 1MB di paginazione
-        return Flux.from(mandateTable.index(GSI_INDEX_DELEGATE_STATE).query(qeRequest)
-                .flatMapIterable(Page::items));
+                .scanIndexForward(true);
     }
 
     public Mono<Page<MandateEntity>> searchByDelegate(String delegateId,
@@ -168,8 +211,31 @@ public class MandateDao extends BaseDao {
                                                       List<String> delegatorIds,
                                                       int size,
                                                       PnLastEvaluatedKey lastEvaluatedKey) {
-        log.debug("searchByDelegate {}, status: {}, groups: {}, delegatorIds: {}, size: {}, lek: {}",
-                delegateId, status, groups, delegatorIds, size, lastEvaluatedKey);
+        return searchByDelegate(delegateId, status, groups, delegatorIds, size, lastEvaluatedKey, false);
+    }
+
+    /**
+     * Come {@link #searchByDelegate(String, Integer, List, List, int, PnLastEvaluatedKey)}, ma le entity restituite
+     * contengono solo le chiavi (pk, sk, i_state, s_delegate): sufficienti per calcolare i lastEvaluatedKey
+     */
+    public Mono<Page<MandateEntity>> searchKeysByDelegate(String delegateId,
+                                                          @Nullable Integer status,
+                                                          List<String> groups,
+                                                          List<String> delegatorIds,
+                                                          int size,
+                                                          PnLastEvaluatedKey lastEvaluatedKey) {
+        return searchByDelegate(delegateId, status, groups, delegatorIds, size, lastEvaluatedKey, true);
+    }
+
+    private Mono<Page<MandateEntity>> searchByDelegate(String delegateId,
+                                                       @Nullable Integer status,
+                                                       List<String> groups,
+                                                       List<String> delegatorIds,
+                                                       int size,
+                                                       PnLastEvaluatedKey lastEvaluatedKey,
+                                                       boolean keysOnly) {
+        log.debug("searchByDelegate {}, status: {}, groups: {}, delegatorIds: {}, size: {}, lek: {}, keysOnly: {}",
+                delegateId, status, groups, delegatorIds, size, lastEvaluatedKey, keysOnly);
 
         Key.Builder keyBuilder = Key.builder().partitionValue(delegateId);
         if (status != null) {
@@ -179,13 +245,17 @@ public class MandateDao extends BaseDao {
         QueryConditional queryConditional = QueryConditional.keyEqualTo(key);
         log.debug("query conditional PK: {}, SK: {}", key.partitionKeyValue(), key.sortKeyValue());
 
-        QueryEnhancedRequest queryEnhancedRequest = QueryEnhancedRequest.builder()
+        QueryEnhancedRequest.Builder queryEnhancedRequestBuilder = QueryEnhancedRequest.builder()
                 .queryConditional(queryConditional)
                 .filterExpression(filterExpressionSearchByDelegate(groups, delegatorIds))
                 .scanIndexForward(true)
                 .limit(size)
-                .exclusiveStartKey(lastEvaluatedKeySearchByDelegate(lastEvaluatedKey))
-                .build();
+                .exclusiveStartKey(lastEvaluatedKeySearchByDelegate(lastEvaluatedKey));
+        if (keysOnly) {
+            queryEnhancedRequestBuilder.attributesToProject(MandateEntity.COL_PK, MandateEntity.COL_SK,
+                    MandateEntity.COL_I_STATE, MandateEntity.COL_S_DELEGATE);
+        }
+        QueryEnhancedRequest queryEnhancedRequest = queryEnhancedRequestBuilder.build();
 
         return Mono.from(mandateTable.index(GSI_INDEX_DELEGATE_STATE).query(queryEnhancedRequest));
     }
@@ -285,14 +355,42 @@ public class MandateDao extends BaseDao {
      * @return lista delle deleghe
      */
     public Flux<MandateEntity> listMandatesByDelegator(String delegatorInternaluserid, Integer status, String mandateId, DelegateType delegateType) {
+        log.info("listMandatesByDelegator uid={} status={}", delegatorInternaluserid, status);
+        QueryEnhancedRequest qeRequest = listMandatesByDelegatorRequest(delegatorInternaluserid, status, mandateId, delegateType).build();
+        return Flux.from(mandateTable.query(qeRequest).items());
+    }
+
+    /**
+     * Versione paginata di {@link #listMandatesByDelegator(String, Integer, String, DelegateType)}:
+     * vengono lette al più size deleghe a partire da lastEvaluatedKey
+     *
+     * @param delegatorInternaluserid internaluserid del delegante
+     * @param status                  stato da usare nel filtro (OPZIONALE)
+     * @param size                    dimensione della pagina
+     * @param lastEvaluatedKey        chiave da cui riprendere la lettura (OPZIONALE)
+     * @return pagina di deleghe, con la chiave della pagina successiva se ci sono altre deleghe
+     */
+    public Mono<PageResultDto<MandateEntity, PnLastEvaluatedKey>> listMandatesByDelegatorPaged(String delegatorInternaluserid,
+                                                                                              Integer status,
+                                                                                              String mandateId,
+                                                                                              DelegateType delegateType,
+                                                                                              int size,
+                                                                                              @Nullable PnLastEvaluatedKey lastEvaluatedKey) {
+        log.info("listMandatesByDelegatorPaged uid={} status={} size={} lek={}", delegatorInternaluserid, status, size, lastEvaluatedKey);
+        return readPage(request -> mandateTable.query(request),
+                listMandatesByDelegatorRequest(delegatorInternaluserid, status, mandateId, delegateType), size, lastEvaluatedKey,
+                entity -> Map.of(
+                        MandateEntity.COL_PK, AttributeValue.builder().s(entity.getDelegator()).build(),
+                        MandateEntity.COL_SK, AttributeValue.builder().s(entity.getSk()).build()));
+    }
+
+    private QueryEnhancedRequest.Builder listMandatesByDelegatorRequest(String delegatorInternaluserid, Integer status, String mandateId, DelegateType delegateType) {
         // devo sempre filtrare. Se lo stato è passato, vuol dire che voglio filtrare solo per quello stato.
         // altrimenti, è IMPLICITO il fatto di filtrare per le deleghe pendenti e attive (ovvero < 20)
         // NB: listMandatesByDelegate e listMandatesByDelegator si assomigliano, ma a livello di query fanno
         // affidamento ad indici diversi e query diverse
         // listMandatesByDelegator si affida all'ordinamento principale, che filtra per utente e delega. Lo stato va previsto a parte nell'expressionfilter
         // Il delegateType è il tipo del delegato, utilizzato per trovare le deleghe dato il delegante restringendo la ricerca per tipo dei delegati.
-        log.info("listMandatesByDelegator uid={} status={}", delegatorInternaluserid, status);
-
         int iState = StatusEnumMapper.intValfromStatus(StatusEnum.ACTIVE);
         String filterexp = getValidToFilterExpression() + " AND  " + getStatusFilterExpression(true);
         if (status != null) {
@@ -328,14 +426,47 @@ public class MandateDao extends BaseDao {
                 .build();
 
 
-        QueryEnhancedRequest qeRequest = QueryEnhancedRequest
+        return QueryEnhancedRequest
                 .builder()
                 .queryConditional(QueryConditional.sortBeginsWith(getKeyBuild(delegatorInternaluserid, MandateEntity.MANDATE_PREFIX)))
                 .filterExpression(exp)
-                .scanIndexForward(true)
-                .build();
+                .scanIndexForward(true);
+    }
 
-        return Flux.from(mandateTable.query(qeRequest).items());
+    /**
+     * Legge una pagina di al più size deleghe: viene letta una delega in più per sapere se esiste una pagina successiva,
+     * la cui chiave è calcolata dall'ultima delega restituita (così la lettura può fermarsi a metà di una pagina DynamoDB).
+     * Le pagine DynamoDB vengono richieste una alla volta, quindi in memoria restano al più size + 1 deleghe
+     */
+    private Mono<PageResultDto<MandateEntity, PnLastEvaluatedKey>> readPage(Function<QueryEnhancedRequest, SdkPublisher<Page<MandateEntity>>> query,
+                                                                            QueryEnhancedRequest.Builder requestBuilder,
+                                                                            int size,
+                                                                            @Nullable PnLastEvaluatedKey lastEvaluatedKey,
+                                                                            Function<MandateEntity, Map<String, AttributeValue>> keyOf) {
+        QueryEnhancedRequest request = requestBuilder
+                .limit(size + 1)
+                .exclusiveStartKey(lastEvaluatedKeySearchByDelegate(lastEvaluatedKey))
+                .build();
+        return Flux.from(query.apply(request))
+                .flatMapIterable(Page::items, 1)
+                .take(size + 1L)
+                .collectList()
+                .map(items -> {
+                    boolean more = items.size() > size;
+                    List<MandateEntity> page = more ? items.subList(0, size) : items;
+                    List<PnLastEvaluatedKey> nextPagesKey = new ArrayList<>();
+                    if (more) {
+                        PnLastEvaluatedKey nextPageKey = new PnLastEvaluatedKey();
+                        nextPageKey.setInternalLastEvaluatedKey(keyOf.apply(page.get(size - 1)));
+                        nextPagesKey.add(nextPageKey);
+                    }
+                    log.debug("readPage size: {}, read: {}, more: {}", size, items.size(), more);
+                    return PageResultDto.<MandateEntity, PnLastEvaluatedKey>builder()
+                            .page(page)
+                            .more(more)
+                            .nextPagesKey(nextPagesKey)
+                            .build();
+                });
     }
 
     /**
@@ -381,8 +512,9 @@ public class MandateDao extends BaseDao {
                 .switchIfEmpty(Mono.error(new PnMandateNotFoundException()))
                 .flatMap(mandate -> {
                     checkMandateSegregation(mandate, TypeSegregatorFilter.STANDARD);
+                    boolean wasPending = isPending(mandate);
                     editMandateState(mandate, verificationCode, cxTypeAuthFleet, groups);
-                    return save(mandate);
+                    return save(mandate, wasPending && !isPending(mandate) ? -1 : 0);
                 })
                 .doOnSuccess(mandate -> {
                     String messageAction = String.format(
@@ -466,22 +598,27 @@ public class MandateDao extends BaseDao {
     }
 
     public Mono<MandateEntity> save(MandateEntity mandate) {
+        return save(mandate, 0);
+    }
+
+    private Mono<MandateEntity> save(MandateEntity mandate, int pendingDelta) {
         // Se la delega prevede una scadenza impostata dall'utente, creo un record di supporto con TTL
         // e quando questo verrà cancellato, dynamoDB invocherà la nostra logica che andrà a spostare il record principale nello storico.
         // Questo perchè se mettevo il TTL nel record principale e per qualche anomalia non veniva gestito l'evento di cancellazione
         // avrei perso definitivamente il record della delega (scaduta, ma che va mantenuta per 10 anni nello storico)
-        TransactWriteItemsEnhancedRequest.Builder transactionBuilder = TransactWriteItemsEnhancedRequest.builder();
-        if (mandate.getValidto() != null) {
-            MandateSupportEntity support = new MandateSupportEntity(mandate);
-            transactionBuilder.addUpdateItem(mandateSupportTable, TransactUpdateItemEnhancedRequest.builder(MandateSupportEntity.class).item(support).build());
-            log.info("mandate has validto setted, creating also support entity for ttl expiration");
-        }
+        Supplier<TransactWriteItemsEnhancedRequest.Builder> transactionSupplier = () -> {
+            TransactWriteItemsEnhancedRequest.Builder transactionBuilder = TransactWriteItemsEnhancedRequest.builder();
+            if (mandate.getValidto() != null) {
+                MandateSupportEntity support = new MandateSupportEntity(mandate);
+                transactionBuilder.addUpdateItem(mandateSupportTable, TransactUpdateItemEnhancedRequest.builder(MandateSupportEntity.class).item(support).build());
+                log.info("mandate has validto setted, creating also support entity for ttl expiration");
+            }
 
-        // aggiungo l'update delle deleghe e lancio la transazione
-        TransactWriteItemsEnhancedRequest transaction = transactionBuilder
-                .addUpdateItem(mandateTable, TransactUpdateItemEnhancedRequest.builder(MandateEntity.class).item(mandate).ignoreNulls(false).build())
-                .build();
-        return Mono.fromFuture(dynamoDbEnhancedAsyncClient.transactWriteItems(transaction)).thenReturn(mandate);
+            // aggiungo l'update delle deleghe
+            return transactionBuilder
+                    .addUpdateItem(mandateTable, TransactUpdateItemEnhancedRequest.builder(MandateEntity.class).item(mandate).ignoreNulls(false).build());
+        };
+        return transactWriteWithPendingCounter(transactionSupplier, mandate, pendingDelta).thenReturn(mandate);
     }
     private Duration chooseExpiredConfig(WorkFlowType workFlowType)
     {
@@ -493,8 +630,6 @@ public class MandateDao extends BaseDao {
 
     private CompletableFuture<Void> savePendingWithExpireSupport(MandateEntity mandate) {
         // Prevedo un record di supporto con TTL con impostata la scadenza relativa all'accettazione della delega
-        TransactWriteItemsEnhancedRequest.Builder transactionBuilder = TransactWriteItemsEnhancedRequest.builder();
-
         if (mandate.getCreated() == null) {
             mandate.setCreated(Instant.now());
         }
@@ -507,15 +642,13 @@ public class MandateDao extends BaseDao {
         } else {
             support = new MandateSupportEntity(mandate, mandate.getValidto() != null ?mandate.getValidto() :  pendingExpiredInstant);
         }
-        var request = TransactPutItemEnhancedRequest.builder(MandateSupportEntity.class).item(support).build();
-        transactionBuilder.addPutItem(mandateSupportTable, request);
         log.info("creating also support entity for pending ttl expiration pendingExpiredInstant={}", pendingExpiredInstant);
 
         // aggiungo l'update delle deleghe e lancio la transazione
-        TransactWriteItemsEnhancedRequest transaction = transactionBuilder
-                .addUpdateItem(mandateTable, TransactUpdateItemEnhancedRequest.builder(MandateEntity.class).item(mandate).ignoreNulls(false).build())
-                .build();
-        return dynamoDbEnhancedAsyncClient.transactWriteItems(transaction);
+        Supplier<TransactWriteItemsEnhancedRequest.Builder> transactionSupplier = () -> TransactWriteItemsEnhancedRequest.builder()
+                .addPutItem(mandateSupportTable, TransactPutItemEnhancedRequest.builder(MandateSupportEntity.class).item(support).build())
+                .addUpdateItem(mandateTable, TransactUpdateItemEnhancedRequest.builder(MandateEntity.class).item(mandate).ignoreNulls(false).build());
+        return transactWriteWithPendingCounter(transactionSupplier, mandate, isPending(mandate) ? 1 : 0).toFuture();
     }
 
     /**
@@ -550,10 +683,11 @@ public class MandateDao extends BaseDao {
                     if (mandate.getState() == StatusEnumMapper.intValfromStatus(StatusEnum.PENDING)
                             || mandate.getState() == StatusEnumMapper.intValfromStatus(StatusEnum.ACTIVE)) {
                         // aggiorno lo stato, solo se era in pending o active, ignoro eventuali altri stati (che NON dovrebbero essere presenti)
+                        boolean wasPending = isPending(mandate);
                         mandate.setRejected(Instant.now());
                         mandate.setState(StatusEnumMapper.intValfromStatus(StatusEnum.REJECTED));
 
-                        return Mono.fromFuture(saveHistoryAndDeleteFromMain(mandate))
+                        return Mono.fromFuture(saveHistoryAndDeleteFromMain(mandate, wasPending))
                                 .map(m -> {
                                     logEvent.generateSuccess("mandate rejected mandate={}", m).log();
                                     return m;
@@ -609,9 +743,10 @@ public class MandateDao extends BaseDao {
                             if (mandate.getState() == StatusEnumMapper.intValfromStatus(StatusEnum.PENDING)
                                     || mandate.getState() == StatusEnumMapper.intValfromStatus(StatusEnum.ACTIVE)) {
                                 // aggiorno lo stato, solo se era in pending o active, ignoro eventuali altri stati (che NON dovrebbero essere presenti)
+                                boolean wasPending = isPending(mandate);
                                 mandate.setRevoked(Instant.now());
                                 mandate.setState(StatusEnumMapper.intValfromStatus(StatusEnum.REVOKED));
-                                return saveHistoryAndDeleteFromMain(mandate);
+                                return saveHistoryAndDeleteFromMain(mandate, wasPending);
                             }
                             return CompletableFuture.completedFuture(mandate);
                         })
@@ -641,14 +776,7 @@ public class MandateDao extends BaseDao {
      * @return void
      */
     public Mono<MandateEntity> expireMandate(String delegatorInternaluserid, String delegatorUid, String cxType, String mandateId) {
-        String logMessage = String.format("expireMandate for delegate internalId=%s uid=%s cxType=%s mandateid=%s", delegatorInternaluserid, delegatorUid, cxType, mandateId);
-        PnAuditLogEvent logEvent = new PnAuditLogBuilder()
-                .before(PnAuditLogEventType.AUD_DL_EXPIRE, logMessage)
-                .mdcEntry(MDC_CX_ID_KEY, delegatorInternaluserid)
-                .mdcEntry(MDC_PN_UID_KEY, delegatorUid)
-                .mdcEntry(MDC_PN_CX_TYPE_KEY, cxType)
-                .mdcEntry(MDC_PN_MANDATEID_KEY, mandateId)
-                .build();
+        PnAuditLogEvent logEvent = buildExpireAuditLogEvent(delegatorInternaluserid, delegatorUid, cxType, mandateId);
 
         logEvent.log();
         return Mono.fromFuture(retrieveMandateForDelegator(delegatorInternaluserid, mandateId)
@@ -657,21 +785,7 @@ public class MandateDao extends BaseDao {
                                 throw new PnMandateNotFoundException();
                             }
                             log.info("expireMandate mandate for delegate retrieved mandateobj={}", mandate);
-                            boolean skipHistory = false;
-                            // se lo stato era active, lo porto ad expired
-                            // ora invece potrà succedere che arrivi l'expired di deleghe in pending
-                            if (mandate.getState() == StatusEnumMapper.intValfromStatus(StatusEnum.ACTIVE)) {
-                                Instant validTo = mandate.getValidto() != null ? mandate.getValidto() :mandate.getCreated().plus(this.pendingExpire);
-                                if (Instant.now().isAfter(validTo)){
-                                    mandate.setState(StatusEnumMapper.intValfromStatus(StatusEnum.EXPIRED));
-                                } else {
-                                    //Se nel frattempo la delega è stata accettata ignoro l'expire date del pending
-                                    log.warn("delegate is accepted in meanwhile {}", mandate);
-                                    skipHistory = true;
-                                }
-                            }
-
-                            return skipHistory ? CompletableFuture.completedFuture(mandate) : saveHistoryAndDeleteFromMain(mandate);
+                            return prepareExpire(mandate) ? saveHistoryAndDeleteFromMain(mandate, isPending(mandate)) : CompletableFuture.completedFuture(mandate);
                         }))
                 .onErrorResume(throwable -> {
                     logEvent.generateFailure(throwable.getMessage()).log();
@@ -683,6 +797,62 @@ public class MandateDao extends BaseDao {
                 });
     }
 
+    /**
+     * Versione massiva di {@link #expireMandate(String, String, String, String)}.
+     * Il metodo si occupa di:
+     * - leggere le deleghe con BatchGetItem
+     * - applicare ad ogni delega le stesse regole della scadenza singola
+     * - spostare nello storico le deleghe da scadere raggruppandole in transazioni, ognuna con al più
+     *   {@value #MAX_DYNAMODB_TRANSACTION_SIZE} item (put nello storico, delete dalla tabella principale e del record di supporto,
+     *   più l'eventuale aggiornamento del contatore delle pending per delegato)
+     * Se una transazione fallisce, le deleghe che ne facevano parte vengono scadute singolarmente,
+     * in modo che l'errore di una delega non blocchi le altre.
+     *
+     * @param requests deleghe da scadere
+     * @return esito per ogni delega richiesta (le richieste duplicate vengono elaborate una volta sola)
+     */
+    public Flux<ExpireMandateResultDto> expireMandates(List<ExpireMandateRequestDto> requests) {
+        Map<String, ExpireMandateRequestDto> requestsByMandateId = new LinkedHashMap<>();
+        requests.forEach(request -> requestsByMandateId.putIfAbsent(request.getMandateId(), request));
+        if (requestsByMandateId.isEmpty()) {
+            return Flux.empty();
+        }
+
+        List<MandateEntity> keys = requestsByMandateId.values().stream()
+                .map(request -> new MandateEntity(request.getDelegatorInternaluserid(), request.getMandateId()))
+                .toList();
+
+        return batchGetMandate(keys)
+                .collectMap(MandateEntity::getMandateId)
+                .flatMapMany(mandatesById -> {
+                    List<ExpireMandateResultDto> results = new ArrayList<>();
+                    List<MandateEntity> mandatesToExpire = new ArrayList<>();
+                    Map<String, PnAuditLogEvent> logEvents = new HashMap<>();
+                    requestsByMandateId.values().forEach(request -> {
+                        PnAuditLogEvent logEvent = buildExpireAuditLogEvent(request.getDelegatorInternaluserid(), request.getDelegatorUid(),
+                                request.getCxType(), request.getMandateId());
+                        logEvent.log();
+                        MandateEntity mandate = mandatesById.get(request.getMandateId());
+                        if (mandate == null) {
+                            PnMandateNotFoundException notFound = new PnMandateNotFoundException();
+                            logEvent.generateFailure(notFound.getMessage()).log();
+                            results.add(expireResult(request.getMandateId(), ExpireMandateResultDto.Outcome.NOT_FOUND, null, notFound));
+                        } else if (!prepareExpire(mandate)) {
+                            logEvent.generateSuccess("mandate expired mandate={}", mandate).log();
+                            results.add(expireResult(mandate.getMandateId(), ExpireMandateResultDto.Outcome.SKIPPED, mandate, null));
+                        } else {
+                            logEvents.put(mandate.getMandateId(), logEvent);
+                            mandatesToExpire.add(mandate);
+                        }
+                    });
+
+                    log.info("expireMandates requested={} toExpire={}", requestsByMandateId.size(), mandatesToExpire.size());
+                    return Flux.fromIterable(results)
+                            .concatWith(Flux.fromIterable(packExpireTransactions(mandatesToExpire))
+                                    .concatMap(transactionMandates -> expireMandatesInTransaction(transactionMandates, logEvents)));
+                });
+    }
+
     /**
      * Il metodo si occupa di:
      * - controllare che non siano presenti deleghe per la coppia delegante-delegato
@@ -778,32 +948,65 @@ public class MandateDao extends BaseDao {
      */
     public Mono<MandateEntity> retrieveMandateForDelegate(String delegateInternaluserid, String mandateId) {
         // qui l'internaluserid è quello del DELEGATO, e quindi NON posso usare direttamente l'informazione per accedere al record.
-        // devo passare quindi per l'indice sul delegato, recuperarmi la riga, aggiornare il contenuto e salvarla.
-        // NB: si noti che ci può essere un problema legato alla concorrenza, ma dato che i dati sulle deleghe non cambiano così frequentemente, 
+        // passo quindi per l'indice sparso sul mandateId (KEYS_ONLY, popolato solo dai record di delega) che mi restituisce
+        // la chiave del record principale, e poi leggo il record con una GetItem: il costo non dipende dal numero di deleghe del delegato.
+        // NB: si noti che ci può essere un problema legato alla concorrenza, ma dato che i dati sulle deleghe non cambiano così frequentemente,
         // si accetta la possibilità dell'improbabilità che arrivino 2 scritture contemporanee nel piccolo lasso di tempo tra query e update...
 
-
-        // uso l'expression filter per filtrare per mandateid, dato che su questo indice non fa parte della key.
-        // si accetta il costo di leggere tutte le righe per un delegato per poi tornarne una
         // non viene filtrato lo stato, dato che questo metodo può essere usato per motivi generici
-        MandateEntity mandate = new MandateEntity(delegateInternaluserid, mandateId);
-        Map<String, AttributeValue> expressionValues = new HashMap<>();
-        expressionValues.put(":mandateid", AttributeValue.builder().s(mandate.getSk()).build());
-
-        Expression exp = Expression.builder()
-                .expression(MandateEntity.COL_SK + " = :mandateid")
-                .expressionValues(expressionValues)
-                .build();
-
         QueryEnhancedRequest qeRequest = QueryEnhancedRequest
                 .builder()
-                .queryConditional(QueryConditional.keyEqualTo(getKeyBuild(delegateInternaluserid)))
-                .filterExpression(exp)
-                .scanIndexForward(true)
+                .queryConditional(QueryConditional.keyEqualTo(getKeyBuild(mandateId)))
+                .limit(1)
                 .build();
 
-        return Flux.from(mandateTable.index(GSI_INDEX_DELEGATE_STATE).query(qeRequest)
-                .flatMapIterable(Page::items).limit(1)).take(1).next();
+        return Flux.from(mandateTable.index(GSI_INDEX_MANDATEID).query(qeRequest)
+                        .flatMapIterable(Page::items))
+                .take(1).next()
+                .flatMap(mandateKey -> Mono.fromFuture(retrieveMandateForDelegator(mandateKey.getDelegator(), mandateId)))
+                .filter(mandate -> delegateInternaluserid.equals(mandate.getDelegate()));
+    }
+
+    /**
+     * Valorizza l'attributo s_mandateid sui record di delega che ne sono sprovvisti, in modo che
+     * vengano indicizzati dall'indice {@value BaseDao#GSI_INDEX_MANDATEID}.
+     * L'indice viene popolato automaticamente da DynamoDB per i record che hanno già l'attributo,
+     * questo metodo serve solo a recuperare eventuali record scritti senza di esso.
+     *
+     * @return numero di record aggiornati
+     */
+    public Mono<Long> backfillMandateIdIndex() {
+        Map<String, AttributeValue> expressionValues = new HashMap<>();
+        expressionValues.put(":mandateprefix", AttributeValue.builder().s(MandateEntity.MANDATE_PREFIX).build());
+
+        ScanRequest scanRequest = ScanRequest.builder()
+                .tableName(table)
+                .projectionExpression(MandateEntity.COL_PK + ", " + MandateEntity.COL_SK)
+                .filterExpression("begins_with(" + MandateEntity.COL_SK + ", :mandateprefix) AND attribute_not_exists(" + MandateEntity.COL_S_MANDATEID + ")")
+                .expressionAttributeValues(expressionValues)
+                .build();
+
+        return Flux.from(dynamoDbAsyncClient.scanPaginator(scanRequest).items())
+                .concatMap(item -> {
+                    String sk = item.get(MandateEntity.COL_SK).s();
+                    Map<String, AttributeValue> updateValues = new HashMap<>();
+                    updateValues.put(":mandateid", AttributeValue.builder().s(sk.replace(MandateEntity.MANDATE_PREFIX, "")).build());
+                    UpdateItemRequest updateItemRequest = UpdateItemRequest.builder()
+                            .tableName(table)
+                            .key(Map.of(MandateEntity.COL_PK, item.get(MandateEntity.COL_PK), MandateEntity.COL_SK, item.get(MandateEntity.COL_SK)))
+                            .updateExpression("SET " + MandateEntity.COL_S_MANDATEID + " = :mandateid")
+                            .conditionExpression("attribute_exists(" + MandateEntity.COL_PK + ")")
+                            .expressionAttributeValues(updateValues)
+                            .build();
+                    return Mono.fromFuture(dynamoDbAsyncClient.updateItem(updateItemRequest))
+                            .thenReturn(1L)
+                            .onErrorResume(ConditionalCheckFailedException.class, e -> {
+                                // la delega è stata spostata nello storico nel frattempo
+                                log.debug("mandate not found during mandateid backfill sk={}", sk);
+                                return Mono.just(0L);
+                            });
+                })
+                .reduce(0L, Long::sum);
     }
 
     /**
@@ -844,24 +1047,211 @@ public class MandateDao extends BaseDao {
     }
 
 
-    private CompletableFuture<MandateEntity> saveHistoryAndDeleteFromMain(MandateEntity mandate) {
+    private CompletableFuture<MandateEntity> saveHistoryAndDeleteFromMain(MandateEntity mandate, boolean wasPending) {
         // aggiorno il TTL
-        mandate.setTtl(LocalDateTime.now().plusYears(10).atZone(ZoneId.systemDefault()).toEpochSecond());
+        mandate.setTtl(getHistoryTtl());
 
-        MandateSupportEntity mandateSupport = new MandateSupportEntity(mandate);
+        Supplier<TransactWriteItemsEnhancedRequest.Builder> transactionSupplier =
+                () -> addHistoryAndDeleteFromMain(TransactWriteItemsEnhancedRequest.builder(), mandate);
+
+        return transactWriteWithPendingCounter(transactionSupplier, mandate, wasPending ? -1 : 0)
+                .then(Mono.fromSupplier(() -> {
+                    if (log.isInfoEnabled())
+                        log.info("mandate saved in history and deleted from main table mandateobj={}", mandate);
 
-        TransactWriteItemsEnhancedRequest transaction = TransactWriteItemsEnhancedRequest.builder()
+                    return mandate;
+                }))
+                .toFuture();
+    }
+
+    private TransactWriteItemsEnhancedRequest.Builder addHistoryAndDeleteFromMain(TransactWriteItemsEnhancedRequest.Builder transactionBuilder,
+                                                                                  MandateEntity mandate) {
+        MandateSupportEntity mandateSupport = new MandateSupportEntity(mandate);
+        return transactionBuilder
                 .addPutItem(mandateHistoryTable, TransactPutItemEnhancedRequest.builder(MandateEntity.class).item(mandate).build())
                 .addDeleteItem(mandateTable, TransactDeleteItemEnhancedRequest.builder().key(getKeyBuild(mandate.getDelegator(), mandate.getSk())).build())
-                .addDeleteItem(mandateSupportTable, TransactDeleteItemEnhancedRequest.builder().key(getKeyBuild(mandateSupport.getDelegator(), mandateSupport.getSk())).build())
+                .addDeleteItem(mandateSupportTable, TransactDeleteItemEnhancedRequest.builder().key(getKeyBuild(mandateSupport.getDelegator(), mandateSupport.getSk())).build());
+    }
+
+    private long getHistoryTtl() {
+        return LocalDateTime.now().plusYears(10).atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    private PnAuditLogEvent buildExpireAuditLogEvent(String delegatorInternaluserid, String delegatorUid, String cxType, String mandateId) {
+        String logMessage = String.format("expireMandate for delegate internalId=%s uid=%s cxType=%s mandateid=%s", delegatorInternaluserid, delegatorUid, cxType, mandateId);
+        return new PnAuditLogBuilder()
+                .before(PnAuditLogEventType.AUD_DL_EXPIRE, logMessage)
+                .mdcEntry(MDC_CX_ID_KEY, delegatorInternaluserid)
+                .mdcEntry(MDC_PN_UID_KEY, delegatorUid)
+                .mdcEntry(MDC_PN_CX_TYPE_KEY, cxType)
+                .mdcEntry(MDC_PN_MANDATEID_KEY, mandateId)
                 .build();
+    }
 
-        return dynamoDbEnhancedAsyncClient.transactWriteItems(transaction).thenApply(x -> {
-            if (log.isInfoEnabled())
-                log.info("mandate saved in history and deleted from main table mandateobj={}", mandate);
+    /**
+     * Applica alla delega le regole di scadenza
+     *
+     * @param mandate delega letta da db
+     * @return true se la delega va spostata nello storico, false se va lasciata invariata
+     */
+    private boolean prepareExpire(MandateEntity mandate) {
+        // se lo stato era active, lo porto ad expired
+        // ora invece potrà succedere che arrivi l'expired di deleghe in pending
+        if (mandate.getState() == StatusEnumMapper.intValfromStatus(StatusEnum.ACTIVE)) {
+            Instant validTo = mandate.getValidto() != null ? mandate.getValidto() :mandate.getCreated().plus(this.pendingExpire);
+            if (Instant.now().isAfter(validTo)){
+                mandate.setState(StatusEnumMapper.intValfromStatus(StatusEnum.EXPIRED));
+            } else {
+                //Se nel frattempo la delega è stata accettata ignoro l'expire date del pending
+                log.warn("delegate is accepted in meanwhile {}", mandate);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Raggruppa le deleghe da scadere in modo che ogni transazione non superi il limite di item di DynamoDB,
+     * tenendo conto degli eventuali aggiornamenti dei contatori delle pending (uno per delegato)
+     */
+    private List<List<MandateEntity>> packExpireTransactions(List<MandateEntity> mandates) {
+        List<List<MandateEntity>> transactions = new ArrayList<>();
+        List<MandateEntity> current = new ArrayList<>();
+        Set<String> counterDelegates = new HashSet<>();
+        for (MandateEntity mandate : mandates) {
+            Map<String, Integer> pendingDelta = new HashMap<>();
+            addPendingDelta(pendingDelta, mandate, isPending(mandate) ? -1 : 0);
+            int counterItems = pendingDelta.isEmpty() || counterDelegates.contains(mandate.getDelegate()) ? 0 : 1;
+            int currentItems = current.size() * EXPIRE_ITEMS_PER_MANDATE + counterDelegates.size();
+            if (!current.isEmpty() && currentItems + EXPIRE_ITEMS_PER_MANDATE + counterItems > MAX_DYNAMODB_TRANSACTION_SIZE) {
+                transactions.add(current);
+                current = new ArrayList<>();
+                counterDelegates = new HashSet<>();
+            }
+            current.add(mandate);
+            counterDelegates.addAll(pendingDelta.keySet());
+        }
+        if (!current.isEmpty()) {
+            transactions.add(current);
+        }
+        return transactions;
+    }
 
-            return mandate;
+    private Flux<ExpireMandateResultDto> expireMandatesInTransaction(List<MandateEntity> mandates, Map<String, PnAuditLogEvent> logEvents) {
+        Map<String, Integer> pendingDeltas = new HashMap<>();
+        mandates.forEach(mandate -> {
+            mandate.setTtl(getHistoryTtl());
+            addPendingDelta(pendingDeltas, mandate, isPending(mandate) ? -1 : 0);
         });
+
+        Supplier<TransactWriteItemsEnhancedRequest.Builder> transactionSupplier = () -> {
+            TransactWriteItemsEnhancedRequest.Builder transactionBuilder = TransactWriteItemsEnhancedRequest.builder();
+            mandates.forEach(mandate -> addHistoryAndDeleteFromMain(transactionBuilder, mandate));
+            return transactionBuilder;
+        };
+
+        return transactWriteWithPendingCounters(transactionSupplier, pendingDeltas)
+                .doFinally(signal -> mandates.forEach(mandate -> delegateMandatesCache.invalidate(mandate.getDelegate())))
+                .thenMany(Flux.fromIterable(mandates)
+                        .map(mandate -> {
+                            logEvents.get(mandate.getMandateId()).generateSuccess("mandate expired mandate={}", mandate).log();
+                            return expireResult(mandate.getMandateId(), ExpireMandateResultDto.Outcome.EXPIRED, mandate, null);
+                        }))
+                .onErrorResume(ex -> {
+                    log.warn("expireMandates transaction of {} mandates failed, expiring them one by one", mandates.size(), ex);
+                    return Flux.fromIterable(mandates)
+                            .concatMap(mandate -> Mono.fromFuture(() -> saveHistoryAndDeleteFromMain(mandate, isPending(mandate)))
+                                    .map(saved -> {
+                                        logEvents.get(mandate.getMandateId()).generateSuccess("mandate expired mandate={}", saved).log();
+                                        return expireResult(mandate.getMandateId(), ExpireMandateResultDto.Outcome.EXPIRED, saved, null);
+                                    })
+                                    .onErrorResume(singleEx -> {
+                                        logEvents.get(mandate.getMandateId()).generateFailure(singleEx.getMessage()).log();
+                                        return Mono.just(expireResult(mandate.getMandateId(), ExpireMandateResultDto.Outcome.FAILED, mandate, singleEx));
+                                    }));
+                });
+    }
+
+    private ExpireMandateResultDto expireResult(String mandateId, ExpireMandateResultDto.Outcome outcome, MandateEntity mandate, Throwable error) {
+        return ExpireMandateResultDto.builder()
+                .mandateId(mandateId)
+                .outcome(outcome)
+                .mandate(mandate)
+                .error(error)
+                .build();
+    }
+
+    private boolean isPending(MandateEntity mandate) {
+        return mandate.getState() == StatusEnumMapper.intValfromStatus(StatusEnum.PENDING);
+    }
+
+    /**
+     * Esegue la transazione aggiungendo, se il contatore materializzato del delegato è abilitato,
+     * l'aggiornamento atomico (ADD) del contatore delle deleghe in pending: scritture concorrenti sullo stesso delegato
+     * non vanno in conflitto sul contatore e non richiedono di rileggerlo.
+     * Se il contatore non esiste viene creato con la sola variazione e non risulta inizializzato:
+     * sarà il job di riconciliazione ad allinearlo al conteggio reale.
+     * Al termine invalida la cache delle deleghe del delegato.
+     *
+     * @param transactionSupplier fornisce la transazione da eseguire
+     * @param mandate             delega oggetto della scrittura
+     * @param pendingDelta        variazione del numero di deleghe in pending del delegato
+     * @return mono vuoto al completamento della transazione
+     */
+    private Mono<Void> transactWriteWithPendingCounter(Supplier<TransactWriteItemsEnhancedRequest.Builder> transactionSupplier,
+                                                       MandateEntity mandate,
+                                                       int pendingDelta) {
+        Map<String, Integer> pendingDeltas = new HashMap<>();
+        addPendingDelta(pendingDeltas, mandate, pendingDelta);
+        return transactWriteWithPendingCounters(transactionSupplier, pendingDeltas)
+                .doFinally(signal -> delegateMandatesCache.invalidate(mandate.getDelegate()));
+    }
+
+    private void addPendingDelta(Map<String, Integer> pendingDeltas, MandateEntity mandate, int pendingDelta) {
+        if (pendingCounterEnabled && pendingDelta != 0 && TypeSegregatorFilter.STANDARD.isIncluded(mandate.getWorkflowType())) {
+            pendingDeltas.merge(mandate.getDelegate(), pendingDelta, Integer::sum);
+        }
+    }
+
+    /**
+     * Come {@link #transactWriteWithPendingCounter(Supplier, MandateEntity, int)}, ma per più delegati:
+     * viene aggiunto alla transazione un aggiornamento atomico per ogni contatore.
+     * Il client enhanced non supporta le update expression, quindi la transazione viene eseguita con il client low-level
+     *
+     * @param transactionSupplier fornisce la transazione da eseguire
+     * @param pendingDeltas       variazione del numero di deleghe in pending per delegato
+     * @return mono vuoto al completamento della transazione
+     */
+    private Mono<Void> transactWriteWithPendingCounters(Supplier<TransactWriteItemsEnhancedRequest.Builder> transactionSupplier,
+                                                        Map<String, Integer> pendingDeltas) {
+        if (pendingDeltas.isEmpty()) {
+            return Mono.fromFuture(() -> dynamoDbEnhancedAsyncClient.transactWriteItems(transactionSupplier.get().build()));
+        }
+
+        return Mono.defer(() -> {
+            List<TransactWriteItem> transactItems = new ArrayList<>(transactionSupplier.get().build().transactWriteItems());
+            pendingDeltas.forEach((delegate, pendingDelta) -> {
+                if (pendingDelta != 0) {
+                    transactItems.add(buildPendingCounterUpdate(delegate, pendingDelta));
+                }
+            });
+            TransactWriteItemsRequest transactWriteItemsRequest = TransactWriteItemsRequest.builder()
+                    .transactItems(transactItems)
+                    .build();
+            return Mono.fromFuture(dynamoDbAsyncClient.transactWriteItems(transactWriteItemsRequest));
+        }).then();
+    }
+
+    private TransactWriteItem buildPendingCounterUpdate(String delegate, int pendingDelta) {
+        Update update = Update.builder()
+                .tableName(table)
+                .key(Map.of(
+                        DelegateEntity.COL_PK, AttributeValue.builder().s(delegate).build(),
+                        DelegateEntity.COL_SK, AttributeValue.builder().s(DelegateEntity.PENDING_COUNTER_SK).build()))
+                .updateExpression("ADD " + DelegateEntity.COL_I_PENDINGCOUNT + " :delta")
+                .expressionAttributeValues(Map.of(":delta", AttributeValue.builder().n(String.valueOf(pendingDelta)).build()))
+                .build();
+        return TransactWriteItem.builder().update(update).build();
     }
 
     private String getValidToFilterExpression() {
@@ -0,0 +1,30 @@
+package it.pagopa.pn.mandate.middleware.db;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Job di migrazione one-shot per l'indice {@value BaseDao#GSI_INDEX_MANDATEID}.
+ * Viene eseguito all'avvio solo se abilitato tramite la property pn.mandate.mandate-id-index-backfill-enabled
+ * e valorizza l'attributo s_mandateid sui record di delega che ne sono sprovvisti.
+ */
+@Component
+@lombok.CustomLog
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "pn.mandate.mandate-id-index-backfill-enabled", havingValue = "true")
+public class MandateIdIndexBackfill {
+
+    private final MandateDao mandateDao;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void runBackfill() {
+        log.info("starting mandateid index backfill");
+        mandateDao.backfillMandateIdIndex()
+                .subscribe(
+                        total -> log.info("mandateid index backfill terminated, updated mandates={}", total),
+                        throwable -> log.error("mandateid index backfill failed", throwable));
+    }
+}
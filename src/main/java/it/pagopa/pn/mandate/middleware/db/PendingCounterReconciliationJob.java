@@ -0,0 +1,48 @@
+package it.pagopa.pn.mandate.middleware.db;
+
+import it.pagopa.pn.mandate.config.PnMandateConfig;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Job di riconciliazione del contatore materializzato delle deleghe in pending per delegato.
+ * Ripara eventuali disallineamenti (es. scadenze elaborate in ritardo) e inizializza i contatori mancanti.
+ * La schedulazione è configurata dalla property pn.mandate.pending-counter-reconciliation-cron (disabilitata con "-").
+ * Il job scatta su tutte le istanze, ma la scansione della tabella viene eseguita solo dall'istanza che acquisisce
+ * il lease (pn.mandate.pending-counter-reconciliation-lease, da impostare minore dell'intervallo del cron).
+ */
+@Component
+@lombok.CustomLog
+@RequiredArgsConstructor
+public class PendingCounterReconciliationJob {
+
+    private static final Duration DEFAULT_LEASE_DURATION = Duration.ofHours(1);
+
+    private final DelegateDao delegateDao;
+    private final PnMandateConfig pnMandateConfig;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Scheduled(cron = "${pn.mandate.pending-counter-reconciliation-cron:-}")
+    public void reconcilePendingCounters() {
+        Duration leaseDuration = Optional.ofNullable(pnMandateConfig.getPendingCounterReconciliationLease())
+                .orElse(DEFAULT_LEASE_DURATION);
+        delegateDao.acquireReconciliationLease(instanceId, leaseDuration)
+                .flatMap(acquired -> {
+                    if (!Boolean.TRUE.equals(acquired)) {
+                        return Mono.empty();
+                    }
+                    log.info("starting pending counters reconciliation instanceId={}", instanceId);
+                    return delegateDao.reconcilePendingCounters();
+                })
+                .doOnError(throwable -> log.error("pending counters reconciliation failed", throwable))
+                .onErrorComplete()
+                .block();
+    }
+}
@@ -2,6 +2,7 @@ package it.pagopa.pn.mandate.middleware.db.entities;
 
 import lombok.Data;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbAttribute;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
@@ -9,12 +10,36 @@ import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSortK
 
 /**
  * Entity Delegato
+ * Viene usata anche come contatore materializzato delle deleghe in pending del delegato,
+ * salvato nella tabella principale con pk = internaluserid del delegato e sk = {@value #PENDING_COUNTER_SK}.
+ * Nella stessa tabella, con pk = {@value #RECONCILIATION_LEASE_PK}, è salvato il lease che impedisce
+ * l'esecuzione concorrente della riconciliazione dei contatori da parte di più istanze
  */
 @DynamoDbBean
 @Data
+@NoArgsConstructor
 public class DelegateEntity {
 
+    public static final String PENDING_COUNTER_SK = "PENDINGCOUNTER";
+    public static final String RECONCILIATION_LEASE_PK = "PENDINGCOUNTER_RECONCILIATION";
+    public static final String RECONCILIATION_LEASE_SK = "LEASE";
+
+    public static final String COL_PK = "pk";
+    public static final String COL_SK = "sk";
     public static final String COL_I_PENDINGCOUNT = "i_pendingcount";
+    public static final String COL_B_SEEDED = "b_seeded";
+    public static final String COL_S_LEASEOWNER = "s_leaseowner";
+    public static final String COL_I_LEASEUNTIL = "i_leaseuntil";
+
+    public DelegateEntity(String delegate) {
+        this.setDelegate(delegate);
+        this.setSk(PENDING_COUNTER_SK);
+    }
+
+    @Getter(onMethod=@__({@DynamoDbPartitionKey, @DynamoDbAttribute(COL_PK)})) private String delegate;
+    @Getter(onMethod=@__({@DynamoDbSortKey, @DynamoDbAttribute(COL_SK)}))  private String sk;
 
     @Getter(onMethod=@__({@DynamoDbAttribute(COL_I_PENDINGCOUNT)})) private int pendingcount;
+    /** true se il contatore è stato inizializzato dalla riconciliazione, altrimenti contiene le sole variazioni */
+    @Getter(onMethod=@__({@DynamoDbAttribute(COL_B_SEEDED)})) private Boolean seeded;
 }
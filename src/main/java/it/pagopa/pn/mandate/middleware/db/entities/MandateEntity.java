@@ -11,6 +11,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import static it.pagopa.pn.mandate.middleware.db.BaseDao.GSI_INDEX_DELEGATE_STATE;
+import static it.pagopa.pn.mandate.middleware.db.BaseDao.GSI_INDEX_MANDATEID;
 
 /**
  * Entity Delega
@@ -78,6 +79,7 @@ public class MandateEntity {
         this.setTaxonomyCodes(mandateEntity.getTaxonomyCodes());
     }
 
+    @DynamoDbSecondaryPartitionKey(indexNames = { GSI_INDEX_MANDATEID })
     @DynamoDbAttribute(COL_S_MANDATEID)
     public String getMandateId(){
         return this.sk.replace(MANDATE_PREFIX, "");
@@ -1,7 +1,12 @@
 package it.pagopa.pn.mandate.middleware.msclient;
 
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import it.pagopa.pn.commons.log.PnLogger;
+import it.pagopa.pn.mandate.config.PnMandateConfig;
 import it.pagopa.pn.mandate.generated.openapi.msclient.datavault.v1.api.MandatesApi;
 import it.pagopa.pn.mandate.generated.openapi.msclient.datavault.v1.api.RecipientsApi;
 import it.pagopa.pn.mandate.generated.openapi.msclient.datavault.v1.dto.BaseRecipientDtoDto;
@@ -12,10 +17,15 @@ import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 /**
- * Classe wrapper di pn-data-vault, con gestione del backoff
+ * Classe wrapper di pn-data-vault, con gestione del backoff.
+ * I nominativi dei destinatari e gli iuid associati ai CF/PIVA sono mantenuti in cache in memoria (limitate in dimensione e durata),
+ * le richieste concorrenti per le stesse chiavi condividono la stessa invocazione a pn-data-vault.
  */
 @Component
 @lombok.CustomLog
@@ -23,10 +33,39 @@ public class PnDataVaultClient {
     
     private final RecipientsApi recipientsApi;
     private final MandatesApi mandatesApi;
+    private final AsyncCache<String, BaseRecipientDtoDto> denominationCache;
+    private final AsyncCache<RecipientKey, String> internalIdCache;
 
-    public PnDataVaultClient(RecipientsApi recipientsApi, MandatesApi mandatesApi) {
+    private record RecipientKey(RecipientTypeDto recipientType, String fiscalCode) {
+    }
+
+    public PnDataVaultClient(RecipientsApi recipientsApi, MandatesApi mandatesApi, PnMandateConfig pnMandateConfig, MeterRegistry meterRegistry) {
         this.recipientsApi = recipientsApi;
         this.mandatesApi = mandatesApi;
+
+        PnMandateConfig.CacheConfig cacheConfig = pnMandateConfig.getRecipientDenominationCache();
+        if (cacheConfig != null && cacheConfig.isEnabled()) {
+            this.denominationCache = Caffeine.newBuilder()
+                    .expireAfterWrite(cacheConfig.getTtl())
+                    .maximumSize(cacheConfig.getMaxSize())
+                    .recordStats()
+                    .buildAsync();
+            CaffeineCacheMetrics.monitor(meterRegistry, denominationCache, "pn-mandate-recipient-denomination");
+        } else {
+            this.denominationCache = null;
+        }
+
+        PnMandateConfig.CacheConfig internalIdCacheConfig = pnMandateConfig.getRecipientInternalIdCache();
+        if (internalIdCacheConfig != null && internalIdCacheConfig.isEnabled()) {
+            this.internalIdCache = Caffeine.newBuilder()
+                    .expireAfterWrite(internalIdCacheConfig.getTtl())
+                    .maximumSize(internalIdCacheConfig.getMaxSize())
+                    .recordStats()
+                    .buildAsync();
+            CaffeineCacheMetrics.monitor(meterRegistry, internalIdCache, "pn-mandate-recipient-internal-id");
+        } else {
+            this.internalIdCache = null;
+        }
     }
 
 
@@ -37,10 +76,23 @@ public class PnDataVaultClient {
      * @return lista di nominativi
      */
     public Flux<BaseRecipientDtoDto> getRecipientDenominationByInternalId(List<String> internalIds)
+    {
+        if (denominationCache == null) {
+            return fetchRecipientDenominationByInternalId(internalIds);
+        }
+
+        // solo gli id non in cache vengono richiesti, con un'unica invocazione
+        return Mono.fromFuture(() -> denominationCache.getAll(internalIds, (missingIds, executor) ->
+                        fetchRecipientDenominationByInternalId(new ArrayList<String>(missingIds))
+                                .collectMap(BaseRecipientDtoDto::getInternalId, Function.identity())
+                                .toFuture()), true)
+                .flatMapIterable(Map::values);
+    }
+
+    private Flux<BaseRecipientDtoDto> fetchRecipientDenominationByInternalId(List<String> internalIds)
     {
         log.logInvokingExternalService(PnLogger.EXTERNAL_SERVICES.PN_DATA_VAULT, "Opaque Ids Resolution");
         return recipientsApi.getRecipientDenominationByInternalId(internalIds);
-            
     }
 
     /**
@@ -50,10 +102,21 @@ public class PnDataVaultClient {
      * @return iuid
      */
     public Mono<String> ensureRecipientByExternalId(boolean isPerson, String fiscalCode)
+    {
+        RecipientTypeDto recipientType = isPerson?RecipientTypeDto.PF:RecipientTypeDto.PG;
+        if (internalIdCache == null || fiscalCode == null) {
+            return fetchRecipientByExternalId(recipientType, fiscalCode);
+        }
+
+        // il mapping CF/PIVA -> iuid è stabile, le richieste concorrenti per lo stesso CF condividono la stessa invocazione
+        return Mono.fromFuture(() -> internalIdCache.get(new RecipientKey(recipientType, fiscalCode), (key, executor) ->
+                fetchRecipientByExternalId(key.recipientType(), key.fiscalCode()).toFuture()), true);
+    }
+
+    private Mono<String> fetchRecipientByExternalId(RecipientTypeDto recipientType, String fiscalCode)
     {
         log.logInvokingExternalService(PnLogger.EXTERNAL_SERVICES.PN_DATA_VAULT, "Opaque Id Creation");
-        return recipientsApi.ensureRecipientByExternalId(isPerson?RecipientTypeDto.PF:RecipientTypeDto.PG, fiscalCode);
-            
+        return recipientsApi.ensureRecipientByExternalId(recipientType, fiscalCode);
     }
 
     /**
@@ -1,6 +1,11 @@
 package it.pagopa.pn.mandate.middleware.msclient;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import it.pagopa.pn.commons.log.PnLogger;
+import it.pagopa.pn.mandate.config.PnMandateConfig;
 import it.pagopa.pn.mandate.generated.openapi.msclient.extregselfcare.v1.api.AooUoIdsApi;
 import it.pagopa.pn.mandate.generated.openapi.msclient.extregselfcare.v1.dto.FilteredPaIdsResponseDto;
 import it.pagopa.pn.mandate.generated.openapi.msclient.extregselfcaregroups.v1.api.InternalOnlyApi;
@@ -21,9 +26,26 @@ public class PnExtRegPrvtClient {
 
     private final AooUoIdsApi aooUoIdsApi;
 
-    public PnExtRegPrvtClient(InternalOnlyApi internalApi,AooUoIdsApi aooUoIdsApi) {
+    /**
+     * Cache di tutti i gruppi (attivi e non) per PG, usata solo per l'arricchimento delle deleghe restituite dalla ricerca
+     */
+    private final AsyncCache<String, List<PgGroupDto>> pgGroupsCache;
+
+    public PnExtRegPrvtClient(InternalOnlyApi internalApi, AooUoIdsApi aooUoIdsApi, PnMandateConfig pnMandateConfig, MeterRegistry meterRegistry) {
         this.internalApi = internalApi;
         this.aooUoIdsApi = aooUoIdsApi;
+
+        PnMandateConfig.CacheConfig cacheConfig = pnMandateConfig.getPgGroupsCache();
+        if (cacheConfig != null && cacheConfig.isEnabled()) {
+            this.pgGroupsCache = Caffeine.newBuilder()
+                    .expireAfterWrite(cacheConfig.getTtl())
+                    .maximumSize(cacheConfig.getMaxSize())
+                    .recordStats()
+                    .buildAsync();
+            CaffeineCacheMetrics.monitor(meterRegistry, pgGroupsCache, "pn-mandate-pg-groups");
+        } else {
+            this.pgGroupsCache = null;
+        }
     }
 
 
@@ -32,6 +54,25 @@ public class PnExtRegPrvtClient {
         return internalApi.getAllPgGroupsPrivate(id, onlyActive? PgGroupStatusDto.ACTIVE:null);
     }
 
+    /**
+     * Restituisce tutti i gruppi (attivi e non) della PG, dalla cache se abilitata.
+     * I gruppi possono essere vecchi al più del ttl della cache: da usare solo per la visualizzazione
+     * e non per validare i gruppi ricevuti in input (per cui va usato {@link #getGroups(String, boolean)})
+     *
+     * @param id id della PG
+     * @return gruppi della PG
+     */
+    public Flux<PgGroupDto> getCachedGroups(String id) {
+        if (pgGroupsCache == null) {
+            return getGroups(id, false);
+        }
+
+        return Mono.fromFuture(() -> pgGroupsCache.get(id, (institutionId, executor) -> getGroups(institutionId, false)
+                        .collectList()
+                        .toFuture()), true)
+                .flatMapIterable(groups -> groups);
+    }
+
     public Flux<String> checkAooUoIds(List<String> senderIdList){
         log.logInvokingExternalService(PnLogger.EXTERNAL_SERVICES.PN_EXTERNAL_REGISTRIES, "Check aoo uo in senderId list ");
         ParameterizedTypeReference<String> localVarReturnType = new ParameterizedTypeReference<>() {};
@@ -1,26 +1,87 @@
 package it.pagopa.pn.mandate.middleware.msclient;
 
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import it.pagopa.pn.commons.log.PnLogger;
+import it.pagopa.pn.mandate.config.PnMandateConfig;
 import it.pagopa.pn.mandate.generated.openapi.msclient.extregselfcare.v1.api.InfoPaApi;
 import it.pagopa.pn.mandate.generated.openapi.msclient.extregselfcare.v1.dto.PaSummaryDto;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
+/**
+ * Classe wrapper delle API info PA di pn-external-registries.
+ * Il catalogo delle PA è piccolo e varia raramente: i riepiloghi sono mantenuti in una cache in memoria,
+ * aggiornata in background dopo il refresh configurato.
+ */
 @Component
 @lombok.CustomLog
 public class PnInfoPaClient {
 
     private final InfoPaApi infoPaApi;
+    private final AsyncLoadingCache<String, PaSummaryDto> paSummaryCache;
 
-    public PnInfoPaClient(InfoPaApi infoPaApi) {
+    public PnInfoPaClient(InfoPaApi infoPaApi, PnMandateConfig pnMandateConfig, MeterRegistry meterRegistry) {
         this.infoPaApi = infoPaApi;
+
+        PnMandateConfig.CacheConfig cacheConfig = pnMandateConfig.getPaSummaryCache();
+        if (cacheConfig != null && cacheConfig.isEnabled()) {
+            Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                    .expireAfterWrite(cacheConfig.getTtl())
+                    .maximumSize(cacheConfig.getMaxSize())
+                    .recordStats();
+            if (cacheConfig.getRefreshAfterWrite() != null) {
+                builder.refreshAfterWrite(cacheConfig.getRefreshAfterWrite());
+            }
+            this.paSummaryCache = builder.buildAsync(new PaSummaryLoader());
+            CaffeineCacheMetrics.monitor(meterRegistry, paSummaryCache, "pn-mandate-pa-summary");
+        } else {
+            this.paSummaryCache = null;
+        }
     }
 
 
     public Flux<PaSummaryDto> getManyPa(List<String> paIds) {
+        if (paSummaryCache == null) {
+            return fetchManyPa(paIds);
+        }
+
+        // solo le PA non in cache vengono richieste, con un'unica invocazione
+        return Mono.fromFuture(() -> paSummaryCache.getAll(paIds), true)
+                .flatMapIterable(Map::values);
+    }
+
+    private Flux<PaSummaryDto> fetchManyPa(List<String> paIds) {
         log.logInvokingExternalService(PnLogger.EXTERNAL_SERVICES.PN_EXTERNAL_REGISTRIES, "Retrieving PAs summary infos");
         return infoPaApi.getManyPa(paIds);
     }
+
+    private class PaSummaryLoader implements AsyncCacheLoader<String, PaSummaryDto> {
+
+        @Override
+        public CompletableFuture<? extends PaSummaryDto> asyncLoad(String paId, Executor executor) {
+            return fetchManyPa(List.of(paId))
+                    .next()
+                    .toFuture();
+        }
+
+        @Override
+        public CompletableFuture<? extends Map<? extends String, ? extends PaSummaryDto>> asyncLoadAll(Set<? extends String> paIds, Executor executor) {
+            return fetchManyPa(new ArrayList<>(paIds))
+                    .collectMap(PaSummaryDto::getId, Function.identity())
+                    .toFuture();
+        }
+    }
 }
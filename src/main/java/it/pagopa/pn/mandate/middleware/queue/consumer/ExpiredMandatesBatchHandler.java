@@ -0,0 +1,157 @@
+package it.pagopa.pn.mandate.middleware.queue.consumer;
+
+import io.awspring.cloud.sqs.annotation.SqsListener;
+import io.awspring.cloud.sqs.listener.SqsHeaders;
+import io.awspring.cloud.sqs.listener.acknowledgement.BatchAcknowledgement;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import it.pagopa.pn.commons.utils.MDCUtils;
+import it.pagopa.pn.mandate.exceptions.PnMandateNotFoundException;
+import it.pagopa.pn.mandate.middleware.queue.consumer.event.PnMandateExpiredEvent;
+import it.pagopa.pn.mandate.middleware.queue.consumer.utils.HandleEventUtils;
+import it.pagopa.pn.mandate.model.ExpireMandateRequestDto;
+import it.pagopa.pn.mandate.model.ExpireMandateResultDto;
+import it.pagopa.pn.mandate.services.mandate.v1.MandateService;
+import org.slf4j.MDC;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static it.pagopa.pn.mandate.middleware.queue.consumer.utils.ConsumerUtils.setMdc;
+
+/**
+ * Consumer in modalità batch della coda delle deleghe scadute, alternativo a {@link ExpiredMandatesHandler}.
+ * Riceve fino a max-messages-per-poll messaggi per volta e scade le relative deleghe con un'unica operazione massiva
+ * ({@link MandateService#expireMandates(List)}), poi conferma i soli messaggi elaborati con successo:
+ * gli altri tornano visibili sulla coda.
+ * <p>
+ * La coda è FIFO ma l'ordine tra i messaggi non è rilevante: la lambda che la alimenta (microservice.yml) usa un
+ * MessageGroupId costante ('MANDATE') solo per la deduplica, ogni messaggio riguarda la scadenza di una delega diversa
+ * e la scadenza di una delega non dipende da quella delle altre. Un messaggio fallito può quindi essere riconsegnato
+ * dopo messaggi successivi già confermati; i messaggi della stessa delega nello stesso batch vengono elaborati una volta
+ * sola e condividono l'esito.
+ */
+@Component
+@lombok.CustomLog
+@ConditionalOnProperty(name = "pn.mandate.expired-mandates-consumer.batch-enabled", havingValue = "true")
+public class ExpiredMandatesBatchHandler {
+
+    private static final String METRIC_PREFIX = "pn.mandate.expired.consumer";
+    private static final String PROCESS = "expired mandate cleanup";
+
+    private final MandateService mandateService;
+    private final Counter successCounter;
+    private final Counter failureCounter;
+    private final Timer processingTimer;
+    private final Timer lagTimer;
+
+    public ExpiredMandatesBatchHandler(MandateService mandateService,
+                                       MeterRegistry meterRegistry) {
+        this.mandateService = mandateService;
+        this.successCounter = Counter.builder(METRIC_PREFIX + ".messages").tag("outcome", "success").register(meterRegistry);
+        this.failureCounter = Counter.builder(METRIC_PREFIX + ".messages").tag("outcome", "failure").register(meterRegistry);
+        this.processingTimer = Timer.builder(METRIC_PREFIX + ".processing").register(meterRegistry);
+        this.lagTimer = Timer.builder(METRIC_PREFIX + ".lag").register(meterRegistry);
+    }
+
+    @SqsListener(value = "${pn.mandate.topics.mandate-inputs}",
+            maxMessagesPerPoll = "${pn.mandate.expired-mandates-consumer.max-messages-per-poll:10}",
+            acknowledgementMode = "MANUAL")
+    public CompletableFuture<Void> pnMandateExpiredMandatesBatchConsumer(List<Message<PnMandateExpiredEvent.Payload>> messages,
+                                                                        BatchAcknowledgement<PnMandateExpiredEvent.Payload> acknowledgement) {
+        log.info("pnMandateExpiredMandatesBatchConsumer, received messages={}", messages.size());
+        messages.forEach(this::recordLag);
+        List<ExpireMandateRequestDto> requests = messages.stream()
+                .map(message -> toRequest(message.getPayload()))
+                .toList();
+        long start = System.nanoTime();
+        // un'unica scadenza massiva per tutti i messaggi ricevuti, gli esiti vengono poi associati ai messaggi per mandateId
+        Mono<Map<String, ExpireMandateResultDto>> results = Mono.defer(() -> mandateService.expireMandates(requests)
+                        .collectMap(ExpireMandateResultDto::getMandateId))
+                .doFinally(signal -> processingTimer.record(Duration.ofNanos(System.nanoTime() - start)))
+                .cache();
+
+        // le pipeline dei singoli messaggi vengono costruite qui, sul thread del listener, perché ognuna catturi l'MDC del proprio messaggio
+        List<Mono<Message<PnMandateExpiredEvent.Payload>>> outcomes = messages.stream()
+                .map(message -> outcome(message, results))
+                .toList();
+        return Flux.concat(outcomes)
+                .collectList()
+                .flatMap(processed -> processed.isEmpty()
+                        ? Mono.<Void>empty()
+                        : Mono.fromFuture(() -> acknowledgement.acknowledgeAsync(processed)))
+                .toFuture();
+    }
+
+    private Mono<Message<PnMandateExpiredEvent.Payload>> outcome(Message<PnMandateExpiredEvent.Payload> message,
+                                                                 Mono<Map<String, ExpireMandateResultDto>> results) {
+        String mandateId = message.getPayload().getMandateId();
+        // l'MDC del messaggio viene valorizzato solo durante la costruzione della pipeline e passato nel context Reactor
+        // da addMDCToContextAndExecute, senza modificare l'MDC dei thread condivisi su cui verrà eseguita
+        setMdc(message);
+        MDC.put(MDCUtils.MDC_PN_MANDATEID_KEY, mandateId);
+        try {
+            log.logStartingProcess(PROCESS);
+            return MDCUtils.addMDCToContextAndExecute(outcome(message, mandateId, results));
+        } finally {
+            MDCUtils.clearMDCKeys();
+        }
+    }
+
+    private Mono<Message<PnMandateExpiredEvent.Payload>> outcome(Message<PnMandateExpiredEvent.Payload> message,
+                                                                 String mandateId,
+                                                                 Mono<Map<String, ExpireMandateResultDto>> results) {
+        return results
+                .flatMap(resultsByMandateId -> {
+                    ExpireMandateResultDto result = resultsByMandateId.get(mandateId);
+                    if (result == null) {
+                        return Mono.error(new PnMandateNotFoundException());
+                    }
+                    if (result.getError() != null) {
+                        return Mono.error(result.getError());
+                    }
+                    return Mono.just(result);
+                })
+                .doOnNext(result -> {
+                    successCounter.increment();
+                    log.debug("pnMandateExpiredMandatesBatchConsumer, mandateId={} outcome={}", mandateId, result.getOutcome());
+                    log.logEndingProcess(PROCESS);
+                })
+                .thenReturn(message)
+                .onErrorResume(ex -> {
+                    failureCounter.increment();
+                    HandleEventUtils.handleException(message.getHeaders(), ex);
+                    log.logEndingProcess(PROCESS, false, ex.getMessage(), ex);
+                    return Mono.empty();
+                });
+    }
+
+    private static ExpireMandateRequestDto toRequest(PnMandateExpiredEvent.Payload payload) {
+        return ExpireMandateRequestDto.builder()
+                .mandateId(payload.getMandateId())
+                .delegatorInternaluserid(payload.getDelegatorInternalUserid())
+                .delegatorUid(payload.getDelegatorUserid())
+                .cxType(payload.getDelegatorCxType())
+                .build();
+    }
+
+    private void recordLag(Message<PnMandateExpiredEvent.Payload> message) {
+        Object sentTimestamp = message.getHeaders().get(SqsHeaders.MessageSystemAttributes.SQS_SENT_TIMESTAMP);
+        if (sentTimestamp != null) {
+            try {
+                long lagMillis = System.currentTimeMillis() - Long.parseLong(sentTimestamp.toString());
+                lagTimer.record(Duration.ofMillis(Math.max(0, lagMillis)));
+            } catch (NumberFormatException e) {
+                log.debug("invalid sent timestamp header {}", sentTimestamp);
+            }
+        }
+    }
+}
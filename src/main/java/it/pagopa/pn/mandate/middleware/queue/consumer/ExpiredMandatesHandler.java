@@ -7,6 +7,7 @@ import it.pagopa.pn.mandate.middleware.queue.consumer.utils.HandleEventUtils;
 import it.pagopa.pn.mandate.services.mandate.v1.MandateService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.MDC;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.messaging.Message;
 import org.springframework.stereotype.Component;
 
@@ -15,6 +16,7 @@ import static it.pagopa.pn.mandate.middleware.queue.consumer.utils.ConsumerUtils
 @Component
 @lombok.CustomLog
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "pn.mandate.expired-mandates-consumer.batch-enabled", havingValue = "false", matchIfMissing = true)
 public class ExpiredMandatesHandler {
     private final MandateService mandateService;
 
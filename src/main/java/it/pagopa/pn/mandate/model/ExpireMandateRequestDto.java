@@ -0,0 +1,20 @@
+package it.pagopa.pn.mandate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Richiesta di scadenza di una delega, usata dalla scadenza massiva
+ */
+@Data
+@Builder
+public class ExpireMandateRequestDto {
+
+    private String delegatorInternaluserid;
+
+    private String delegatorUid;
+
+    private String cxType;
+
+    private String mandateId;
+}
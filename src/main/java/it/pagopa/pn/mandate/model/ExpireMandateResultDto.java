@@ -0,0 +1,32 @@
+package it.pagopa.pn.mandate.model;
+
+import it.pagopa.pn.mandate.middleware.db.entities.MandateEntity;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Esito della scadenza di una singola delega nella scadenza massiva
+ */
+@Data
+@Builder
+public class ExpireMandateResultDto {
+
+    public enum Outcome {
+        /** delega spostata nello storico */
+        EXPIRED,
+        /** delega accettata nel frattempo e non ancora scaduta, lasciata invariata */
+        SKIPPED,
+        /** delega non presente */
+        NOT_FOUND,
+        /** errore durante lo spostamento nello storico */
+        FAILED
+    }
+
+    private String mandateId;
+
+    private Outcome outcome;
+
+    private MandateEntity mandate;
+
+    private Throwable error;
+}
@@ -30,11 +30,15 @@ public class MandatePrivateRestV1Controller implements MandatePrivateServiceApi
                                                                                  CxTypeAuthFleet xPagopaPnCxType,
                                                                                  String mandateId,
                                                                                  List<String> cxGroups,
+                                                                                 Integer size,
+                                                                                 String nextPageKey,
                                                                                  ServerWebExchange exchange) {
 
-        return mandateService.listMandatesByDelegate(internaluserId, mandateId,xPagopaPnCxType, cxGroups)
-                .collectList()
-                .map(m -> ResponseEntity.status(HttpStatus.OK).body(Flux.fromIterable(m)));
+        if (size != null) {
+            return mandateService.listMandatesByDelegatePaged(internaluserId, mandateId, xPagopaPnCxType, cxGroups, size, nextPageKey)
+                    .map(PagedResponses::toResponse);
+        }
+        return StreamingResponses.toResponse(mandateService.listMandatesByDelegate(internaluserId, mandateId,xPagopaPnCxType, cxGroups), exchange);
     }
 
     @Override
@@ -44,11 +48,15 @@ public class MandatePrivateRestV1Controller implements MandatePrivateServiceApi
                                                                                   List<String> cxGroups,
                                                                                   String cxRole,
                                                                                   DelegateType delegateType,
+                                                                                  Integer size,
+                                                                                  String nextPageKey,
                                                                                   final ServerWebExchange exchange) {
 
-        return mandateService.listMandatesByDelegator(internaluserId, mandateId, xPagopaPnCxType, cxGroups, cxRole, delegateType)
-                .collectList()
-                .map(m -> ResponseEntity.status(HttpStatus.OK).body(Flux.fromIterable(m)));
+        if (size != null) {
+            return mandateService.listMandatesByDelegatorPaged(internaluserId, mandateId, xPagopaPnCxType, cxGroups, cxRole, delegateType, size, nextPageKey)
+                    .map(PagedResponses::toResponse);
+        }
+        return StreamingResponses.toResponse(mandateService.listMandatesByDelegator(internaluserId, mandateId, xPagopaPnCxType, cxGroups, cxRole, delegateType), exchange);
     }
 
     @Override
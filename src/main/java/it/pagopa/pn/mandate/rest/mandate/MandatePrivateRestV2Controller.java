@@ -7,7 +7,6 @@ import it.pagopa.pn.mandate.generated.openapi.server.v1.dto.MandateDto;
 import it.pagopa.pn.mandate.mapper.StatusEnumMapper;
 import it.pagopa.pn.mandate.model.InputSearchMandateDto;
 import it.pagopa.pn.mandate.services.mandate.v1.MandatePrivateService;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ServerWebExchange;
@@ -36,6 +35,8 @@ public class MandatePrivateRestV2Controller implements MandatePrivateServiceV2Ap
                                                                                    Instant notificationSentAt,
                                                                                    String iun,
                                                                                    String rootSenderId,
+                                                                                   Integer size,
+                                                                                   String nextPageKey,
                                                                                    final ServerWebExchange exchange) {
         InputSearchMandateDto inputSearchMandateDto = InputSearchMandateDto.builder()
                 .delegateId(internaluserId)
@@ -47,8 +48,10 @@ public class MandatePrivateRestV2Controller implements MandatePrivateServiceV2Ap
                 .cxType(xPagopaPnCxType)
                 .status(StatusEnumMapper.intValfromStatus(MandateDto.StatusEnum.ACTIVE)) // nelle invocazioni tra servizi mi interessano SEMPRE solo le deleghe ATTIVE
                 .build();
-        return mandateService.listMandatesByDelegateV2(inputSearchMandateDto)
-                .collectList()
-                .map(m -> ResponseEntity.status(HttpStatus.OK).body(Flux.fromIterable(m)));
+        if (size != null) {
+            return mandateService.listMandatesByDelegateV2Paged(inputSearchMandateDto, size, nextPageKey)
+                    .map(PagedResponses::toResponse);
+        }
+        return StreamingResponses.toResponse(mandateService.listMandatesByDelegateV2(inputSearchMandateDto), exchange);
     }
 }
@@ -86,8 +86,14 @@ public class MandateRestV1Controller  implements MandateServiceApi {
                                                                           List<String> xPagopaPnCxGroups,
                                                                           String xPagopaPnCxRole,
                                                                           String status,
+                                                                          Integer size,
+                                                                          String nextPageKey,
                                                                           ServerWebExchange exchange) {
 
+        if (size != null) {
+            return mandateService.listMandatesByDelegatePaged(status, xPagopaPnCxId, xPagopaPnCxType, xPagopaPnCxGroups, xPagopaPnCxRole, size, nextPageKey)
+                    .map(PagedResponses::toResponse);
+        }
         return mandateService.listMandatesByDelegate(status, xPagopaPnCxId, xPagopaPnCxType, xPagopaPnCxGroups, xPagopaPnCxRole)
                 .collectList()
                 .map(m -> ResponseEntity.status(HttpStatus.OK).body(Flux.fromIterable(m)));
@@ -112,8 +118,14 @@ public class MandateRestV1Controller  implements MandateServiceApi {
                                                                            CxTypeAuthFleet xPagopaPnCxType,
                                                                            List<String> xPagopaPnCxGroups,
                                                                            String xPagopaPnCxRole,
+                                                                           Integer size,
+                                                                           String nextPageKey,
                                                                            ServerWebExchange exchange) {
 
+        if (size != null) {
+            return mandateService.listMandatesByDelegatorPaged(xPagopaPnCxId, xPagopaPnCxType, xPagopaPnCxGroups, xPagopaPnCxRole, size, nextPageKey)
+                    .map(PagedResponses::toResponse);
+        }
         return  mandateService.listMandatesByDelegator(xPagopaPnCxId, xPagopaPnCxType, xPagopaPnCxGroups, xPagopaPnCxRole)
                 .collectList()
                 .map(m -> ResponseEntity.status(HttpStatus.OK).body(Flux.fromIterable(m)));
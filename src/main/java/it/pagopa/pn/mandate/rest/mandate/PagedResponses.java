@@ -0,0 +1,27 @@
+package it.pagopa.pn.mandate.rest.mandate;
+
+import it.pagopa.pn.mandate.model.PageResultDto;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Flux;
+
+/**
+ * Risposte delle API di lista paginate: il body resta la lista delle deleghe,
+ * la chiave della pagina successiva (se presente) viene restituita nell'header {@value #NEXT_PAGE_KEY_HEADER},
+ * esposto anche alle chiamate cross-origin da {@link it.pagopa.pn.mandate.CorsGlobalConfiguration}
+ */
+public final class PagedResponses {
+
+    public static final String NEXT_PAGE_KEY_HEADER = "x-pagopa-pn-next-page-key";
+
+    private PagedResponses() {
+    }
+
+    static <T> ResponseEntity<Flux<T>> toResponse(PageResultDto<T, String> page) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.OK);
+        if (page.isMore() && !page.getNextPagesKey().isEmpty()) {
+            builder.header(NEXT_PAGE_KEY_HEADER, page.getNextPagesKey().get(0));
+        }
+        return builder.body(Flux.fromIterable(page.getPage()));
+    }
+}
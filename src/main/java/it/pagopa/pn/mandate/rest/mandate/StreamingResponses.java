@@ -0,0 +1,36 @@
+package it.pagopa.pn.mandate.rest.mandate;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Risposte delle API di lista non paginate.
+ * Se il client accetta application/x-ndjson le deleghe vengono scritte una per riga man mano che arrivano le pagine
+ * da DynamoDB, senza accumularle in memoria; altrimenti viene restituito l'array JSON dopo aver letto tutte le deleghe.
+ * La risposta viene inviata alla prima delega letta, quindi un errore precedente (es. validazione o lettura della prima pagina)
+ * produce comunque lo status corretto; un errore successivo interrompe lo stream.
+ */
+final class StreamingResponses {
+
+    private StreamingResponses() {
+    }
+
+    static <T> Mono<ResponseEntity<Flux<T>>> toResponse(Flux<T> items, ServerWebExchange exchange) {
+        if (acceptsNdjson(exchange)) {
+            return Mono.just(ResponseEntity.status(HttpStatus.OK)
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(items));
+        }
+        return items.collectList()
+                .map(m -> ResponseEntity.status(HttpStatus.OK).body(Flux.fromIterable(m)));
+    }
+
+    private static boolean acceptsNdjson(ServerWebExchange exchange) {
+        return exchange.getRequest().getHeaders().getAccept().stream()
+                .anyMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype);
+    }
+}
@@ -78,6 +78,7 @@ public class MandateValidationUtils {
             return Mono.empty();
         }
 
+        // sempre una lettura puntuale dei gruppi attivi: la cache dei gruppi è usata solo per l'arricchimento della ricerca
         return pnExtRegPrvtClient.getGroups(institutionId, true)
                 .collectMap(PgGroupDto::getId, Function.identity())
                 .flatMap(mapInstitutionActiveGroups -> {
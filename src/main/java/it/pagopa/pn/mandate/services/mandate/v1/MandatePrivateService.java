@@ -2,18 +2,25 @@ package it.pagopa.pn.mandate.services.mandate.v1;
 
 import it.pagopa.pn.mandate.mapper.MandateEntityInternalMandateDtoMapper;
 import it.pagopa.pn.mandate.mapper.StatusEnumMapper;
+import it.pagopa.pn.mandate.middleware.db.DelegateMandatesCache;
 import it.pagopa.pn.mandate.middleware.db.MandateDao;
+import it.pagopa.pn.mandate.middleware.db.PnLastEvaluatedKey;
+import it.pagopa.pn.mandate.middleware.db.entities.MandateEntity;
 import it.pagopa.pn.mandate.generated.openapi.server.v1.dto.CxTypeAuthFleet;
 import it.pagopa.pn.mandate.generated.openapi.server.v1.dto.DelegateType;
 import it.pagopa.pn.mandate.generated.openapi.server.v1.dto.InternalMandateDto;
 import it.pagopa.pn.mandate.generated.openapi.server.v1.dto.MandateByDelegatorRequestDto;
 import it.pagopa.pn.mandate.generated.openapi.server.v1.dto.MandateDto.StatusEnum;
 import it.pagopa.pn.mandate.model.InputSearchMandateDto;
+import it.pagopa.pn.mandate.model.PageResultDto;
 import it.pagopa.pn.mandate.utils.PgUtils;
 import it.pagopa.pn.mandate.utils.TypeSegregatorFilter;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.*;
 
@@ -24,10 +31,13 @@ public class MandatePrivateService {
 
     private final MandateDao mandateDao;
     private final MandateEntityInternalMandateDtoMapper mandateEntityInternalMandateDtoMapper;
+    private final DelegateMandatesCache delegateMandatesCache;
 
-    public MandatePrivateService(MandateDao mandateDao, MandateEntityInternalMandateDtoMapper mandateEntityInternalMandateDtoMapper) {
+    public MandatePrivateService(MandateDao mandateDao, MandateEntityInternalMandateDtoMapper mandateEntityInternalMandateDtoMapper,
+                                 DelegateMandatesCache delegateMandatesCache) {
         this.mandateDao = mandateDao;
         this.mandateEntityInternalMandateDtoMapper = mandateEntityInternalMandateDtoMapper;
+        this.delegateMandatesCache = delegateMandatesCache;
     }
 
     public Flux<InternalMandateDto> listMandatesByDelegate(String internaluserId, String mandateId,
@@ -41,21 +51,50 @@ public class MandatePrivateService {
                 .cxType(xPagopaPnCxType)
                 .groups(groups)
                 .build();
-        return mandateDao.listMandatesByDelegate(inputSearchMandateDto, TypeSegregatorFilter.STANDARD)
+        return delegateMandatesCache.get(inputSearchMandateDto, TypeSegregatorFilter.STANDARD,
+                        () -> mandateDao.listMandatesByDelegate(inputSearchMandateDto, TypeSegregatorFilter.STANDARD))
                 .map(mandateEntityInternalMandateDtoMapper::toDto)
                 .doOnNext(mand -> log.info("listMandatesByDelegate found mandate={}", mand));
     }
 
+    public Mono<PageResultDto<InternalMandateDto, String>> listMandatesByDelegatePaged(String internaluserId, String mandateId,
+                                                                                       CxTypeAuthFleet xPagopaPnCxType, List<String> groups,
+                                                                                       int size, String nextPageKey) {
+        // nelle invocazioni tra servizi mi interessano SEMPRE solo le deleghe ATTIVE
+        log.info("listing private mandates page by delegate for internaluserId={} mandateId={} size={}", internaluserId, mandateId, size);
+        InputSearchMandateDto inputSearchMandateDto = InputSearchMandateDto.builder()
+                .delegateId(internaluserId)
+                .status(StatusEnumMapper.intValfromStatus(StatusEnum.ACTIVE))
+                .mandateId(mandateId)
+                .cxType(xPagopaPnCxType)
+                .groups(groups)
+                .build();
+        // la versione paginata non passa dalla cache, che mantiene la lista completa delle deleghe
+        return Mono.defer(() -> mandateDao.listMandatesByDelegatePaged(inputSearchMandateDto, TypeSegregatorFilter.STANDARD,
+                        size, convertLastEvaluatedKey(nextPageKey)))
+                .map(this::toPageResult);
+    }
+
     public Flux<InternalMandateDto> listMandatesByDelegateV2(InputSearchMandateDto inputSearchMandateDto) {
         // nelle invocazioni tra servizi mi interessano SEMPRE solo le deleghe ATTIVE
         String internaluserId = inputSearchMandateDto.getDelegateId();
         String mandateId = inputSearchMandateDto.getMandateId();
         log.info("listing private mandates by delegate v2 for internaluserId={} mandateId={}", internaluserId, mandateId);
-        return mandateDao.listMandatesByDelegate(inputSearchMandateDto, null)
+        return delegateMandatesCache.get(inputSearchMandateDto, null,
+                        () -> mandateDao.listMandatesByDelegate(inputSearchMandateDto, null))
                 .map(mandateEntityInternalMandateDtoMapper::toDto)
                 .doOnNext(mand -> log.info("listMandatesByDelegateV2 found mandate={}", mand));
     }
 
+    public Mono<PageResultDto<InternalMandateDto, String>> listMandatesByDelegateV2Paged(InputSearchMandateDto inputSearchMandateDto,
+                                                                                         int size, String nextPageKey) {
+        log.info("listing private mandates page by delegate v2 for internaluserId={} mandateId={} size={}",
+                inputSearchMandateDto.getDelegateId(), inputSearchMandateDto.getMandateId(), size);
+        return Mono.defer(() -> mandateDao.listMandatesByDelegatePaged(inputSearchMandateDto, null,
+                        size, convertLastEvaluatedKey(nextPageKey)))
+                .map(this::toPageResult);
+    }
+
     public Flux<InternalMandateDto> listMandatesByDelegator(String internaluserId,
                                                             String mandateId,
                                                             CxTypeAuthFleet xPagopaPnCxType,
@@ -72,6 +111,24 @@ public class MandatePrivateService {
                 .doOnNext(mand -> log.info("listMandatesByDelegator found mandate={}", mand));
     }
 
+    public Mono<PageResultDto<InternalMandateDto, String>> listMandatesByDelegatorPaged(String internaluserId,
+                                                                                        String mandateId,
+                                                                                        CxTypeAuthFleet xPagopaPnCxType,
+                                                                                        List<String> cxGroups,
+                                                                                        String cxRole,
+                                                                                        DelegateType delegateType,
+                                                                                        int size,
+                                                                                        String nextPageKey) {
+        // nelle invocazioni tra servizi mi interessano SEMPRE solo le deleghe ATTIVE
+        log.info("listing private mandates page by delegator for internaluserId={} mandateId={} size={}", internaluserId, mandateId, size);
+
+        Integer status = StatusEnumMapper.intValfromStatus(StatusEnum.ACTIVE);
+        return PgUtils.validaAccessoOnlyAdmin(xPagopaPnCxType, cxRole, cxGroups)
+                .flatMap(obj -> mandateDao.listMandatesByDelegatorPaged(internaluserId, status, mandateId, delegateType,
+                        size, convertLastEvaluatedKey(nextPageKey)))
+                .map(this::toPageResult);
+    }
+
     public Flux<InternalMandateDto> listMandatesByDelegators(DelegateType delegateType,
                                                              List<String> delegateGroups,
                                                              Flux<MandateByDelegatorRequestDto> mandateByDelegatorRequestDto) {
@@ -92,4 +149,19 @@ public class MandatePrivateService {
                 )
                 .map(mandateEntityInternalMandateDtoMapper::toDto);
     }
+
+    private PageResultDto<InternalMandateDto, String> toPageResult(PageResultDto<MandateEntity, PnLastEvaluatedKey> page) {
+        return PageResultDto.<InternalMandateDto, String>builder()
+                .page(page.getPage().stream().map(mandateEntityInternalMandateDtoMapper::toDto).toList())
+                .more(page.isMore())
+                .nextPagesKey(page.getNextPagesKey().stream().map(PnLastEvaluatedKey::serialize).toList())
+                .build();
+    }
+
+    private @Nullable PnLastEvaluatedKey convertLastEvaluatedKey(String nextPageKey) {
+        if (StringUtils.hasText(nextPageKey)) {
+            return PnLastEvaluatedKey.deserialize(nextPageKey);
+        }
+        return null;
+    }
 }
@@ -1,5 +1,6 @@
 package it.pagopa.pn.mandate.services.mandate.v1;
 
+import it.pagopa.pn.mandate.config.PnMandateConfig;
 import it.pagopa.pn.mandate.generated.openapi.msclient.datavault.v1.dto.BaseRecipientDtoDto;
 import it.pagopa.pn.mandate.generated.openapi.msclient.extregselfcare.v1.dto.PaSummaryDto;
 import it.pagopa.pn.mandate.generated.openapi.msclient.extregselfcaregroups.v1.dto.PgGroupDto;
@@ -18,6 +19,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import software.amazon.awssdk.enhanced.dynamodb.model.Page;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
@@ -33,22 +35,33 @@ public class MandateSearchService {
 
     public static final int FILTER_EXPRESSION_MULTIPLIER = 4;
 
+    /**
+     * Partizioni di stato lette contemporaneamente: quella corrente e al più la successiva
+     */
+    private static final int PARTITION_READ_CONCURRENCY = 2;
+
     private final MandateDao mandateDao;
     private final MandateEntityMandateDtoMapper entityMandateDtoMapper;
     private final PnDataVaultClient pnDataVaultClient;
     private final PnInfoPaClient pnInfoPaClient;
     private final PnExtRegPrvtClient pnExtRegPrvtClient;
+    private final SearchPageSizeEstimator pageSizeEstimator;
+    private final PnMandateConfig pnMandateConfig;
 
     public MandateSearchService(MandateDao mandateDao,
                                 MandateEntityMandateDtoMapper entityMandateDtoMapper,
                                 PnDataVaultClient pnDataVaultClient,
                                 PnInfoPaClient pnInfoPaClient,
-                                PnExtRegPrvtClient pnExtRegPrvtClient) {
+                                PnExtRegPrvtClient pnExtRegPrvtClient,
+                                SearchPageSizeEstimator pageSizeEstimator,
+                                PnMandateConfig pnMandateConfig) {
         this.mandateDao = mandateDao;
         this.entityMandateDtoMapper = entityMandateDtoMapper;
         this.pnDataVaultClient = pnDataVaultClient;
         this.pnInfoPaClient = pnInfoPaClient;
         this.pnExtRegPrvtClient = pnExtRegPrvtClient;
+        this.pageSizeEstimator = pageSizeEstimator;
+        this.pnMandateConfig = pnMandateConfig;
     }
 
     public Mono<PageResultDto<MandateDto, String>> searchByDelegate(InputSearchMandateDto searchDto,
@@ -60,25 +73,73 @@ public class MandateSearchService {
 
         List<Integer> partitions = generatePartitions(searchDto.getStatuses());
 
-        int requiredSize = searchDto.getSize() * searchDto.getMaxPageNumber() + 1;
-        int dynamoDbPageSize;
-        if (!CollectionUtils.isEmpty(delegatorIds) || !CollectionUtils.isEmpty(groups)) {
-            dynamoDbPageSize = requiredSize * FILTER_EXPRESSION_MULTIPLIER;
-        } else {
-            dynamoDbPageSize = requiredSize;
+        int size = searchDto.getSize();
+        int requiredSize = size * searchDto.getMaxPageNumber() + 1;
+        SearchPageSizeEstimator.QueryShape shape = SearchPageSizeEstimator.QueryShape.of(groups, delegatorIds);
+        if (!Boolean.TRUE.equals(pnMandateConfig.getSearchKeyOnlyLookAhead())) {
+            return readResults(searchDto, partitions, shape, lastEvaluatedKey, requiredSize, false)
+                    .flatMap(results -> prepareResult(results.stream().limit(size).toList(), results, searchDto, requiredSize));
         }
-        log.debug("searchByDelegate {}, requiredSize: {}, dynamoDbPageSize: {}", delegateId, requiredSize, dynamoDbPageSize);
 
-        AtomicInteger pIdx = selectStartPartitionIdx(lastEvaluatedKey, partitions);
-        Integer startPartition = partitions.isEmpty() ? null : partitions.get(pIdx.get());
-        log.debug("searchByDelegate {}, partition: {}, idx: {}", delegateId, startPartition, pIdx);
+        // la pagina restituita viene letta per intero; le deleghe successive servono solo per calcolare i nextPagesKey
+        // e si leggono con le sole chiavi, ripartendo dall'ultima delega della pagina come farebbe la richiesta della pagina successiva.
+        // Le due letture sono necessariamente in sequenza (la seconda parte dall'ultima delega della prima) e, dato che il GSI
+        // ha proiezione ALL, la lettura con le sole chiavi consuma le stesse RCU: risparmia solo trasferimento e deserializzazione
+        return readResults(searchDto, partitions, shape, lastEvaluatedKey, size, false)
+                .flatMap(pageEntities -> {
+                    if (pageEntities.size() < size) {
+                        return prepareResult(pageEntities, pageEntities, searchDto, requiredSize);
+                    }
+                    PnLastEvaluatedKey lookAheadKey = computeLastEvaluatedKey(pageEntities.get(size - 1));
+                    return readResults(searchDto, partitions, shape, lookAheadKey, requiredSize - size, true)
+                            .flatMap(lookAhead -> {
+                                List<MandateEntity> results = new ArrayList<>(pageEntities);
+                                results.addAll(lookAhead);
+                                return prepareResult(pageEntities, results, searchDto, requiredSize);
+                            });
+                });
+    }
+
+    private Mono<List<MandateEntity>> readResults(InputSearchMandateDto searchDto,
+                                                  List<Integer> partitions,
+                                                  SearchPageSizeEstimator.QueryShape shape,
+                                                  @Nullable PnLastEvaluatedKey lastEvaluatedKey,
+                                                  int requiredSize,
+                                                  boolean keysOnly) {
+        String delegateId = searchDto.getDelegateId();
+        int dynamoDbPageSize = pageSizeEstimator.pageSize(shape, requiredSize);
+        log.debug("searchByDelegate {}, requiredSize: {}, dynamoDbPageSize: {}, keysOnly: {}", delegateId, requiredSize, dynamoDbPageSize, keysOnly);
+
+        int startIdx = selectStartPartitionIdx(lastEvaluatedKey, partitions);
+        int partitionCount = partitions.isEmpty() ? 1 : partitions.size() - startIdx;
+        log.debug("searchByDelegate {}, start partition: {}, idx: {}, partitions to read: {}",
+                delegateId, getPartitionFromIdx(partitions, startIdx), startIdx, partitionCount);
 
-        List<MandateEntity> cumulativeQueryResult = new ArrayList<>();
-        return mandateDao.searchByDelegate(delegateId, startPartition, groups, delegatorIds, dynamoDbPageSize, lastEvaluatedKey)
-                .expand(page -> readMoreData(cumulativeQueryResult.size(), requiredSize, dynamoDbPageSize, page, searchDto, partitions, pIdx))
-                .doOnNext(page -> cumulativeQueryResult.addAll(page.items()))
-                .last()
-                .flatMap(lastPage -> prepareResult(cumulativeQueryResult, searchDto, requiredSize));
+        // mentre si legge una partizione di stato si legge in anticipo solo la successiva, ognuna con il proprio cursore:
+        // leggerle tutte insieme consumerebbe capacità anche per partizioni che spesso non servono a riempire la pagina.
+        // flatMapSequential restituisce i risultati nell'ordine delle partizioni, come nella lettura sequenziale,
+        // e al raggiungimento di requiredSize le letture ancora in corso vengono cancellate
+        return Flux.range(startIdx, partitionCount)
+                .flatMapSequential(idx -> readPartition(searchDto, shape, getPartitionFromIdx(partitions, idx),
+                        idx == startIdx ? lastEvaluatedKey : null, requiredSize, dynamoDbPageSize, keysOnly), PARTITION_READ_CONCURRENCY)
+                .take(requiredSize)
+                .collectList();
+    }
+
+    private Flux<MandateEntity> readPartition(InputSearchMandateDto searchDto,
+                                              SearchPageSizeEstimator.QueryShape shape,
+                                              @Nullable Integer partition,
+                                              @Nullable PnLastEvaluatedKey startKey,
+                                              int requiredSize,
+                                              int dynamoDbPageSize,
+                                              boolean keysOnly) {
+        return Flux.defer(() -> {
+            AtomicInteger partitionSize = new AtomicInteger();
+            return queryPartition(searchDto, partition, dynamoDbPageSize, startKey, keysOnly)
+                    .expand(page -> readMoreData(partitionSize.addAndGet(page.items().size()), requiredSize, dynamoDbPageSize, page, searchDto, partition, keysOnly))
+                    .doOnNext(page -> recordSelectivity(shape, page))
+                    .flatMapIterable(Page::items);
+        });
     }
 
     private Mono<Page<MandateEntity>> readMoreData(int currentSize,
@@ -86,53 +147,60 @@ public class MandateSearchService {
                                                    int dynamoDbPageSize,
                                                    Page<MandateEntity> page,
                                                    InputSearchMandateDto searchDto,
-                                                   List<Integer> partitions,
-                                                   AtomicInteger pIdx) {
+                                                   @Nullable Integer partition,
+                                                   boolean keysOnly) {
         log.trace("reading more data...");
-        String delegateId = searchDto.getDelegateId();
-        List<String> delegatorIds = searchDto.getDelegatorIds();
-        List<String> groups = searchDto.getGroups();
-        if (currentSize < requiredSize) {
-            Integer currentPartition = getPartitionFromIdx(partitions, pIdx.get());
-            if (page.lastEvaluatedKey() == null && pIdx.incrementAndGet() < partitions.size()) {
-                // nella partizione corrente non ci sono più dati, si prosegue leggendo dalla partizione successiva
-                Integer nextPartition = partitions.isEmpty() ? null : partitions.get(pIdx.get());
-                log.debug("no more data in partition {}, next partition is {}", currentPartition, nextPartition);
-                return mandateDao.searchByDelegate(delegateId, nextPartition, groups, delegatorIds, dynamoDbPageSize, null);
-            } else if (page.lastEvaluatedKey() != null) {
-                // nella partizione corrente ci sono ancora dati, si prosegue leggendo dalla partizione corrente
-                PnLastEvaluatedKey nextPageKey = new PnLastEvaluatedKey();
-                nextPageKey.setInternalLastEvaluatedKey(page.lastEvaluatedKey());
-                Integer partition = partitions.isEmpty() ? null : partitions.get(pIdx.get());
-                log.debug("more data in partition {}, lek: {}", currentPartition, nextPageKey);
-                return mandateDao.searchByDelegate(delegateId, partition, groups, delegatorIds, dynamoDbPageSize, nextPageKey);
-            }
-            log.debug("no more data");
+        if (currentSize >= requiredSize) {
+            log.debug("size query results of partition {}: {}, reached required size of {}", partition, currentSize, requiredSize);
+        } else if (page.lastEvaluatedKey() != null) {
+            // nella partizione corrente ci sono ancora dati, si prosegue leggendo dalla partizione corrente
+            PnLastEvaluatedKey nextPageKey = new PnLastEvaluatedKey();
+            nextPageKey.setInternalLastEvaluatedKey(page.lastEvaluatedKey());
+            log.debug("more data in partition {}, lek: {}", partition, nextPageKey);
+            return queryPartition(searchDto, partition, dynamoDbPageSize, nextPageKey, keysOnly);
         } else {
-            log.debug("size query results: {}, reached required size of {}", currentSize, requiredSize);
+            log.debug("no more data in partition {}", partition);
         }
         log.trace("...stop reading more data");
         return Mono.empty();
     }
 
-    private Mono<PageResultDto<MandateDto, String>> prepareResult(List<MandateEntity> results,
+    private Mono<Page<MandateEntity>> queryPartition(InputSearchMandateDto searchDto,
+                                                     @Nullable Integer partition,
+                                                     int dynamoDbPageSize,
+                                                     @Nullable PnLastEvaluatedKey startKey,
+                                                     boolean keysOnly) {
+        if (keysOnly) {
+            return mandateDao.searchKeysByDelegate(searchDto.getDelegateId(), partition, searchDto.getGroups(), searchDto.getDelegatorIds(), dynamoDbPageSize, startKey);
+        }
+        return mandateDao.searchByDelegate(searchDto.getDelegateId(), partition, searchDto.getGroups(), searchDto.getDelegatorIds(), dynamoDbPageSize, startKey);
+    }
+
+    private void recordSelectivity(SearchPageSizeEstimator.QueryShape shape, Page<MandateEntity> page) {
+        Integer scannedCount = page.scannedCount();
+        if (scannedCount != null) {
+            pageSizeEstimator.record(shape, scannedCount, page.items().size());
+        }
+    }
+
+    private Mono<PageResultDto<MandateDto, String>> prepareResult(List<MandateEntity> entityToConvert,
+                                                                  List<MandateEntity> results,
                                                                   InputSearchMandateDto searchDto,
                                                                   int requiredSize) {
-        var entityToConvert = results.stream()
-                .limit(searchDto.getSize())
-                .toList();
         log.info("size query results: {}, size requested: {}", results.size(), entityToConvert.size());
+        List<MandateDto> dtoList = entityToConvert.stream().map(entity -> {
+            MandateDto dto = entityMandateDtoMapper.toDto(entity);
+            dto.setVerificationCode(null);
+            return dto;
+        }).toList();
         var userInfo = callDataVault(entityToConvert);
         var paInfo = callExternalRegistries(entityToConvert);
-        var pgInfo = callExternalRegistries(searchDto.getDelegateId());
+        var pgInfo = callExternalRegistries(searchDto.getDelegateId(), dtoList);
         return Mono.zip(userInfo, paInfo, pgInfo)
                 .map(tuple -> {
-                    List<MandateDto> dtoList = entityToConvert.stream().map(entity -> {
-                        MandateDto dto = entityMandateDtoMapper.toDto(entity);
-                        dto.setVerificationCode(null);
-                        deanonimizeResult(entity, dto, tuple.getT1(), tuple.getT2(), tuple.getT3());
-                        return dto;
-                    }).toList();
+                    for (int i = 0; i < entityToConvert.size(); i++) {
+                        deanonimizeResult(entityToConvert.get(i), dtoList.get(i), tuple.getT1(), tuple.getT2(), tuple.getT3());
+                    }
                     return PageResultDto.<MandateDto, String>builder()
                             .page(dtoList)
                             .more(results.size() >= requiredSize)
@@ -197,12 +265,12 @@ public class MandateSearchService {
         return lastEvaluatedKey;
     }
 
-    private AtomicInteger selectStartPartitionIdx(PnLastEvaluatedKey lastEvaluatedKey, List<Integer> partitions) {
-        AtomicInteger pIdx = new AtomicInteger();
-        if (lastEvaluatedKey != null) {
+    private int selectStartPartitionIdx(PnLastEvaluatedKey lastEvaluatedKey, List<Integer> partitions) {
+        int pIdx = 0;
+        if (lastEvaluatedKey != null && !partitions.isEmpty()) {
             int startOf = partitions.indexOf(Integer.parseInt(lastEvaluatedKey.getExternalLastEvaluatedKey()));
             if (startOf >= 0) {
-                pIdx.set(startOf);
+                pIdx = startOf;
             } else {
                 log.warn("can not find partition index from lek - skip to partition 0");
             }
@@ -241,8 +309,13 @@ public class MandateSearchService {
         return Mono.just(Collections.emptyMap());
     }
 
-    private Mono<Map<String, PgGroupDto>> callExternalRegistries(String delegateId) {
-        return pnExtRegPrvtClient.getGroups(delegateId, false)
+    private Mono<Map<String, PgGroupDto>> callExternalRegistries(String delegateId, List<MandateDto> dtos) {
+        boolean hasGroups = dtos.stream()
+                .anyMatch(dto -> !CollectionUtils.isEmpty(dto.getGroups()));
+        if (!hasGroups) {
+            return Mono.just(Collections.emptyMap());
+        }
+        return pnExtRegPrvtClient.getCachedGroups(delegateId)
                 .collectMap(PgGroupDto::getId, Function.identity());
     }
 
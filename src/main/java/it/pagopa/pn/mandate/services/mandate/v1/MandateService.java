@@ -25,6 +25,8 @@ import it.pagopa.pn.mandate.middleware.db.entities.MandateEntity;
 import it.pagopa.pn.mandate.middleware.msclient.PnDataVaultClient;
 import it.pagopa.pn.mandate.middleware.msclient.PnDeliveryClient;
 import it.pagopa.pn.mandate.middleware.msclient.PnInfoPaClient;
+import it.pagopa.pn.mandate.model.ExpireMandateRequestDto;
+import it.pagopa.pn.mandate.model.ExpireMandateResultDto;
 import it.pagopa.pn.mandate.model.InputSearchMandateDto;
 import it.pagopa.pn.mandate.model.PageResultDto;
 import it.pagopa.pn.mandate.model.WorkFlowType;
@@ -56,6 +58,8 @@ import static it.pagopa.pn.mandate.utils.PgUtils.validaAccessoOnlyGroupAdmin;
 @RequiredArgsConstructor
 public class MandateService {
 
+    private static final int EXPIRE_COMPLETION_CONCURRENCY = 10;
+
     private final MandateDao mandateDao;
     private final DelegateDao userDao;
     private final MandateEntityMandateDtoMapper mandateEntityMandateDtoMapper;
@@ -276,10 +280,11 @@ public class MandateService {
                 .doOnNext(cieValidationData -> logEvent.getMdc().put(MDC_PN_MANDATE_CIE_NIS_KEY, cieValidationData.getNisData().getNis()))
                 .doOnNext(base64Validator::validateCieValidationData)
                 .zipWith(retrieveTaxIdFromInternalId(mandate.getDelegator()))
-                .doOnNext(tuple -> {
+                // la validazione è CPU-bound: viene eseguita fuori dall'event loop sullo scheduler dedicato
+                .flatMap(tuple -> {
                     CIEValidationData cieValidationData = tuple.getT1();
                     String delegatorTaxId = tuple.getT2();
-                    cieChecker.validateCie(cieValidationData, mandate.getValidationcode(), delegatorTaxId);
+                    return cieChecker.validateCieAsync(cieValidationData, mandate.getValidationcode(), delegatorTaxId);
                 })
                 .thenReturn(mandate)
                 .onErrorResume(PnCieInvalidVerificationCodeException.class, ex -> {
@@ -483,17 +488,74 @@ public class MandateService {
 
         return validaAccessoOnlyGroupAdmin(xPagopaPnCxType,xPagopaPnCxRole,xPagopaPnCxGroups)
                 .flatMapMany(obj -> mandateDao.listMandatesByDelegate(inputSearchMandateDto, TypeSegregatorFilter.STANDARD))   // (1)
+                .collectList()
+                .flatMap(this::toDelegateMandateDtos)
+                .flatMapMany(Flux::fromIterable);
+    }
+
+    /**
+     * Versione paginata di {@link #listMandatesByDelegate(String, String, CxTypeAuthFleet, List, String)}
+     *
+     * @param status            stato per il filtro
+     * @param internaluserId    iuid del delegato
+     * @param xPagopaPnCxType   tipo dell'utente (PF, PG)
+     * @param xPagopaPnCxGroups gruppi a cui appartiene l'utente
+     * @param xPagopaPnCxRole   ruolo dell'utente
+     * @param size              dimensione della pagina
+     * @param nextPageKey       chiave della pagina da leggere (OPZIONALE)
+     * @return pagina di deleghe, con la chiave della pagina successiva se presente
+     */
+    public Mono<PageResultDto<MandateDto, String>> listMandatesByDelegatePaged(String status,
+                                                                                String internaluserId,
+                                                                                CxTypeAuthFleet xPagopaPnCxType,
+                                                                                List<String> xPagopaPnCxGroups,
+                                                                                String xPagopaPnCxRole,
+                                                                                int size,
+                                                                                String nextPageKey) {
+        try {
+            validateUtils.validateListMandatesByDelegateRequest(xPagopaPnCxType);
+        }catch(PnRuntimeException e){
+            return Mono.error(e);
+        }
+
+        Integer iStatus = null;
+        if (status != null && !status.isEmpty()) {
+            iStatus = convertStatusStringToInteger(status);
+        }
+
+        InputSearchMandateDto inputSearchMandateDto = InputSearchMandateDto.builder()
+                .delegateId(internaluserId)
+                .status(iStatus)
+                .cxType(xPagopaPnCxType)
+                .groups(xPagopaPnCxGroups)
+                .build();
+
+        return validaAccessoOnlyGroupAdmin(xPagopaPnCxType,xPagopaPnCxRole,xPagopaPnCxGroups)
+                .flatMap(obj -> mandateDao.listMandatesByDelegatePaged(inputSearchMandateDto, TypeSegregatorFilter.STANDARD,
+                        size, convertLastEvaluatedKey(nextPageKey)))
+                .flatMap(page -> toDelegateMandateDtos(page.getPage())
+                        .map(dtos -> toPageResult(dtos, page)));
+    }
+
+    /**
+     * (2) pulisco le info provenienti da db dalle informazioni che non devo tornare (in questo caso, il validationcode)
+     * (3) risolvere internalId del delegante nel relativo microservizio
+     * (4) risolvere eventuali deleghe con PA impostata
+     */
+    private Mono<List<MandateDto>> toDelegateMandateDtos(List<MandateEntity> mandates) {
+        List<MandateEntity> entities = mandates.stream()
                 .map(ent -> {
                     ent.setValidationcode(null);   // (2)
+                    log.info("listMandatesByDelegate found mandate={}", ent);
                     return ent;
                 })
-                .doOnNext(mand -> log.info("listMandatesByDelegate found mandate={}", mand))
-                .collectList()                                                        // (3)
-                .zipWhen(entities -> {
-                            if (!entities.isEmpty()) {
+                .toList();
+        return Mono.just(entities)
+                .zipWhen(ents -> {                                                     // (3)
+                            if (!ents.isEmpty()) {
                                 // genero la lista degli id deleganti
                                 List<String> internaluserIds = new ArrayList<>();
-                                entities.forEach(ent -> internaluserIds.add(ent.getDelegator()));
+                                ents.forEach(ent -> internaluserIds.add(ent.getDelegator()));
 
                                 // ritorno la lista
                                 return this.pnDatavaultClient.getRecipientDenominationByInternalId(internaluserIds)
@@ -501,10 +563,10 @@ public class MandateService {
                             } else
                                 return Mono.just(new HashMap<String, String>());
                         },
-                        (entities, userinfosdtos) -> {
+                        (ents, userinfosdtos) -> {
                             List<MandateDto> dtos = new ArrayList<>();
 
-                            for (MandateEntity ent : entities) {
+                            for (MandateEntity ent : ents) {
                                 MandateDto dto = mandateEntityMandateDtoMapper.toDto(ent);
                                 if (userinfosdtos.containsKey(ent.getDelegator())) {
                                     UserDto user = dto.getDelegator();
@@ -516,8 +578,7 @@ public class MandateService {
                             }
                             return dtos;
                         })
-                .flatMapMany(Flux::fromIterable)
-                .flatMap(this::enrichWithPaInfos);
+                .flatMap(this::enrichWithPaInfos);                                   // (4)
     }
 
     /**
@@ -598,10 +659,49 @@ public class MandateService {
     public Flux<MandateDto> listMandatesByDelegator(String internalUserId, CxTypeAuthFleet pnCxType, List<String> pnCxGroups, String pnCxRole) {
         return Mono.defer(() -> validaAccessoOnlyAdmin(pnCxType, pnCxRole, pnCxGroups)) // (0)
                 .flatMapMany(o -> mandateDao.listMandatesByDelegator(internalUserId, null, null, null))    // (1)
-                .doOnNext(mand -> log.info("listMandatesByDelegator found mandate={}", mand))
-                .map(mandateEntityMandateDtoMapper::toDto)  // (2)
-                .collectList()                                                        // (3)
-                .zipWhen(dtos -> {
+                .collectList()
+                .flatMap(this::toDelegatorMandateDtos)
+                .flatMapMany(Flux::fromIterable);
+    }
+
+    /**
+     * Versione paginata di {@link #listMandatesByDelegator(String, CxTypeAuthFleet, List, String)}
+     *
+     * @param internalUserId iuid del delegante
+     * @param pnCxType       tipo di utente
+     * @param pnCxGroups     gruppi a cui appartiene l'utente
+     * @param pnCxRole       ruolo dell'utente
+     * @param size           dimensione della pagina
+     * @param nextPageKey    chiave della pagina da leggere (OPZIONALE)
+     * @return pagina di deleghe, con la chiave della pagina successiva se presente
+     */
+    public Mono<PageResultDto<MandateDto, String>> listMandatesByDelegatorPaged(String internalUserId,
+                                                                                 CxTypeAuthFleet pnCxType,
+                                                                                 List<String> pnCxGroups,
+                                                                                 String pnCxRole,
+                                                                                 int size,
+                                                                                 String nextPageKey) {
+        return Mono.defer(() -> validaAccessoOnlyAdmin(pnCxType, pnCxRole, pnCxGroups)) // (0)
+                .flatMap(o -> mandateDao.listMandatesByDelegatorPaged(internalUserId, null, null, null,
+                        size, convertLastEvaluatedKey(nextPageKey)))    // (1)
+                .flatMap(page -> toDelegatorMandateDtos(page.getPage())
+                        .map(dtos -> toPageResult(dtos, page)));
+    }
+
+    /**
+     * (2) converto entity in dto
+     * (3) recupero le info dei DELEGATI, eseguendo una richiesta con la lista degli id delle deleghe
+     * (4) risolvere eventuali deleghe con PA impostata
+     */
+    private Mono<List<MandateDto>> toDelegatorMandateDtos(List<MandateEntity> mandates) {
+        List<MandateDto> mandateDtos = mandates.stream()
+                .map(mand -> {
+                    log.info("listMandatesByDelegator found mandate={}", mand);
+                    return mandateEntityMandateDtoMapper.toDto(mand);  // (2)
+                })
+                .toList();
+        return Mono.just(mandateDtos)
+                .zipWhen(dtos -> {                                                    // (3)
                             if (!dtos.isEmpty()) {
                                 // genero la lista degli id delega
                                 List<String> mandateIds = new ArrayList<>();
@@ -621,8 +721,15 @@ public class MandateService {
                             }
                             return dtos;
                         })
-                .flatMapMany(Flux::fromIterable)
-                .flatMap(this::enrichWithPaInfos);
+                .flatMap(this::enrichWithPaInfos);                                  // (4)
+    }
+
+    private static <V> PageResultDto<V, String> toPageResult(List<V> page, PageResultDto<?, PnLastEvaluatedKey> source) {
+        return PageResultDto.<V, String>builder()
+                .page(page)
+                .more(source.isMore())
+                .nextPagesKey(source.getNextPagesKey().stream().map(PnLastEvaluatedKey::serialize).toList())
+                .build();
     }
 
     /**
@@ -698,6 +805,47 @@ public class MandateService {
                 });
     }
 
+    /**
+     * Versione massiva di {@link #expireMandate(String, String, String, String)}, usata dal consumer batch della coda
+     * delle deleghe scadute: le deleghe vengono lette e spostate nello storico con operazioni massive e, per ogni
+     * delega scaduta, vengono eseguite la cancellazione su data-vault e l'eventuale notifica verso delivery.
+     * Le deleghe lasciate invariate perché accettate nel frattempo e ancora valide non vengono toccate.
+     *
+     * @param requests deleghe da scadere
+     * @return esito per ogni delega richiesta, FAILED se la cancellazione o la notifica della delega scaduta falliscono
+     */
+    public Flux<ExpireMandateResultDto> expireMandates(List<ExpireMandateRequestDto> requests) {
+        List<ExpireMandateRequestDto> validRequests = requests.stream()
+                .filter(request -> request.getMandateId() != null)
+                .toList();
+        Flux<ExpireMandateResultDto> invalidResults = Flux.fromStream(requests.stream()
+                .filter(request -> request.getMandateId() == null)
+                .map(request -> ExpireMandateResultDto.builder()
+                        .outcome(ExpireMandateResultDto.Outcome.NOT_FOUND)
+                        .error(new PnMandateNotFoundException())
+                        .build()));
+
+        return invalidResults.concatWith(Flux.defer(() -> mandateDao.expireMandates(validRequests))
+                .flatMapSequential(result -> result.getOutcome() == ExpireMandateResultDto.Outcome.EXPIRED
+                        ? completeExpire(result)
+                        : Mono.just(result), EXPIRE_COMPLETION_CONCURRENCY));
+    }
+
+    private Mono<ExpireMandateResultDto> completeExpire(ExpireMandateResultDto result) {
+        MandateEntity entity = result.getMandate();
+        return pnDatavaultClient.deleteMandateById(result.getMandateId())
+                .then(Mono.defer(() -> Boolean.FALSE.equals(entity.getDelegateisperson())
+                        ? sqsService.sendToDelivery(entity, EventType.MANDATE_EXPIRED).then()
+                        : Mono.<Void>empty()))
+                .thenReturn(result)
+                .onErrorResume(ex -> {
+                    log.error("expireMandates completion failed mandateId={}", result.getMandateId(), ex);
+                    result.setOutcome(ExpireMandateResultDto.Outcome.FAILED);
+                    result.setError(ex);
+                    return Mono.just(result);
+                });
+    }
+
     private void updateUserDto(UserDto user, DenominationDtoDto info) {
         user.setCompanyName(info.getDestBusinessName());
         user.setFirstName(info.getDestName());
@@ -709,17 +857,36 @@ public class MandateService {
     }
 
     private Mono<MandateDto> enrichWithPaInfos(MandateDto mandateDto){
-        if (!mandateDto.getVisibilityIds().isEmpty())
-            return pnInfoPaClient
-                    .getManyPa(mandateDto.getVisibilityIds().stream().map(OrganizationIdDto::getUniqueIdentifier).toList())
-                    .collectMap(PaSummaryDto::getId, PaSummaryDto::getName)
-                    .map(paMap -> {
-                        mandateDto.getVisibilityIds().forEach(organizationIdDto ->
-                                organizationIdDto.setName(paMap.getOrDefault(organizationIdDto.getUniqueIdentifier(), null)));
-                        return mandateDto;
-                    });
-        else
-            return Mono.just(mandateDto);
+        return enrichWithPaInfos(List.of(mandateDto))
+                .thenReturn(mandateDto);
+    }
+
+    /**
+     * Valorizza il nome delle PA di visibilità di tutte le deleghe, risolvendo tutti gli id con un'unica richiesta
+     *
+     * @param mandateDtos deleghe da arricchire
+     * @return le stesse deleghe, nello stesso ordine
+     */
+    private Mono<List<MandateDto>> enrichWithPaInfos(List<MandateDto> mandateDtos){
+        List<String> paIds = mandateDtos.stream()
+                .filter(mandateDto -> !CollectionUtils.isEmpty(mandateDto.getVisibilityIds()))
+                .flatMap(mandateDto -> mandateDto.getVisibilityIds().stream())
+                .map(OrganizationIdDto::getUniqueIdentifier)
+                .distinct()
+                .toList();
+        if (paIds.isEmpty())
+            return Mono.just(mandateDtos);
+
+        return pnInfoPaClient
+                .getManyPa(paIds)
+                .collectMap(PaSummaryDto::getId, PaSummaryDto::getName)
+                .map(paMap -> {
+                    mandateDtos.stream()
+                            .filter(mandateDto -> !CollectionUtils.isEmpty(mandateDto.getVisibilityIds()))
+                            .forEach(mandateDto -> mandateDto.getVisibilityIds().forEach(organizationIdDto ->
+                                    organizationIdDto.setName(paMap.getOrDefault(organizationIdDto.getUniqueIdentifier(), null))));
+                    return mandateDtos;
+                });
     }
 
     private List<Integer> convertStatusStringToInteger(List<String> statutes) {
@@ -754,8 +921,8 @@ public class MandateService {
                 return this.pnDatavaultClient.ensureRecipientByExternalId(false, taxId)
                         .map(Collections::singletonList);
             }else{
-                return this.pnDatavaultClient.ensureRecipientByExternalId(true, taxId)
-                        .concatWith(this.pnDatavaultClient.ensureRecipientByExternalId(false, taxId))
+                return Flux.mergeSequential(this.pnDatavaultClient.ensureRecipientByExternalId(true, taxId),
+                                this.pnDatavaultClient.ensureRecipientByExternalId(false, taxId))
                         .collectList();
             }
         } else {
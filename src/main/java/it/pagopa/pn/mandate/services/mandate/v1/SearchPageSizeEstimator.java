@@ -0,0 +1,125 @@
+package it.pagopa.pn.mandate.services.mandate.v1;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.pagopa.pn.mandate.config.PnMandateConfig;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static it.pagopa.pn.mandate.services.mandate.v1.MandateSearchService.FILTER_EXPRESSION_MULTIPLIER;
+
+/**
+ * Dimensiona il limit delle query DynamoDB della ricerca deleghe in base alla selettività dei filtri
+ * osservata (elementi restituiti / elementi letti) per ogni forma di query, anziché con un moltiplicatore fisso.
+ * Finché non ci sono osservazioni, o se disabilitato, si usa FILTER_EXPRESSION_MULTIPLIER per le query con filtri.
+ * Espone per ogni forma di query gli elementi letti e restituiti e l'amplificazione di lettura stimata.
+ */
+@Component
+@lombok.CustomLog
+public class SearchPageSizeEstimator {
+
+    private static final String METRIC_PREFIX = "pn.mandate.search.dynamodb";
+    private static final String TAG_SHAPE = "shape";
+
+    private final boolean enabled;
+    private final int maxMultiplier;
+    private final double smoothing;
+    private final MeterRegistry meterRegistry;
+    private final Map<QueryShape, ShapeStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * Forma della query di ricerca: indica quali filtri (oltre a quelli sempre presenti) sono applicati
+     */
+    public record QueryShape(boolean groups, boolean delegators) {
+
+        public static QueryShape of(List<String> groups, List<String> delegatorIds) {
+            return new QueryShape(!CollectionUtils.isEmpty(groups), !CollectionUtils.isEmpty(delegatorIds));
+        }
+
+        boolean filtered() {
+            return groups || delegators;
+        }
+
+        String tag() {
+            if (groups && delegators) {
+                return "groups-delegators";
+            }
+            return groups ? "groups" : (delegators ? "delegators" : "none");
+        }
+    }
+
+    public SearchPageSizeEstimator(PnMandateConfig pnMandateConfig, MeterRegistry meterRegistry) {
+        PnMandateConfig.AdaptivePageSizeConfig config = pnMandateConfig.getSearchAdaptivePageSize();
+        this.enabled = config != null && config.isEnabled();
+        this.maxMultiplier = config != null ? Math.max(1, config.getMaxMultiplier()) : FILTER_EXPRESSION_MULTIPLIER;
+        this.smoothing = config != null ? config.getSmoothing() : 1;
+        this.meterRegistry = meterRegistry;
+        log.info("search adaptive page size enabled={} maxMultiplier={} smoothing={}", enabled, maxMultiplier, smoothing);
+    }
+
+    /**
+     * @param shape forma della query
+     * @param requiredSize numero di elementi da restituire
+     * @return limit da usare nella query DynamoDB, mai inferiore a requiredSize
+     */
+    public int pageSize(QueryShape shape, int requiredSize) {
+        int defaultSize = shape.filtered() ? requiredSize * FILTER_EXPRESSION_MULTIPLIER : requiredSize;
+        ShapeStats shapeStats = stats.get(shape);
+        if (!enabled || shapeStats == null || Double.isNaN(shapeStats.selectivity)) {
+            return defaultSize;
+        }
+        double multiplier = Math.min(maxMultiplier, 1 / Math.max(shapeStats.selectivity, Double.MIN_NORMAL));
+        return (int) Math.max(requiredSize, Math.ceil(requiredSize * multiplier));
+    }
+
+    /**
+     * Registra la selettività osservata su una pagina letta da DynamoDB
+     * @param shape forma della query
+     * @param scanned elementi letti (prima del filtro)
+     * @param returned elementi restituiti (dopo il filtro)
+     */
+    public void record(QueryShape shape, int scanned, int returned) {
+        ShapeStats shapeStats = stats.computeIfAbsent(shape, this::newShapeStats);
+        shapeStats.scannedCounter.increment(scanned);
+        shapeStats.returnedCounter.increment(returned);
+        if (scanned > 0) {
+            shapeStats.update((double) returned / scanned, smoothing);
+        }
+    }
+
+    private ShapeStats newShapeStats(QueryShape shape) {
+        ShapeStats shapeStats = new ShapeStats(
+                Counter.builder(METRIC_PREFIX + ".scanned").tag(TAG_SHAPE, shape.tag()).register(meterRegistry),
+                Counter.builder(METRIC_PREFIX + ".returned").tag(TAG_SHAPE, shape.tag()).register(meterRegistry));
+        Gauge.builder(METRIC_PREFIX + ".read.amplification", shapeStats, ShapeStats::readAmplification)
+                .tag(TAG_SHAPE, shape.tag())
+                .register(meterRegistry);
+        return shapeStats;
+    }
+
+    private static final class ShapeStats {
+        private final Counter scannedCounter;
+        private final Counter returnedCounter;
+        private volatile double selectivity = Double.NaN;
+
+        private ShapeStats(Counter scannedCounter, Counter returnedCounter) {
+            this.scannedCounter = scannedCounter;
+            this.returnedCounter = returnedCounter;
+        }
+
+        private synchronized void update(double observed, double smoothing) {
+            // media mobile esponenziale, la prima osservazione inizializza la stima
+            selectivity = Double.isNaN(selectivity) ? observed : selectivity + smoothing * (observed - selectivity);
+        }
+
+        private double readAmplification() {
+            double current = selectivity;
+            return Double.isNaN(current) || current <= 0 ? Double.NaN : 1 / current;
+        }
+    }
+}
@@ -13,34 +13,71 @@ import it.pagopa.pn.mandate.utils.SetUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
-import software.amazon.awssdk.services.sqs.SqsClient;
-import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
-import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
-import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
-import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
+import reactor.core.publisher.Sinks;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.*;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static it.pagopa.pn.mandate.exceptions.PnMandateExceptionCodes.ERROR_CODE_JSON_PROCESSING_SQS_SERVICE;
+import static it.pagopa.pn.mandate.exceptions.PnMandateExceptionCodes.ERROR_CODE_SQS_SEND_MESSAGE;
 
 @lombok.CustomLog
 @Component
 public class SqsService {
 
-    private final SqsClient sqsClient;
+    private static final int MAX_BATCH_SIZE = 10;
+    private static final int MAX_CONCURRENT_BATCHES = 8;
+
+    private final SqsAsyncClient sqsAsyncClient;
     private final ObjectMapper mapper;
     private final String toDeliveryQueueName;
+    private final int maxEntryRetries;
+    private final Duration sendTimeout;
+    private final Mono<String> queueUrl;
+    private final Sinks.Many<BatchEntry> batchSink;
+    private final AtomicLong entryIdGenerator = new AtomicLong();
 
     private static final String STRING_TYPE = "String";
 
     public SqsService(@Value("${pn.mandate.sqs.to.pn.delivery.name}")String toDeliveryQueueName,
-                      SqsClient sqsClient,
+                      @Value("${pn.mandate.sqs.to.pn.delivery.batch-linger:50ms}") Duration batchLinger,
+                      @Value("${pn.mandate.sqs.to.pn.delivery.max-entry-retries:3}") int maxEntryRetries,
+                      @Value("${pn.mandate.sqs.to.pn.delivery.send-timeout:10s}") Duration sendTimeout,
+                      SqsAsyncClient sqsAsyncClient,
                       ObjectMapper mapper) {
-        this.sqsClient = sqsClient;
+        this.sqsAsyncClient = sqsAsyncClient;
         this.mapper = mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
         this.toDeliveryQueueName = toDeliveryQueueName;
+        this.maxEntryRetries = maxEntryRetries;
+        this.sendTimeout = sendTimeout;
+
+        // la url della coda viene risolta una sola volta, in caso di errore si riprova alla richiesta successiva
+        this.queueUrl = Mono.defer(() -> {
+                    log.debug("get queue url request from queue name: {}", toDeliveryQueueName);
+                    return Mono.fromFuture(sqsAsyncClient.getQueueUrl(GetQueueUrlRequest.builder().queueName(toDeliveryQueueName).build()));
+                })
+                .map(GetQueueUrlResponse::queueUrl)
+                .doOnNext(url -> log.debug("Queue name: {}; Queue URL: {}.", toDeliveryQueueName, url))
+                .cache(url -> Duration.ofMillis(Long.MAX_VALUE), e -> Duration.ZERO, () -> Duration.ZERO);
+
+        // i messaggi inviati in concorrenza vengono raggruppati in SendMessageBatch da massimo 10 entry,
+        // attendendo al massimo batchLinger prima di inviare un batch parziale.
+        // La variante fair di bufferTimeout trattiene i batch finché flatMap non ha domanda: senza,
+        // un flush per timeout in assenza di domanda chiuderebbe con overflow l'unica sottoscrizione
+        this.batchSink = Sinks.many().unicast().onBackpressureBuffer();
+        this.batchSink.asFlux()
+                .bufferTimeout(MAX_BATCH_SIZE, batchLinger, true)
+                .flatMap(entries -> sendBatch(entries, 0), MAX_CONCURRENT_BATCHES)
+                .subscribe(unused -> {}, throwable -> log.error("SQS batch pipeline terminated", throwable));
     }
 
     public Mono<SendMessageResponse> sendToDelivery(MandateEntity entity, EventType eventType) {
@@ -50,13 +87,6 @@ public class SqsService {
     public Mono<SendMessageResponse> sendToDelivery(MandateEntity oldEntity, MandateEntity newEntity, EventType eventType) {
         log.debug("Inserting data {} in SQS {}", newEntity, toDeliveryQueueName);
 
-        log.debug("get queue url request from queue name: {}", toDeliveryQueueName);
-        GetQueueUrlRequest getQueueRequest = GetQueueUrlRequest.builder()
-                .queueName(toDeliveryQueueName)
-                .build();
-        String queueUrl = sqsClient.getQueueUrl(getQueueRequest).queueUrl();
-        log.debug("Queue name: {}; Queue URL: {}.", toDeliveryQueueName, queueUrl);
-
         String eventId = "mandate_"  + newEntity.getMandateId() + "_" + eventType;
         PnMandateEvent.Payload.PayloadBuilder msg = PnMandateEvent.Payload.builder()
                 .mandateId(newEntity.getMandateId())
@@ -71,18 +101,93 @@ public class SqsService {
             msg.removedGroups(SetUtils.getDiffFromSet1ToSet2(oldEntity.getGroups(), newEntity.getGroups()));
         }
 
-        SendMessageRequest sendMsgRequest = SendMessageRequest.builder()
-                .queueUrl(queueUrl)
+        SendMessageBatchRequestEntry sendMsgEntry = SendMessageBatchRequestEntry.builder()
+                .id(String.valueOf(entryIdGenerator.incrementAndGet()))
                 .messageAttributes(buildMessageAttributeMap(eventId, eventType))
                 .messageBody(toJson(msg.build()))
                 .build();
 
-        log.debug("SendMessageRequest: {}", sendMsgRequest);
+        log.debug("SendMessageBatchRequestEntry: {}", sendMsgEntry);
 
-        return Mono.fromCallable(() -> sqsClient.sendMessage(sendMsgRequest))
+        return Mono.defer(() -> {
+                    BatchEntry batchEntry = new BatchEntry(sendMsgEntry, Sinks.one());
+                    batchSink.emitNext(batchEntry, Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+                    return batchEntry.result().asMono();
+                })
+                // il chiamante non resta in attesa oltre sendTimeout anche se il batch non viene completato
+                .timeout(sendTimeout, Mono.error(() -> new PnInternalException("can not send message to queue - timeout", ERROR_CODE_SQS_SEND_MESSAGE)))
                 .doOnNext(m -> log.info("Inserted data in SQS {}", toDeliveryQueueName));
     }
 
+    /**
+     * Invia un batch di messaggi e completa l'esito di ogni singola entry.
+     * Le entry fallite per errori non imputabili al mittente vengono ritentate fino a maxEntryRetries volte.
+     *
+     * @param entries entry da inviare (massimo 10)
+     * @param attempt numero del tentativo corrente
+     * @return mono vuoto al completamento del batch
+     */
+    private Mono<Void> sendBatch(List<BatchEntry> entries, int attempt) {
+        Map<String, BatchEntry> entriesById = entries.stream()
+                .collect(Collectors.toMap(e -> e.request().id(), Function.identity()));
+
+        return queueUrl
+                .flatMap(url -> Mono.fromFuture(sqsAsyncClient.sendMessageBatch(SendMessageBatchRequest.builder()
+                        .queueUrl(url)
+                        .entries(entries.stream().map(BatchEntry::request).toList())
+                        .build())))
+                .flatMap(response -> {
+                    response.successful().forEach(result -> {
+                        BatchEntry entry = entriesById.remove(result.id());
+                        if (entry != null) {
+                            entry.result().tryEmitValue(SendMessageResponse.builder()
+                                    .messageId(result.messageId())
+                                    .md5OfMessageBody(result.md5OfMessageBody())
+                                    .md5OfMessageAttributes(result.md5OfMessageAttributes())
+                                    .sequenceNumber(result.sequenceNumber())
+                                    .build());
+                        }
+                    });
+
+                    List<BatchEntry> toRetry = new ArrayList<>();
+                    response.failed().forEach(error -> {
+                        BatchEntry entry = entriesById.remove(error.id());
+                        if (entry == null) {
+                            return;
+                        }
+                        if (Boolean.FALSE.equals(error.senderFault())) {
+                            retryOrFail(entry, attempt, error.code(), toRetry);
+                        } else {
+                            log.error("SQS entry failed code={} message={}", error.code(), error.message());
+                            entry.result().tryEmitError(new PnInternalException("can not send message to queue - " + error.code(), ERROR_CODE_SQS_SEND_MESSAGE));
+                        }
+                    });
+                    // eventuali entry senza esito vengono ritentate con lo stesso limite di tentativi
+                    entriesById.values().forEach(entry -> retryOrFail(entry, attempt, "MissingResult", toRetry));
+
+                    if (toRetry.isEmpty()) {
+                        return Mono.<Void>empty();
+                    }
+                    return Mono.delay(Duration.ofMillis(100L * (attempt + 1)))
+                            .then(sendBatch(toRetry, attempt + 1));
+                })
+                .onErrorResume(throwable -> {
+                    log.error("SQS sendMessageBatch failed", throwable);
+                    entriesById.values().forEach(entry -> entry.result().tryEmitError(throwable));
+                    return Mono.empty();
+                });
+    }
+
+    private void retryOrFail(BatchEntry entry, int attempt, String code, List<BatchEntry> toRetry) {
+        if (attempt < maxEntryRetries) {
+            log.warn("SQS entry failed, retrying code={} attempt={}", code, attempt + 1);
+            toRetry.add(entry);
+        } else {
+            log.error("SQS entry failed code={} attempts={}", code, attempt + 1);
+            entry.result().tryEmitError(new PnInternalException("can not send message to queue - " + code, ERROR_CODE_SQS_SEND_MESSAGE));
+        }
+    }
+
     private Map<String, MessageAttributeValue> buildMessageAttributeMap(String eventId, EventType eventType) {
         Map<String, MessageAttributeValue> attributes = new HashMap<>();
         Instant now = Instant.now();
@@ -97,6 +202,9 @@ public class SqsService {
         return MessageAttributeValue.builder().stringValue(value).dataType(STRING_TYPE).build();
     }
 
+    private record BatchEntry(SendMessageBatchRequestEntry request, Sinks.One<SendMessageResponse> result) {
+    }
+
     private String toJson(PnMandateEvent.Payload pnMandateEvent) {
         try {
             return mapper.writeValueAsString(pnMandateEvent);
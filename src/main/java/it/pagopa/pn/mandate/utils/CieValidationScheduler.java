@@ -0,0 +1,128 @@
+package it.pagopa.pn.mandate.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import it.pagopa.pn.ciechecker.CieChecker;
+import it.pagopa.pn.mandate.config.PnMandateConfig;
+import it.pagopa.pn.mandate.exceptions.PnCieValidationOverloadException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.MDC;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * Esegue la validazione CIE (verifiche RSA/PKIX bloccanti) su uno scheduler dedicato e limitato,
+ * in modo da non occupare i thread dell'event loop di Netty.
+ * A coda piena la richiesta viene rifiutata con {@link PnCieValidationOverloadException} (503).
+ * Espone le metriche del tempo di attesa in coda e del tempo di esecuzione.
+ */
+@Component
+@lombok.CustomLog
+public class CieValidationScheduler {
+
+    private static final String METRIC_PREFIX = "pn.mandate.cie.validation";
+
+    private final Scheduler scheduler;
+    private final Timer queueWaitTimer;
+    private final Timer executionTimer;
+    private final Counter rejectedCounter;
+
+    public CieValidationScheduler(PnMandateConfig pnMandateConfig, MeterRegistry meterRegistry) {
+        PnMandateConfig.ExecutorConfig schedulerConfig = pnMandateConfig.getCieValidationScheduler();
+        if (schedulerConfig != null && schedulerConfig.isEnabled()) {
+            // la coda del boundedElastic è per thread: la dimensione configurata (totale) viene ripartita tra i thread
+            int queueSizePerThread = Math.max(1, (schedulerConfig.getQueueSize() + schedulerConfig.getThreads() - 1) / schedulerConfig.getThreads());
+            log.info("cie validation scheduler enabled threads={} queueSize={} queueSizePerThread={}",
+                    schedulerConfig.getThreads(), schedulerConfig.getQueueSize(), queueSizePerThread);
+            this.scheduler = Schedulers.newBoundedElastic(schedulerConfig.getThreads(), queueSizePerThread, "cie-validation");
+        } else {
+            this.scheduler = null;
+        }
+        this.queueWaitTimer = Timer.builder(METRIC_PREFIX + ".queue.wait").register(meterRegistry);
+        this.executionTimer = Timer.builder(METRIC_PREFIX + ".execution").register(meterRegistry);
+        this.rejectedCounter = Counter.builder(METRIC_PREFIX + ".rejected").register(meterRegistry);
+    }
+
+    /**
+     * Esegue il task sullo scheduler dedicato propagando l'MDC del chiamante.
+     * Se lo scheduler è disabilitato il task viene eseguito sul thread di sottoscrizione
+     * @param task task bloccante
+     * @return Mono con il risultato del task
+     */
+    public <T> Mono<T> execute(Callable<T> task) {
+        return Mono.defer(() -> {
+            Map<String, String> mdc = MDC.getCopyOfContextMap();
+            return schedule(worker -> Mono.fromCallable(() -> withMdc(mdc, task)));
+        });
+    }
+
+    /**
+     * Sottoscrive il Mono prodotto da work su un worker dello scheduler dedicato.
+     * A work viene passato lo scheduler su cui eseguire i propri step: essendo già sul worker assegnato
+     * è Schedulers.immediate(), così gli step restano sullo stesso thread e occupano un solo posto in coda.
+     * L'MDC del chiamante viene letto prima del cambio di thread e passato a work nel context Reactor
+     * con chiave {@link CieChecker#CALLER_MDC_CONTEXT_KEY}
+     * @param work funzione che costruisce il Mono da eseguire
+     * @return Mono con il risultato di work
+     */
+    public <T> Mono<T> schedule(Function<Scheduler, Mono<T>> work) {
+        return Mono.defer(() -> {
+                    Map<String, String> mdc = MDC.getCopyOfContextMap();
+                    Mono<T> scheduled;
+                    if (scheduler == null) {
+                        scheduled = Mono.defer(() -> timed(work.apply(Schedulers.immediate())));
+                    } else {
+                        long submitted = System.nanoTime();
+                        scheduled = Mono.defer(() -> {
+                                    queueWaitTimer.record(Duration.ofNanos(System.nanoTime() - submitted));
+                                    return timed(work.apply(Schedulers.immediate()));
+                                })
+                                .subscribeOn(scheduler);
+                    }
+                    return mdc == null ? scheduled : scheduled.contextWrite(Context.of(CieChecker.CALLER_MDC_CONTEXT_KEY, mdc));
+                })
+                .onErrorMap(RejectedExecutionException.class, ex -> {
+                    rejectedCounter.increment();
+                    log.warn("cie validation rejected, scheduler queue is full");
+                    return new PnCieValidationOverloadException();
+                });
+    }
+
+    private static <T> T withMdc(Map<String, String> mdc, Callable<T> task) throws Exception {
+        Map<String, String> previous = MDC.getCopyOfContextMap();
+        if (mdc != null) {
+            MDC.setContextMap(mdc);
+        }
+        try {
+            return task.call();
+        } finally {
+            if (previous != null) {
+                MDC.setContextMap(previous);
+            } else {
+                MDC.clear();
+            }
+        }
+    }
+
+    private <T> Mono<T> timed(Mono<T> work) {
+        long start = System.nanoTime();
+        return work.doFinally(signal -> executionTimer.record(Duration.ofNanos(System.nanoTime() - start)));
+    }
+
+    @PreDestroy
+    public void dispose() {
+        if (scheduler != null) {
+            scheduler.dispose();
+        }
+    }
+}
@@ -3,23 +3,35 @@ package it.pagopa.pn.ciechecker.generator.api;
 
 import it.pagopa.pn.ciechecker.CieChecker;
 import it.pagopa.pn.ciechecker.CieCheckerImpl;
+import it.pagopa.pn.ciechecker.CieCheckerInterface;
 import it.pagopa.pn.ciechecker.client.s3.S3BucketClient;
 import it.pagopa.pn.ciechecker.generator.loader.CertAndKeyLoader;
+import it.pagopa.pn.ciechecker.exception.CieCheckerException;
 import it.pagopa.pn.ciechecker.generator.model.CertAndKey;
 import it.pagopa.pn.ciechecker.model.CieValidationData;
 import it.pagopa.pn.ciechecker.model.ResultCieChecker;
+import it.pagopa.pn.ciechecker.utils.ValidateUtils;
 import it.pagopa.pn.mandate.config.PnMandateConfig;
+import it.pagopa.pn.mandate.utils.CieValidationScheduler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.cms.CMSSignedData;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
 import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.http.AbortableInputStream;
 import software.amazon.awssdk.services.s3.S3Client;
@@ -31,14 +43,20 @@ import java.io.InputStream;
 import java.nio.file.Path;
 import java.security.GeneralSecurityException;
 import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.ZipInputStream;
 
+import static it.pagopa.pn.ciechecker.utils.CieCheckerConstants.CSCA_ANCHOR_PATH_FILENAME;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
 
 @SpringBootTest(classes = {CieGeneratorApi.class, S3Client.class, CieCheckerImpl.class})
 @Slf4j
 @ActiveProfiles("test")
+@TestPropertySource(properties = "pn.mandate.dsc-validation-cache.enabled=true")
 @EnableConfigurationProperties(PnMandateConfig.class)
 public class CieGeneratorApiTest {
 
@@ -54,16 +72,21 @@ public class CieGeneratorApiTest {
     @Autowired
     private CieChecker cieChecker;
 
+    @Autowired
+    private CieCheckerInterface cieCheckerInterface;
+
     private static final Path basePath = Path.of("src", "test", "resources");
     private static final Path outputDir = Path.of("src", "test", "resources", "output-dir");
 
     private static final String CA_AND_KEY_ZIP = "ca_and_key.zip";
     //PARAMETERS
     private static final String COD_FISCALE = "RSSMRA80A01H501U";
+    private static final String OTHER_COD_FISCALE = "BNCGNN80A01H501X";
     private static final String NONCE = "02461";
     private static final LocalDate EXPIRY_DATE = LocalDate.of(2030, 12, 31);
     public static final String NEW_CSCA_ANCHOR_PATH_FILENAME = "src/test/resources/new_IT_MasterListCSCA.zip";
     public static final String CA_AND_KEY_PATH_FILENAME = "src/test/resources/ca_and_key.zip";
+    private static final String MDC_TEST_KEY = "cie_test_caller";
 
 
     CieGeneratorApiImpl cieGeneratorApi;
@@ -96,6 +119,145 @@ public class CieGeneratorApiTest {
         Assertions.assertEquals(ResultCieChecker.OK,cieChecker.validateMandate(data));
     }
 
+    @Test
+    void cieValidationDataMandateAsyncTest() {
+        CieValidationData data = cieGeneratorApi.generateCieValidationData(outputDir.toAbsolutePath(), COD_FISCALE, COD_FISCALE,EXPIRY_DATE, NONCE);
+        StepVerifier.create(cieChecker.validateMandateAsync(data, Schedulers.boundedElastic()))
+                .expectNext(ResultCieChecker.OK)
+                .verifyComplete();
+    }
+
+    @Test
+    void cieValidationDataMandateAsyncKoTest() {
+        // codice fiscale della CIE diverso da quello del delegante: la variante reattiva restituisce lo stesso esito di quella sincrona
+        ResultCieChecker expected = cieChecker.validateMandate(cieGeneratorApi.generateCieValidationData(outputDir.toAbsolutePath(), COD_FISCALE, OTHER_COD_FISCALE, EXPIRY_DATE, NONCE));
+        Assertions.assertNotEquals(ResultCieChecker.OK, expected);
+
+        CieValidationData data = cieGeneratorApi.generateCieValidationData(outputDir.toAbsolutePath(), COD_FISCALE, OTHER_COD_FISCALE, EXPIRY_DATE, NONCE);
+        StepVerifier.create(cieChecker.validateMandateAsync(data, Schedulers.boundedElastic()))
+                .expectNext(expected)
+                .verifyComplete();
+    }
+
+    @Test
+    void cieValidationDataMandateAsyncPropagatesCallerMdcTest() {
+        CieValidationData data = cieGeneratorApi.generateCieValidationData(outputDir.toAbsolutePath(), COD_FISCALE, COD_FISCALE,EXPIRY_DATE, NONCE);
+        CieCheckerImpl spyChecker = (CieCheckerImpl) Mockito.spy(cieChecker);
+        AtomicReference<String> stageMdc = new AtomicReference<>();
+        AtomicReference<String> stageThread = new AtomicReference<>();
+        Mockito.doAnswer(invocation -> {
+            stageMdc.set(MDC.get(MDC_TEST_KEY));
+            stageThread.set(Thread.currentThread().getName());
+            return invocation.callRealMethod();
+        }).when(spyChecker).verifyCodFiscDelegante(any());
+        CieValidationScheduler scheduler = newCieValidationScheduler();
+
+        MDC.put(MDC_TEST_KEY, "caller");
+        try {
+            StepVerifier.create(scheduler.schedule(worker -> spyChecker.validateMandateAsync(data, worker)))
+                    .expectNext(ResultCieChecker.OK)
+                    .verifyComplete();
+        } finally {
+            MDC.remove(MDC_TEST_KEY);
+            scheduler.dispose();
+        }
+
+        // lo step gira sul worker dello scheduler dedicato ma vede l'MDC del chiamante
+        Assertions.assertTrue(stageThread.get().startsWith("cie-validation"));
+        Assertions.assertEquals("caller", stageMdc.get());
+    }
+
+    @Test
+    void cieValidationDataMandateAsyncCancelledBetweenStagesTest() throws Exception {
+        CieValidationData data = cieGeneratorApi.generateCieValidationData(outputDir.toAbsolutePath(), COD_FISCALE, COD_FISCALE,EXPIRY_DATE, NONCE);
+        CieCheckerImpl spyChecker = (CieCheckerImpl) Mockito.spy(cieChecker);
+        CountDownLatch inStage = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            inStage.countDown();
+            Assertions.assertTrue(release.await(5, TimeUnit.SECONDS));
+            return invocation.callRealMethod();
+        }).when(spyChecker).verifyChallengeFromSignature(any());
+
+        Disposable subscription = spyChecker.validateMandateAsync(data, Schedulers.boundedElastic()).subscribe();
+        Assertions.assertTrue(inStage.await(5, TimeUnit.SECONDS));
+        subscription.dispose();
+        release.countDown();
+
+        // lo step in corso termina, quelli successivi non vengono avviati
+        Mockito.verify(spyChecker, Mockito.after(500).never()).verifyCodFiscDelegante(any());
+        Mockito.verify(spyChecker, Mockito.never()).verifyExpirationCie(any());
+    }
+
+    @Test
+    void cieValidationDataMandateAsyncParallelTest() {
+        PnMandateConfig.ExecutorConfig parallelConfig = new PnMandateConfig.ExecutorConfig();
+        parallelConfig.setEnabled(true);
+        parallelConfig.setThreads(2);
+        Mockito.doReturn(parallelConfig).when(config).getCieParallelVerification();
+        when(s3BucketClient.getObjectContent(anyString())).thenAnswer(invocation -> new ResponseInputStream<>(
+                GetObjectResponse.builder().build(),
+                AbortableInputStream.create(new FileInputStream(Path.of(NEW_CSCA_ANCHOR_PATH_FILENAME).toFile()))));
+        CieCheckerImpl parallelChecker = Mockito.spy(new CieCheckerImpl(config, s3BucketClient));
+        AtomicReference<String> stageThread = new AtomicReference<>();
+        Mockito.doAnswer(invocation -> {
+            stageThread.set(Thread.currentThread().getName());
+            return invocation.callRealMethod();
+        }).when(parallelChecker).verifyCodFiscDelegante(any());
+        try {
+            parallelChecker.init();
+            CieValidationData data = cieGeneratorApi.generateCieValidationData(outputDir.toAbsolutePath(), COD_FISCALE, COD_FISCALE,EXPIRY_DATE, NONCE);
+
+            StepVerifier.create(parallelChecker.validateMandateAsync(data, Schedulers.boundedElastic()))
+                    .expectNext(ResultCieChecker.OK)
+                    .verifyComplete();
+        } finally {
+            parallelChecker.shutdown();
+        }
+
+        // con la verifica parallela abilitata anche la variante reattiva usa il pool dedicato
+        Assertions.assertTrue(stageThread.get().startsWith("cie-verification-"));
+    }
+
+    @Test
+    void cieValidationDataDscCacheInvalidatedOnCscaReloadTest() throws Exception {
+        CieValidationData data = cieGeneratorApi.generateCieValidationData(outputDir.toAbsolutePath(), COD_FISCALE, COD_FISCALE,EXPIRY_DATE, NONCE);
+        Assertions.assertEquals(ResultCieChecker.OK,cieChecker.validateMandate(data));
+
+        // il SOD MRTD è già stato troncato da validateMandate: la seconda verifica usa l'esito in cache
+        CMSSignedData cms = new CMSSignedData(data.getCieMrtd().getSod());
+        Assertions.assertEquals(ResultCieChecker.OK, cieCheckerInterface.verifyDigitalSignature(cms));
+
+        // CSCA che non contengono la CA di test: la cache deve essere svuotata e la verifica fallire
+        cieCheckerInterface.setCscaAnchor(ValidateUtils.extractCscaAnchorFromZip(new FileInputStream(CSCA_ANCHOR_PATH_FILENAME)));
+        Assertions.assertThrows(CieCheckerException.class, () -> cieCheckerInterface.verifyDigitalSignature(cms));
+    }
+
+    @Test
+    void cscaAnchorHotReloadOnETagChangeTest() {
+        CieValidationData data = cieGeneratorApi.generateCieValidationData(outputDir.toAbsolutePath(), COD_FISCALE, COD_FISCALE,EXPIRY_DATE, NONCE);
+        Assertions.assertEquals(ResultCieChecker.OK,cieChecker.validateMandate(data));
+
+        // nuova master list su S3 che non contiene la CA di test
+        when(s3BucketClient.getObjectETag(anyString())).thenReturn("etag-2");
+        when(s3BucketClient.getObjectContent(anyString()))
+                .thenAnswer(invocation -> new FileInputStream(CSCA_ANCHOR_PATH_FILENAME));
+
+        Assertions.assertTrue(cieChecker.reloadCscaAnchorIfChanged());
+        Assertions.assertFalse(cieChecker.reloadCscaAnchorIfChanged());
+
+        CieValidationData reloadedData = cieGeneratorApi.generateCieValidationData(outputDir.toAbsolutePath(), COD_FISCALE, COD_FISCALE,EXPIRY_DATE, NONCE);
+        Assertions.assertNotEquals(ResultCieChecker.OK,cieChecker.validateMandate(reloadedData));
+    }
+
+    private static CieValidationScheduler newCieValidationScheduler() {
+        PnMandateConfig schedulerConfig = new PnMandateConfig();
+        schedulerConfig.getCieValidationScheduler().setEnabled(true);
+        schedulerConfig.getCieValidationScheduler().setThreads(1);
+        schedulerConfig.getCieValidationScheduler().setQueueSize(10);
+        return new CieValidationScheduler(schedulerConfig, new SimpleMeterRegistry());
+    }
+
     private class CertAndKeyLoaderTest extends CertAndKeyLoader {
 
         Path cscaFilePath;
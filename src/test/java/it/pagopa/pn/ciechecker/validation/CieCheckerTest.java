@@ -476,7 +476,7 @@ class CieCheckerTest {
         X509CertificateHolder certHolder = ValidateUtils.extractDscCertDer(cms);
         byte[] dscDer = certHolder.getEncoded();
         assertThrows(CieCheckerException.class,
-                () ->ValidateUtils.verifyDscAgainstTrustBundle(dscDer, null, null));
+                () ->ValidateUtils.verifyDscAgainstTrustBundle(dscDer, (List<X509Certificate>) null, null));
 
         // anchors empty
         assertThrows(CieCheckerException.class,
@@ -3,6 +3,9 @@ package it.pagopa.pn.ciechecker.validation;
 import it.pagopa.pn.ciechecker.client.s3.S3BucketClientImpl;
 import it.pagopa.pn.ciechecker.exception.CieCheckerException;
 import it.pagopa.pn.ciechecker.model.*;
+import it.pagopa.pn.ciechecker.utils.CscaAnchorSnapshot;
+import it.pagopa.pn.ciechecker.utils.CscaTrustContext;
+import it.pagopa.pn.ciechecker.utils.CieCleanUtils;
 import it.pagopa.pn.ciechecker.utils.ValidateUtils;
 import it.pagopa.pn.mandate.MockAWSObjectsTestConfig;
 import it.pagopa.pn.mandate.config.PnMandateConfig;
@@ -369,7 +372,27 @@ class ValidateUtilsTest {
         log.info(" anchors null ⇒ false ");
         //Assertions.assertFalse(ValidateUtils.verifyDscAgainstTrustBundle(new byte[]{1}, null, null));
         Assertions.assertThrows(CieCheckerException.class,
-                () ->ValidateUtils.verifyDscAgainstTrustBundle(new byte[]{1}, null, null));
+                () ->ValidateUtils.verifyDscAgainstTrustBundle(new byte[]{1}, (List<X509Certificate>) null, null));
+
+        log.info(" trust context null ⇒ false ");
+        Assertions.assertThrows(CieCheckerException.class,
+                () ->ValidateUtils.verifyDscAgainstTrustBundle(new byte[]{1}, (CscaTrustContext) null, null));
+    }
+
+    @Test
+    void verifyDscAgainstTrustContextIsFalseTest() throws Exception {
+        CMSSignedData cms = new CMSSignedData(validationData.getCieIas().getSod());
+        byte[] dscDer = ValidateUtils.extractDscCertDer(cms).getEncoded();
+        // CA di test che non ha firmato il DSC
+        List<X509Certificate> wrongBundle = ValidateUtils.loadCertificateFromPemFile(Files.newInputStream(CATEST_FILE_PATH));
+        CscaTrustContext trustContext = CscaTrustContext.of(wrongBundle);
+
+        Assertions.assertEquals(wrongBundle, trustContext.getAnchors());
+        // il contesto è riutilizzabile tra più validazioni
+        Assertions.assertThrows(CieCheckerException.class,
+                () -> ValidateUtils.verifyDscAgainstTrustBundle(dscDer, trustContext, null));
+        Assertions.assertThrows(CieCheckerException.class,
+                () -> ValidateUtils.verifyDscAgainstTrustBundle(dscDer, trustContext, new Date()));
     }
 
     // parseCscaAnchors
@@ -616,6 +639,30 @@ class ValidateUtilsTest {
         log.info("SodSummary: {}", summary);
 
     }
+    @Test
+    void testParseSodReusedByDecodeSodHr() throws Exception {
+        byte[] sodBytes = Files.readAllBytes(sodFile);
+
+        ParsedSod sod = ValidateUtils.parseSod(sodBytes);
+        Assertions.assertNotNull(sod.getCms());
+        Assertions.assertNotNull(sod.getSignerInformation());
+        Assertions.assertArrayEquals(sod.getDscHolder().getEncoded(), sod.getDscEncoded());
+        assertEquals(sod.getDscCertificate().getPublicKey(), sod.getPublicKey());
+
+        SodSummary summary = decodeSodHr(sod);
+        SodSummary fromBytes = decodeSodHr(sodBytes);
+        assertSame(sod.getDscCertificate(), summary.getDscCertificate());
+        assertEquals(fromBytes.getDgExpectedHashes().keySet(), summary.getDgExpectedHashes().keySet());
+        assertEquals(ResultCieChecker.OK, ValidateUtils.verifyDigitalSignature(sod));
+    }
+
+    @Test
+    void testParseSodFail() {
+        CieCheckerException exception = assertThrows(CieCheckerException.class,
+                () -> ValidateUtils.parseSod(new byte[]{0x01, 0x02, 0x03}));
+        assertEquals(ResultCieChecker.KO_EXC_GENERATE_CMSSIGNEDDATA, exception.getResult());
+    }
+
     @Test
     void testDecodeSodHrFail() {
         byte[] corruptedSod = new byte[]{0x01, 0x02, 0x03}; // SOD corrotto
@@ -693,6 +740,41 @@ class ValidateUtilsTest {
 
     }
 
+    @Test
+    @SneakyThrows
+    void cleanAsn1OrTlvFieldWithoutPaddingIsNotCopied() {
+        byte[] dg1 = Files.readAllBytes(dg1Files);
+        byte[] dg1Padded = Arrays.copyOf(dg1, dg1.length + 10);
+        int realLength = CieCleanUtils.asn1Length(dg1Padded, "DG1");
+
+        byte[] cleaned = CieCleanUtils.cleanAsn1OrTlvField(dg1Padded, "DG1");
+        assertEquals(realLength, cleaned.length);
+        assertSame(cleaned, CieCleanUtils.cleanAsn1OrTlvField(cleaned, "DG1"));
+    }
+
+    @Test
+    @SneakyThrows
+    void cscaAnchorSnapshotRoundTrip() {
+        CertificateFactory cf = CertificateFactory.getInstance(X_509);
+        List<X509Certificate> anchors = new ArrayList<>();
+        try (var in = Files.newInputStream(CATEST_FILE_PATH)) {
+            for (Certificate c : cf.generateCertificates(in)) anchors.add((X509Certificate) c);
+        }
+        String sourceHash = CscaAnchorSnapshot.sourceHash(Files.readAllBytes(CATEST_FILE_PATH));
+        byte[] snapshot = CscaAnchorSnapshot.write(sourceHash, anchors, "snapshot-key");
+
+        List<X509Certificate> read = CscaAnchorSnapshot.read(new ByteArrayInputStream(snapshot), sourceHash, "snapshot-key");
+        assertEquals(anchors, read);
+        // snapshot relativo a un'altra master list
+        assertNull(CscaAnchorSnapshot.read(new ByteArrayInputStream(snapshot), CscaAnchorSnapshot.sourceHash(new byte[]{1}), "snapshot-key"));
+        // snapshot autenticato con un'altra chiave
+        assertNull(CscaAnchorSnapshot.read(new ByteArrayInputStream(snapshot), sourceHash, "other-key"));
+        // snapshot modificato dopo la scrittura
+        byte[] tampered = snapshot.clone();
+        tampered[tampered.length / 2] ^= 1;
+        assertNull(CscaAnchorSnapshot.read(new ByteArrayInputStream(tampered), sourceHash, "snapshot-key"));
+    }
+
     @Test
     @SneakyThrows
     void cleanDG11Padding() {
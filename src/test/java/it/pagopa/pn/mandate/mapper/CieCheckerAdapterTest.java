@@ -1,13 +1,20 @@
 package it.pagopa.pn.mandate.mapper;
 
 import it.pagopa.pn.ciechecker.CieChecker;
-import it.pagopa.pn.ciechecker.exception.CieCheckerException;
 import it.pagopa.pn.ciechecker.model.CieValidationData;
 import it.pagopa.pn.ciechecker.model.ResultCieChecker;
 import it.pagopa.pn.mandate.appio.generated.openapi.server.v1.dto.CIEValidationData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.pagopa.pn.mandate.config.PnMandateConfig;
+import it.pagopa.pn.mandate.exceptions.PnInvalidCieDataException;
 import it.pagopa.pn.mandate.utils.CieResultAnalyzer;
+import it.pagopa.pn.mandate.utils.CieValidationScheduler;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
 
 import static org.mockito.Mockito.*;
 
@@ -24,26 +31,40 @@ class CieCheckerAdapterTest {
         cieChecker = mock(CieChecker.class);
         doNothing().when(cieChecker).init();
         cieResultAnalyzer = mock(CieResultAnalyzer.class);
-        cieCheckerAdapter = new CieCheckerAdapterImpl(cieCheckerAdapterMapper, cieChecker, cieResultAnalyzer);
+        CieValidationScheduler cieValidationScheduler = new CieValidationScheduler(new PnMandateConfig(), new SimpleMeterRegistry());
+        cieCheckerAdapter = new CieCheckerAdapterImpl(cieCheckerAdapterMapper, cieChecker, cieResultAnalyzer, cieValidationScheduler);
     }
 
     @Test
-    void validateMandate_success() throws CieCheckerException {
+    void validateCieAsync_success() {
         CIEValidationData data = mock(CIEValidationData.class);
-        String nonce = "nonce";
-        String delegatorTaxId = "taxId";
         CieValidationData cieValidationData = mock(CieValidationData.class);
 
-        when(cieCheckerAdapterMapper.mapToLibDto(data, nonce, delegatorTaxId)).thenReturn(cieValidationData);
-        when(cieChecker.validateMandate(cieValidationData)).thenReturn(ResultCieChecker.OK);
-        doNothing().when(cieResultAnalyzer).analyzeResult(ResultCieChecker.OK);
+        when(cieCheckerAdapterMapper.mapToLibDto(data, "nonce", "taxId")).thenReturn(cieValidationData);
+        when(cieChecker.validateMandateAsync(eq(cieValidationData), any())).thenReturn(Mono.just(ResultCieChecker.OK));
 
-        cieCheckerAdapter.validateCie(data, nonce, delegatorTaxId);
+        StepVerifier.create(cieCheckerAdapter.validateCieAsync(data, "nonce", "taxId"))
+                .verifyComplete();
 
         verify(cieChecker).init();
-        verify(cieCheckerAdapterMapper).mapToLibDto(data, nonce, delegatorTaxId);
-        verify(cieChecker).validateMandate(cieValidationData);
+        verify(cieCheckerAdapterMapper).mapToLibDto(data, "nonce", "taxId");
+        verify(cieResultAnalyzer).analyzeResult(ResultCieChecker.OK);
+        verify(cieChecker, never()).validateMandate(any());
     }
 
-}
+    @Test
+    void validateCieAsync_ko() {
+        CIEValidationData data = mock(CIEValidationData.class);
+        CieValidationData cieValidationData = mock(CieValidationData.class);
 
+        when(cieCheckerAdapterMapper.mapToLibDto(data, "nonce", "taxId")).thenReturn(cieValidationData);
+        when(cieChecker.validateMandateAsync(eq(cieValidationData), any())).thenReturn(Mono.just(ResultCieChecker.KO_EXC_EXPIRATIONDATE));
+        doThrow(new PnInvalidCieDataException(ResultCieChecker.KO_EXC_EXPIRATIONDATE, List.of()))
+                .when(cieResultAnalyzer).analyzeResult(ResultCieChecker.KO_EXC_EXPIRATIONDATE);
+
+        StepVerifier.create(cieCheckerAdapter.validateCieAsync(data, "nonce", "taxId"))
+                .expectError(PnInvalidCieDataException.class)
+                .verify();
+    }
+
+}
@@ -327,4 +327,69 @@ class DelegateDaoIT extends AbstractTestConfiguration {
             }
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void reconcilePendingCounter() {
+        //Given
+        MandateEntity mandateToInsert = MandateDaoIT.newMandate(false);
+
+        try {
+            testDao.delete(mandateToInsert.getDelegator(), mandateToInsert.getSk());
+            testDao.delete(mandateToInsert.getDelegate(), DelegateEntity.PENDING_COUNTER_SK);
+            mandateDao.createMandate(mandateToInsert).block(Duration.ofMillis(3000));
+        } catch (Exception e) {
+            System.out.println("Nothing to remove");
+        }
+
+        //When
+        Boolean firstResult = delegateDao.reconcilePendingCounter(mandateToInsert.getDelegate())
+                .block(Duration.ofMillis(3000));
+        Boolean secondResult = delegateDao.reconcilePendingCounter(mandateToInsert.getDelegate())
+                .block(Duration.ofMillis(3000));
+
+        //Then
+        try {
+            Assertions.assertEquals(Boolean.TRUE, firstResult);
+            Assertions.assertEquals(Boolean.FALSE, secondResult);
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            try {
+                testDao.delete(mandateToInsert.getDelegator(), mandateToInsert.getSk());
+                testDao.delete(mandateToInsert.getDelegate(), DelegateEntity.PENDING_COUNTER_SK);
+            } catch (Exception e) {
+                System.out.println("Nothing to remove");
+            }
+        }
+    }
+
+    @Test
+    void acquireReconciliationLease() {
+        //Given
+        try {
+            testDao.delete(DelegateEntity.RECONCILIATION_LEASE_PK, DelegateEntity.RECONCILIATION_LEASE_SK);
+        } catch (Exception e) {
+            System.out.println("Nothing to remove");
+        }
+
+        //When
+        Boolean firstResult = delegateDao.acquireReconciliationLease("instance1", Duration.ofMinutes(5))
+                .block(Duration.ofMillis(3000));
+        Boolean secondResult = delegateDao.acquireReconciliationLease("instance2", Duration.ofMinutes(5))
+                .block(Duration.ofMillis(3000));
+
+        //Then
+        try {
+            Assertions.assertEquals(Boolean.TRUE, firstResult);
+            Assertions.assertEquals(Boolean.FALSE, secondResult);
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            try {
+                testDao.delete(DelegateEntity.RECONCILIATION_LEASE_PK, DelegateEntity.RECONCILIATION_LEASE_SK);
+            } catch (Exception e) {
+                System.out.println("Nothing to remove");
+            }
+        }
+    }
+}
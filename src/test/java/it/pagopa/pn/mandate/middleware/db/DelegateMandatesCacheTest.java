@@ -0,0 +1,146 @@
+package it.pagopa.pn.mandate.middleware.db;
+
+import it.pagopa.pn.mandate.config.PnMandateConfig;
+import it.pagopa.pn.mandate.middleware.db.entities.MandateEntity;
+import it.pagopa.pn.mandate.model.InputSearchMandateDto;
+import it.pagopa.pn.mandate.utils.TypeSegregatorFilter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class DelegateMandatesCacheTest {
+
+    private final Duration d = Duration.ofMillis(3000);
+
+    @Test
+    void getCachesAndInvalidates() {
+        //Given
+        DelegateMandatesCache cache = new DelegateMandatesCache(config(true));
+        MandateEntity mandate = MandateDaoIT.newMandate(true);
+        AtomicInteger loads = new AtomicInteger();
+        InputSearchMandateDto search = search(mandate.getDelegate());
+
+        //When
+        List<MandateEntity> first = cache.get(search, TypeSegregatorFilter.STANDARD, () -> load(loads, mandate)).collectList().block(d);
+        List<MandateEntity> second = cache.get(search(mandate.getDelegate()), TypeSegregatorFilter.STANDARD, () -> load(loads, mandate)).collectList().block(d);
+        cache.invalidate(mandate.getDelegate());
+        List<MandateEntity> third = cache.get(search, TypeSegregatorFilter.STANDARD, () -> load(loads, mandate)).collectList().block(d);
+
+        //Then
+        Assertions.assertEquals(List.of(mandate), first);
+        Assertions.assertEquals(List.of(mandate), second);
+        Assertions.assertEquals(List.of(mandate), third);
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    void getDoesNotCachePartialReads() {
+        //Given
+        DelegateMandatesCache cache = new DelegateMandatesCache(config(true));
+        MandateEntity mandate = MandateDaoIT.newMandate(true);
+        MandateEntity mandate1 = MandateDaoIT.newMandate(true);
+        mandate1.setMandateId(mandate1.getMandateId() + "_1");
+        AtomicInteger loads = new AtomicInteger();
+        InputSearchMandateDto search = search(mandate.getDelegate());
+
+        //When
+        List<MandateEntity> first = cache.get(search, TypeSegregatorFilter.STANDARD, () -> load(loads, mandate, mandate1)).take(1).collectList().block(d);
+        List<MandateEntity> second = cache.get(search, TypeSegregatorFilter.STANDARD, () -> load(loads, mandate, mandate1)).collectList().block(d);
+
+        //Then
+        Assertions.assertEquals(List.of(mandate), first);
+        Assertions.assertEquals(List.of(mandate, mandate1), second);
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    void getDoesNotCacheLoadStartedBeforeInvalidation() {
+        //Given
+        DelegateMandatesCache cache = new DelegateMandatesCache(config(true));
+        MandateEntity mandate = MandateDaoIT.newMandate(true);
+        AtomicInteger loads = new AtomicInteger();
+        Sinks.One<MandateEntity> slowLoad = Sinks.one();
+        InputSearchMandateDto search = search(mandate.getDelegate());
+
+        //When
+        CompletableFuture<List<MandateEntity>> stale = cache.get(search, TypeSegregatorFilter.STANDARD, () -> Flux.defer(() -> {
+            loads.incrementAndGet();
+            return slowLoad.asMono().flux();
+        })).collectList().toFuture();
+        cache.invalidate(mandate.getDelegate());
+        slowLoad.tryEmitValue(mandate);
+        List<MandateEntity> first = stale.join();
+        List<MandateEntity> second = cache.get(search, TypeSegregatorFilter.STANDARD, () -> load(loads)).collectList().block(d);
+
+        //Then
+        Assertions.assertEquals(List.of(mandate), first);
+        Assertions.assertEquals(List.of(), second);
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    void getKeyIsNotAffectedBySearchChanges() {
+        //Given
+        DelegateMandatesCache cache = new DelegateMandatesCache(config(true));
+        MandateEntity mandate = MandateDaoIT.newMandate(true);
+        AtomicInteger loads = new AtomicInteger();
+        InputSearchMandateDto search = search(mandate.getDelegate());
+        search.setGroups(new ArrayList<>(List.of("group1")));
+
+        //When
+        cache.get(search, null, () -> load(loads, mandate)).collectList().block(d);
+        search.getGroups().add("group2");
+        search.setMandateId("other");
+        List<MandateEntity> other = cache.get(search, null, () -> load(loads)).collectList().block(d);
+        InputSearchMandateDto original = search(mandate.getDelegate());
+        original.setGroups(List.of("group1"));
+        List<MandateEntity> cached = cache.get(original, null, () -> load(loads)).collectList().block(d);
+
+        //Then
+        Assertions.assertEquals(List.of(), other);
+        Assertions.assertEquals(List.of(mandate), cached);
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    void getDisabled() {
+        //Given
+        DelegateMandatesCache cache = new DelegateMandatesCache(config(false));
+        MandateEntity mandate = MandateDaoIT.newMandate(true);
+        AtomicInteger loads = new AtomicInteger();
+
+        //When
+        cache.get(search(mandate.getDelegate()), null, () -> load(loads, mandate)).collectList().block(d);
+        cache.get(search(mandate.getDelegate()), null, () -> load(loads, mandate)).collectList().block(d);
+
+        //Then
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    private static PnMandateConfig config(boolean enabled) {
+        PnMandateConfig config = new PnMandateConfig();
+        config.getDelegateMandatesCache().setEnabled(enabled);
+        return config;
+    }
+
+    private static InputSearchMandateDto search(String delegateId) {
+        return InputSearchMandateDto.builder()
+                .delegateId(delegateId)
+                .status(20)
+                .build();
+    }
+
+    private static Flux<MandateEntity> load(AtomicInteger loads, MandateEntity... mandates) {
+        return Flux.defer(() -> {
+            loads.incrementAndGet();
+            return Flux.just(mandates);
+        });
+    }
+}
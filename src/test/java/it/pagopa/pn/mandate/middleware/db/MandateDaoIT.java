@@ -16,7 +16,10 @@ import it.pagopa.pn.mandate.generated.openapi.server.v1.dto.MandateDto.StatusEnu
 import it.pagopa.pn.mandate.mapper.StatusEnumMapper;
 import it.pagopa.pn.mandate.middleware.db.entities.MandateEntity;
 import it.pagopa.pn.mandate.middleware.db.entities.MandateSupportEntity;
+import it.pagopa.pn.mandate.model.ExpireMandateRequestDto;
+import it.pagopa.pn.mandate.model.ExpireMandateResultDto;
 import it.pagopa.pn.mandate.model.InputSearchMandateDto;
+import it.pagopa.pn.mandate.model.PageResultDto;
 import it.pagopa.pn.mandate.model.WorkFlowType;
 import it.pagopa.pn.mandate.utils.DateUtils;
 import it.pagopa.pn.mandate.utils.RevocationCause;
@@ -32,9 +35,11 @@ import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
 import software.amazon.awssdk.enhanced.dynamodb.model.Page;
 
 import java.time.*;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -475,6 +480,60 @@ public class MandateDaoIT extends AbstractTestConfiguration {
         }
     }
 
+    @Test
+    void listMandatesByDelegatePaged() {
+        //Given
+        MandateEntity mandateToInsert = newMandate(false);
+        MandateEntity mandateToInsert1 = newMandate(false);
+        mandateToInsert1.setDelegator(mandateToInsert1.getDelegator() + "_1");
+        mandateToInsert1.setMandateId(mandateToInsert1.getMandateId() + "_1");
+        MandateEntity mandateToInsert2 = newMandate(false);
+        mandateToInsert2.setDelegator(mandateToInsert2.getDelegator() + "_2");
+        mandateToInsert2.setMandateId(mandateToInsert2.getMandateId() + "_2");
+        List<MandateEntity> mandates = List.of(mandateToInsert, mandateToInsert1, mandateToInsert2);
+
+        try {
+            for (MandateEntity mandate : mandates) {
+                testDao.delete(mandate.getDelegator(), mandate.getSk());
+                mandateDao.createMandate(mandate).block(d);
+            }
+        } catch (Exception e) {
+            System.out.println("Nothing to remove");
+        }
+
+        //When
+        InputSearchMandateDto inputSearchMandateDto = InputSearchMandateDto.builder()
+                .delegateId(mandateToInsert.getDelegate())
+                .cxType(CxTypeAuthFleet.PF)
+                .build();
+        PageResultDto<MandateEntity, PnLastEvaluatedKey> page1 = mandateDao.listMandatesByDelegatePaged(inputSearchMandateDto, TypeSegregatorFilter.STANDARD, 2, null).block(d);
+        Assertions.assertNotNull(page1);
+        Assertions.assertTrue(page1.isMore());
+        // la chiave della pagina successiva passa dalla serializzazione verso il client
+        PnLastEvaluatedKey nextPageKey = PnLastEvaluatedKey.deserialize(page1.getNextPagesKey().get(0).serialize());
+        PageResultDto<MandateEntity, PnLastEvaluatedKey> page2 = mandateDao.listMandatesByDelegatePaged(inputSearchMandateDto, TypeSegregatorFilter.STANDARD, 2, nextPageKey).block(d);
+
+        //Then
+        try {
+            Assertions.assertEquals(2, page1.getPage().size());
+            Assertions.assertNotNull(page2);
+            Assertions.assertEquals(1, page2.getPage().size());
+            Assertions.assertFalse(page2.isMore());
+            Assertions.assertTrue(page2.getNextPagesKey().isEmpty());
+            List<MandateEntity> results = new ArrayList<>(page1.getPage());
+            results.addAll(page2.getPage());
+            Assertions.assertTrue(results.containsAll(mandates));
+        } finally {
+            try {
+                for (MandateEntity mandate : mandates) {
+                    testDao.delete(mandate.getDelegator(), mandate.getSk());
+                }
+            } catch (Exception e) {
+                System.out.println("Nothing to remove");
+            }
+        }
+    }
+
     @Test
     void listMandatesByDelegateWithMandateId() {
         //Given
@@ -1557,6 +1616,37 @@ public class MandateDaoIT extends AbstractTestConfiguration {
     }
 
 
+    @Test
+    void retrieveMandateForDelegate() {
+        //Given
+        MandateEntity mandateToInsert = newMandate(false);
+        String wrongdelegate = mandateToInsert.getDelegate() + "_wrong";
+
+        try {
+            testDao.delete(mandateToInsert.getDelegator(), mandateToInsert.getSk());
+            mandateDao.createMandate(mandateToInsert).block(d);
+        } catch (Exception e) {
+            System.out.println("Nothing to remove");
+        }
+
+        //When
+        MandateEntity result = mandateDao.retrieveMandateForDelegate(mandateToInsert.getDelegate(), mandateToInsert.getMandateId()).block(d);
+        MandateEntity resultWrongDelegate = mandateDao.retrieveMandateForDelegate(wrongdelegate, mandateToInsert.getMandateId()).block(d);
+
+        //Then
+        try {
+            Assertions.assertNotNull(result);
+            Assertions.assertEquals(mandateToInsert, result);
+            Assertions.assertNull(resultWrongDelegate);
+        } finally {
+            try {
+                testDao.delete(mandateToInsert.getDelegator(), mandateToInsert.getSk());
+            } catch (Exception e) {
+                System.out.println("Nothing to remove");
+            }
+        }
+    }
+
     @Test
     void acceptMandateExpiration() {
         //Given
@@ -2215,6 +2305,69 @@ public class MandateDaoIT extends AbstractTestConfiguration {
         assertThrows(PnMandateNotFoundException.class, () -> mono.block(d));
     }
 
+    @Test
+    void expireMandates() {
+        //Given
+        MandateEntity pendingMandate = newMandate(false);
+        MandateEntity activeMandate = newMandate(false);
+        activeMandate.setMandateId("f271e4bf-0d69-4ed6-a39f-4ef2f01f2fd2");
+        activeMandate.setDelegator("PF-f271e4bf-0d69-4ed6-a39f-4efdelegat02");
+        activeMandate.setState(StatusEnumMapper.intValfromStatus(StatusEnum.ACTIVE));
+        activeMandate.setValidto(Instant.now().plus(Duration.ofHours(1)));
+        try {
+            testDao.delete(pendingMandate.getDelegator(), pendingMandate.getSk());
+            testDao.delete(activeMandate.getDelegator(), activeMandate.getSk());
+            mandateDao.createMandate(pendingMandate).block(d);
+            mandateDao.createMandate(activeMandate).block(d);
+        } catch (Exception e) {
+            System.out.println("Nothing to remove");
+        }
+
+        List<ExpireMandateRequestDto> requests = List.of(
+                toExpireRequest(pendingMandate),
+                toExpireRequest(activeMandate),
+                ExpireMandateRequestDto.builder().delegatorInternaluserid("fake").delegatorUid("fake").cxType("PF").mandateId("fake").build());
+
+        //When
+        Map<String, ExpireMandateResultDto.Outcome> outcomes = mandateDao.expireMandates(requests)
+                .collectMap(ExpireMandateResultDto::getMandateId, ExpireMandateResultDto::getOutcome)
+                .block(d);
+
+        //Then
+        try {
+            Assertions.assertNotNull(outcomes);
+            Assertions.assertEquals(3, outcomes.size());
+            Assertions.assertEquals(ExpireMandateResultDto.Outcome.EXPIRED, outcomes.get(pendingMandate.getMandateId()));
+            Assertions.assertEquals(ExpireMandateResultDto.Outcome.SKIPPED, outcomes.get(activeMandate.getMandateId()));
+            Assertions.assertEquals(ExpireMandateResultDto.Outcome.NOT_FOUND, outcomes.get("fake"));
+
+            Assertions.assertNull(testDao.get(pendingMandate.getDelegator(), pendingMandate.getSk()));
+            Assertions.assertNotNull(testDao.getHistory(pendingMandate.getDelegator(), pendingMandate.getSk()));
+            Assertions.assertNotNull(testDao.get(activeMandate.getDelegator(), activeMandate.getSk()));
+            Assertions.assertNull(testDao.getHistory(activeMandate.getDelegator(), activeMandate.getSk()));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            try {
+                testDao.delete(pendingMandate.getDelegator(), pendingMandate.getSk());
+                testDao.deleteHistory(pendingMandate.getDelegator(), pendingMandate.getSk());
+                testDao.delete(activeMandate.getDelegator(), activeMandate.getSk());
+                testDao.deleteHistory(activeMandate.getDelegator(), activeMandate.getSk());
+            } catch (Exception e) {
+                System.out.println("Nothing to remove");
+            }
+        }
+    }
+
+    private static ExpireMandateRequestDto toExpireRequest(MandateEntity mandate) {
+        return ExpireMandateRequestDto.builder()
+                .delegatorInternaluserid(mandate.getDelegator())
+                .delegatorUid(mandate.getDelegatorUid())
+                .cxType("PF")
+                .mandateId(mandate.getMandateId())
+                .build();
+    }
+
     @Test
     void listMandatesByDelegators() {
         MandateEntity mandateToInsert = newMandate(true);
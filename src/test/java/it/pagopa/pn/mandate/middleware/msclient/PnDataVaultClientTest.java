@@ -1,8 +1,13 @@
 package it.pagopa.pn.mandate.middleware.msclient;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import it.pagopa.pn.mandate.AbstractTestConfiguration;
+import it.pagopa.pn.mandate.config.PnMandateConfig;
+import it.pagopa.pn.mandate.generated.openapi.msclient.datavault.v1.api.MandatesApi;
+import it.pagopa.pn.mandate.generated.openapi.msclient.datavault.v1.api.RecipientsApi;
 import it.pagopa.pn.mandate.generated.openapi.msclient.datavault.v1.dto.BaseRecipientDtoDto;
 import it.pagopa.pn.mandate.generated.openapi.msclient.datavault.v1.dto.MandateDtoDto;
+import it.pagopa.pn.mandate.generated.openapi.msclient.datavault.v1.dto.RecipientTypeDto;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -13,12 +18,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
 import static org.mockserver.integration.ClientAndServer.startClientAndServer;
 import static org.mockserver.model.HttpRequest.request;
 import static org.mockserver.model.HttpResponse.response;
@@ -184,4 +192,61 @@ class PnDataVaultClientTest extends AbstractTestConfiguration {
         assertEquals(surname, result.get(0).getInfo().getDestSurname());
         assertEquals(ragionesociale, result.get(0).getInfo().getDestBusinessName());
     }
+
+    @Test
+    void getRecipientDenominationByInternalIdCached() {
+        //Given
+        RecipientsApi recipientsApi = mock(RecipientsApi.class);
+        PnMandateConfig config = new PnMandateConfig();
+        config.getRecipientDenominationCache().setEnabled(true);
+        PnDataVaultClient cachedClient = new PnDataVaultClient(recipientsApi, mock(MandatesApi.class), config, new SimpleMeterRegistry());
+
+        BaseRecipientDtoDto first = new BaseRecipientDtoDto();
+        first.setInternalId("iuid-1");
+        first.setDenomination("mario rossi");
+        BaseRecipientDtoDto second = new BaseRecipientDtoDto();
+        second.setInternalId("iuid-2");
+        second.setDenomination("luigi bianchi");
+        when(recipientsApi.getRecipientDenominationByInternalId(List.of("iuid-1"))).thenReturn(Flux.just(first));
+        when(recipientsApi.getRecipientDenominationByInternalId(List.of("iuid-2"))).thenReturn(Flux.just(second));
+
+        //When
+        cachedClient.getRecipientDenominationByInternalId(List.of("iuid-1")).collectList().block(Duration.ofMillis(3000));
+        List<BaseRecipientDtoDto> result = cachedClient.getRecipientDenominationByInternalId(List.of("iuid-1", "iuid-2")).collectList().block(Duration.ofMillis(3000));
+
+        //Then
+        assertNotNull(result);
+        assertEquals(List.of(first, second), result);
+        verify(recipientsApi, times(1)).getRecipientDenominationByInternalId(List.of("iuid-1"));
+        verify(recipientsApi, times(1)).getRecipientDenominationByInternalId(List.of("iuid-2"));
+    }
+
+    @Test
+    void ensureRecipientByExternalIdCached() {
+        //Given
+        RecipientsApi recipientsApi = mock(RecipientsApi.class);
+        PnMandateConfig config = new PnMandateConfig();
+        config.getRecipientInternalIdCache().setEnabled(true);
+        PnDataVaultClient cachedClient = new PnDataVaultClient(recipientsApi, mock(MandatesApi.class), config, new SimpleMeterRegistry());
+
+        String cf = "RSSMRA85T10A562S";
+        when(recipientsApi.ensureRecipientByExternalId(RecipientTypeDto.PF, cf)).thenReturn(Mono.just("PF-iuid"));
+        when(recipientsApi.ensureRecipientByExternalId(RecipientTypeDto.PG, cf)).thenReturn(Mono.just("PG-iuid"));
+
+        //When
+        List<String> result = Flux.merge(cachedClient.ensureRecipientByExternalId(true, cf),
+                        cachedClient.ensureRecipientByExternalId(true, cf),
+                        cachedClient.ensureRecipientByExternalId(false, cf))
+                .collectList()
+                .block(Duration.ofMillis(3000));
+        String cached = cachedClient.ensureRecipientByExternalId(true, cf).block(Duration.ofMillis(3000));
+
+        //Then
+        assertNotNull(result);
+        assertEquals(3, result.size());
+        assertTrue(result.containsAll(List.of("PF-iuid", "PG-iuid")));
+        assertEquals("PF-iuid", cached);
+        verify(recipientsApi, times(1)).ensureRecipientByExternalId(RecipientTypeDto.PF, cf);
+        verify(recipientsApi, times(1)).ensureRecipientByExternalId(RecipientTypeDto.PG, cf);
+    }
 }
\ No newline at end of file
@@ -2,9 +2,14 @@ package it.pagopa.pn.mandate.middleware.msclient;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import it.pagopa.pn.mandate.AbstractTestConfiguration;
+import it.pagopa.pn.mandate.config.PnMandateConfig;
+import it.pagopa.pn.mandate.generated.openapi.msclient.extregselfcare.v1.api.AooUoIdsApi;
 import it.pagopa.pn.mandate.generated.openapi.msclient.extregselfcare.v1.dto.FilteredPaIdsResponseDto;
+import it.pagopa.pn.mandate.generated.openapi.msclient.extregselfcaregroups.v1.api.InternalOnlyApi;
 import it.pagopa.pn.mandate.generated.openapi.msclient.extregselfcaregroups.v1.dto.PgGroupDto;
+import it.pagopa.pn.mandate.generated.openapi.msclient.extregselfcaregroups.v1.dto.PgGroupStatusDto;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -14,6 +19,7 @@ import org.mockserver.model.MediaType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
+import reactor.core.publisher.Flux;
 
 import java.time.Duration;
 import java.util.Arrays;
@@ -21,6 +27,8 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
 import static org.mockserver.integration.ClientAndServer.startClientAndServer;
 import static org.mockserver.model.HttpRequest.request;
 import static org.mockserver.model.HttpResponse.response;
@@ -154,4 +162,34 @@ class PnExtRegPrvtClientTest extends AbstractTestConfiguration {
     }
 
 
+
+    @Test
+    void getGroupsCached() {
+        //Given
+        InternalOnlyApi internalOnlyApi = mock(InternalOnlyApi.class);
+        PnMandateConfig config = new PnMandateConfig();
+        config.getPgGroupsCache().setEnabled(true);
+        PnExtRegPrvtClient cachedClient = new PnExtRegPrvtClient(internalOnlyApi, mock(AooUoIdsApi.class), config, new SimpleMeterRegistry());
+
+        PgGroupDto activeGroup = new PgGroupDto();
+        activeGroup.setId("group-1");
+        activeGroup.setStatus(PgGroupStatusDto.ACTIVE);
+        PgGroupDto inactiveGroup = new PgGroupDto();
+        inactiveGroup.setId("group-2");
+        when(internalOnlyApi.getAllPgGroupsPrivate("cx-id", null)).thenReturn(Flux.just(activeGroup, inactiveGroup));
+        when(internalOnlyApi.getAllPgGroupsPrivate("cx-id", PgGroupStatusDto.ACTIVE)).thenReturn(Flux.just(activeGroup));
+
+        //When
+        List<PgGroupDto> all = cachedClient.getCachedGroups("cx-id").collectList().block(Duration.ofMillis(3000));
+        cachedClient.getCachedGroups("cx-id").collectList().block(Duration.ofMillis(3000));
+        List<PgGroupDto> active = cachedClient.getGroups("cx-id", true).collectList().block(Duration.ofMillis(3000));
+        cachedClient.getGroups("cx-id", true).collectList().block(Duration.ofMillis(3000));
+
+        //Then
+        assertEquals(List.of(activeGroup, inactiveGroup), all);
+        assertEquals(List.of(activeGroup), active);
+        // la lettura dei gruppi attivi (usata in validazione) non passa mai dalla cache
+        verify(internalOnlyApi, times(1)).getAllPgGroupsPrivate("cx-id", null);
+        verify(internalOnlyApi, times(2)).getAllPgGroupsPrivate("cx-id", PgGroupStatusDto.ACTIVE);
+    }
 }
\ No newline at end of file
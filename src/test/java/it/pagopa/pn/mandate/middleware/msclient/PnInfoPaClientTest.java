@@ -2,7 +2,10 @@ package it.pagopa.pn.mandate.middleware.msclient;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import it.pagopa.pn.mandate.AbstractTestConfiguration;
+import it.pagopa.pn.mandate.config.PnMandateConfig;
+import it.pagopa.pn.mandate.generated.openapi.msclient.extregselfcare.v1.api.InfoPaApi;
 import it.pagopa.pn.mandate.generated.openapi.msclient.extregselfcare.v1.dto.PaSummaryDto;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -14,6 +17,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
+import reactor.core.publisher.Flux;
 
 import java.time.Duration;
 import java.util.List;
@@ -21,6 +25,7 @@ import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Mockito.*;
 import static org.mockserver.integration.ClientAndServer.startClientAndServer;
 import static org.mockserver.model.HttpRequest.request;
 import static org.mockserver.model.HttpResponse.response;
@@ -97,4 +102,32 @@ class PnInfoPaClientTest extends AbstractTestConfiguration {
             assertEquals(nome2, result.get(1).getName());
         }
     }
+
+    @Test
+    void getManyPaCached() {
+        //Given
+        InfoPaApi infoPaApi = mock(InfoPaApi.class);
+        PnMandateConfig config = new PnMandateConfig();
+        config.getPaSummaryCache().setEnabled(true);
+        PnInfoPaClient cachedClient = new PnInfoPaClient(infoPaApi, config, new SimpleMeterRegistry());
+
+        PaSummaryDto pa1 = new PaSummaryDto();
+        pa1.setId("pa-1");
+        pa1.setName("Comune 1");
+        PaSummaryDto pa2 = new PaSummaryDto();
+        pa2.setId("pa-2");
+        pa2.setName("Comune 2");
+        when(infoPaApi.getManyPa(List.of("pa-1"))).thenReturn(Flux.just(pa1));
+        when(infoPaApi.getManyPa(List.of("pa-2"))).thenReturn(Flux.just(pa2));
+
+        //When
+        cachedClient.getManyPa(List.of("pa-1")).collectList().block(Duration.ofMillis(3000));
+        List<PaSummaryDto> result = cachedClient.getManyPa(List.of("pa-1", "pa-2")).collectList().block(Duration.ofMillis(3000));
+
+        //Then
+        assertNotNull(result);
+        assertEquals(List.of(pa1, pa2), result);
+        verify(infoPaApi, times(1)).getManyPa(List.of("pa-1"));
+        verify(infoPaApi, times(1)).getManyPa(List.of("pa-2"));
+    }
 }
\ No newline at end of file
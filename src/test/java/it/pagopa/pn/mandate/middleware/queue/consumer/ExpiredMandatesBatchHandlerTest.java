@@ -0,0 +1,103 @@
+package it.pagopa.pn.mandate.middleware.queue.consumer;
+
+import io.awspring.cloud.sqs.listener.acknowledgement.BatchAcknowledgement;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.pagopa.pn.commons.utils.MDCUtils;
+import it.pagopa.pn.mandate.exceptions.PnMandateNotFoundException;
+import it.pagopa.pn.mandate.middleware.db.entities.MandateEntity;
+import it.pagopa.pn.mandate.middleware.queue.consumer.event.PnMandateExpiredEvent;
+import it.pagopa.pn.mandate.model.ExpireMandateRequestDto;
+import it.pagopa.pn.mandate.model.ExpireMandateResultDto;
+import it.pagopa.pn.mandate.services.mandate.v1.MandateService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.slf4j.MDC;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+
+class ExpiredMandatesBatchHandlerTest {
+
+    private MandateService mandateService;
+    private SimpleMeterRegistry meterRegistry;
+    private ExpiredMandatesBatchHandler consumer;
+
+    @BeforeEach
+    void setup() {
+        mandateService = Mockito.mock(MandateService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        consumer = new ExpiredMandatesBatchHandler(mandateService, meterRegistry);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void consumeBatchAcknowledgesOnlySuccessfulMessages() throws Exception {
+        Message<PnMandateExpiredEvent.Payload> ok = buildMessage("mandate-ok");
+        Message<PnMandateExpiredEvent.Payload> ko = buildMessage("mandate-ko");
+        BatchAcknowledgement<PnMandateExpiredEvent.Payload> acknowledgement = Mockito.mock(BatchAcknowledgement.class);
+        Mockito.when(acknowledgement.acknowledgeAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+        Mockito.when(mandateService.expireMandates(any()))
+                .thenReturn(Flux.just(result("mandate-ok", ExpireMandateResultDto.Outcome.EXPIRED, null),
+                        result("mandate-ko", ExpireMandateResultDto.Outcome.NOT_FOUND, new PnMandateNotFoundException())));
+
+        consumer.pnMandateExpiredMandatesBatchConsumer(List.of(ok, ko), acknowledgement).get(5, TimeUnit.SECONDS);
+
+        Mockito.verify(acknowledgement).acknowledgeAsync(List.of(ok));
+        Mockito.verify(acknowledgement, Mockito.never()).acknowledgeAsync(List.of(ko));
+        Assertions.assertEquals(1.0, meterRegistry.get("pn.mandate.expired.consumer.messages").tag("outcome", "success").counter().count());
+        Assertions.assertEquals(1.0, meterRegistry.get("pn.mandate.expired.consumer.messages").tag("outcome", "failure").counter().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void consumeBatchExpiresAllMessagesWithOneBulkCall() throws Exception {
+        Message<PnMandateExpiredEvent.Payload> first = buildMessage("mandate-1");
+        Message<PnMandateExpiredEvent.Payload> second = buildMessage("mandate-2");
+        Message<PnMandateExpiredEvent.Payload> duplicate = buildMessage("mandate-1");
+        BatchAcknowledgement<PnMandateExpiredEvent.Payload> acknowledgement = Mockito.mock(BatchAcknowledgement.class);
+        Mockito.when(acknowledgement.acknowledgeAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+        Mockito.when(mandateService.expireMandates(any()))
+                .thenReturn(Flux.just(result("mandate-1", ExpireMandateResultDto.Outcome.EXPIRED, null),
+                        result("mandate-2", ExpireMandateResultDto.Outcome.SKIPPED, null)));
+
+        consumer.pnMandateExpiredMandatesBatchConsumer(List.of(first, second, duplicate), acknowledgement).get(5, TimeUnit.SECONDS);
+
+        ArgumentCaptor<List<ExpireMandateRequestDto>> requests = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(mandateService, Mockito.times(1)).expireMandates(requests.capture());
+        Assertions.assertEquals(List.of("mandate-1", "mandate-2", "mandate-1"),
+                requests.getValue().stream().map(ExpireMandateRequestDto::getMandateId).toList());
+        Assertions.assertEquals("PF-12345", requests.getValue().get(0).getDelegatorInternaluserid());
+        Mockito.verify(acknowledgement).acknowledgeAsync(List.of(first, second, duplicate));
+        Mockito.verify(mandateService, Mockito.never()).expireMandate(any(), any(), any(), any());
+        // l'MDC dei messaggi passa solo dal context Reactor, il thread del listener non resta sporco
+        Assertions.assertNull(MDC.get(MDCUtils.MDC_PN_MANDATEID_KEY));
+    }
+
+    private static ExpireMandateResultDto result(String mandateId, ExpireMandateResultDto.Outcome outcome, Throwable error) {
+        return ExpireMandateResultDto.builder()
+                .mandateId(mandateId)
+                .outcome(outcome)
+                .mandate(new MandateEntity())
+                .error(error)
+                .build();
+    }
+
+    private static Message<PnMandateExpiredEvent.Payload> buildMessage(String mandateId) {
+        PnMandateExpiredEvent.Payload payload = PnMandateExpiredEvent.Payload.builder()
+                .mandateId(mandateId)
+                .delegatorInternalUserid("PF-12345")
+                .delegatorCxType("PF")
+                .delegatorUserid("12345")
+                .build();
+        return MessageBuilder.withPayload(payload).build();
+    }
+}
@@ -3,6 +3,7 @@ package it.pagopa.pn.mandate.rest.mandate;
 import it.pagopa.pn.mandate.mapper.MandateEntityInternalMandateDtoMapper;
 import it.pagopa.pn.mandate.middleware.db.MandateDaoIT;
 import it.pagopa.pn.mandate.generated.openapi.server.v1.dto.InternalMandateDto;
+import it.pagopa.pn.mandate.model.PageResultDto;
 import it.pagopa.pn.mandate.services.mandate.v1.MandatePrivateService;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -13,6 +14,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.Collections;
 import java.util.List;
@@ -73,6 +75,33 @@ class MandatePrivateRestV1ControllerTest {
                 .expectStatus().isOk();
     }
 
+    @Test
+    void listMandatesByDelegatePaged() {
+        //Given
+        String url = "/mandate-private/api/v1/mandates-by-internaldelegate/{internaluserId}?x-pagopa-pn-cx-type={type}&size=1"
+                .replace("{internaluserId}", "internauserid1234")
+                .replace("{type}", "PF");
+        List<InternalMandateDto> mandateDtoList = Collections.singletonList(mapper.toDto(MandateDaoIT.newMandate(true)));
+        PageResultDto<InternalMandateDto, String> page = PageResultDto.<InternalMandateDto, String>builder()
+                .page(mandateDtoList)
+                .more(true)
+                .nextPagesKey(List.of("next-key"))
+                .build();
+
+        //When
+        Mockito.when(mandatePrivateService.listMandatesByDelegatePaged(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.eq(1), Mockito.isNull()))
+                .thenReturn(Mono.just(page));
+
+        //Then
+        webTestClient.get()
+                .uri(url)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("x-pagopa-pn-next-page-key", "next-key")
+                .expectBodyList(InternalMandateDto.class).hasSize(1);
+    }
+
     @Test
     void listMandatesByDelegator() {
         //Given
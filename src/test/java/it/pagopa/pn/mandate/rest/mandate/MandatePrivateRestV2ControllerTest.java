@@ -50,4 +50,28 @@ class MandatePrivateRestV2ControllerTest {
                 .expectStatus().isOk();
     }
 
-}
\ No newline at end of file
+    @Test
+    void listMandatesByDelegateNdjson() {
+        //Given
+        String url = "/mandate-private/api/v2/mandates-by-internaldelegate/{internaluserId}?x-pagopa-pn-cx-type={type}"
+                .replace("{internaluserId}", "internauserid1234")
+                .replace("{type}", "PF");
+        InternalMandateDto mandateDto = mapper.toDto(MandateDaoIT.newMandate(true));
+        InternalMandateDto mandateDto1 = mapper.toDto(MandateDaoIT.newMandate(true));
+        mandateDto1.setMandateId(mandateDto1.getMandateId() + "_1");
+
+        //When
+        Mockito.when(mandatePrivateService.listMandatesByDelegateV2(Mockito.any()))
+                .thenReturn(Flux.just(mandateDto, mandateDto1));
+
+        //Then
+        webTestClient.get()
+                .uri(url)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(InternalMandateDto.class).hasSize(2);
+    }
+
+}
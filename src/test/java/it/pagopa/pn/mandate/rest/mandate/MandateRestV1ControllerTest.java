@@ -12,6 +12,7 @@ import it.pagopa.pn.mandate.mapper.UserEntityMandateCountsDtoMapper;
 import it.pagopa.pn.mandate.middleware.db.MandateDaoIT;
 import it.pagopa.pn.mandate.middleware.db.entities.MandateEntity;
 import it.pagopa.pn.mandate.middleware.msclient.PnExtRegPrvtClient;
+import it.pagopa.pn.mandate.model.PageResultDto;
 import it.pagopa.pn.mandate.services.mandate.utils.MandateValidationUtils;
 import it.pagopa.pn.mandate.services.mandate.v1.MandateService;
 import org.junit.jupiter.api.Test;
@@ -19,6 +20,7 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.reactive.server.WebTestClient;
@@ -32,7 +34,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 
-@WebFluxTest(controllers = {MandateRestV1Controller.class})
+@WebFluxTest(controllers = {MandateRestV1Controller.class}, properties = "cors.allowed.domains=http://localhost:8090")
 @Import({MandateEntityMandateDtoMapper.class, UserEntityMandateCountsDtoMapper.class, MandateValidationUtils.class })
 class MandateRestV1ControllerTest {
 
@@ -204,6 +206,64 @@ class MandateRestV1ControllerTest {
                 .expectStatus().isOk().expectBodyList(MandateDto.class);
     }
 
+    @Test
+    void listMandatesByDelegatePaged() {
+        //Given
+        String url = "/mandate/api/v1/mandates-by-delegate?size=1";
+        PageResultDto<MandateDto, String> page = PageResultDto.<MandateDto, String>builder()
+                .page(Collections.singletonList(mapper.toDto(MandateDaoIT.newMandate(true))))
+                .more(true)
+                .nextPagesKey(List.of("next-key"))
+                .build();
+
+        //When
+        Mockito.when(mandateService.listMandatesByDelegatePaged(Mockito.any(), eq("internaluserid1234"), eq(CxTypeAuthFleet.PF), Mockito.any(), Mockito.any(), eq(1), isNull()))
+                .thenReturn(Mono.just(page));
+
+        //Then
+        webTestClient.get()
+                .uri(url)
+                .accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.ORIGIN, "http://localhost:8090")
+                .header(PN_PAGOPA_CX_ID, "internaluserid1234")
+                .header(PN_PAGOPA_USER_ID, "userid")
+                .header(PN_PAGOPA_CX_TYPE, "PF")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(PagedResponses.NEXT_PAGE_KEY_HEADER, "next-key")
+                .expectHeader().valueEquals(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, PagedResponses.NEXT_PAGE_KEY_HEADER)
+                .expectBodyList(MandateDto.class).hasSize(1);
+    }
+
+    @Test
+    void listMandatesByDelegatorPaged() {
+        //Given
+        String url = "/mandate/api/v1/mandates-by-delegator?size=1&nextPageKey=page-key";
+        PageResultDto<MandateDto, String> page = PageResultDto.<MandateDto, String>builder()
+                .page(Collections.singletonList(mapper.toDto(MandateDaoIT.newMandate(true))))
+                .more(false)
+                .nextPagesKey(Collections.emptyList())
+                .build();
+
+        //When
+        Mockito.when(mandateService.listMandatesByDelegatorPaged(eq("internaluserid1234"), eq(CxTypeAuthFleet.PF), Mockito.any(), Mockito.any(), eq(1), eq("page-key")))
+                .thenReturn(Mono.just(page));
+
+        //Then
+        webTestClient.get()
+                .uri(url)
+                .accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.ORIGIN, "http://localhost:8090")
+                .header(PN_PAGOPA_CX_ID, "internaluserid1234")
+                .header(PN_PAGOPA_USER_ID, "userid")
+                .header(PN_PAGOPA_CX_TYPE, "PF")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(PagedResponses.NEXT_PAGE_KEY_HEADER)
+                .expectHeader().valueEquals(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, PagedResponses.NEXT_PAGE_KEY_HEADER)
+                .expectBodyList(MandateDto.class).hasSize(1);
+    }
+
     @Test
     void rejectMandate() {
         //Given
@@ -4,6 +4,8 @@ import it.pagopa.pn.mandate.AbstractTestConfiguration;
 import it.pagopa.pn.mandate.exceptions.PnForbiddenException;
 import it.pagopa.pn.mandate.mapper.MandateEntityInternalMandateDtoMapper;
 import it.pagopa.pn.mandate.mapper.StatusEnumMapper;
+import it.pagopa.pn.mandate.config.PnMandateConfig;
+import it.pagopa.pn.mandate.middleware.db.DelegateMandatesCache;
 import it.pagopa.pn.mandate.middleware.db.MandateDao;
 import it.pagopa.pn.mandate.middleware.db.MandateDaoIT;
 import it.pagopa.pn.mandate.middleware.db.entities.MandateEntity;
@@ -15,6 +17,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import reactor.core.publisher.Flux;
@@ -45,6 +48,9 @@ class MandatePrivateServiceTest extends AbstractTestConfiguration {
     @Mock
     PgUtils pgUtils;
 
+    @Spy
+    private DelegateMandatesCache delegateMandatesCache = new DelegateMandatesCache(new PnMandateConfig());
+
 
     @Test
     void listMandatesByDelegate() {
@@ -1,5 +1,7 @@
 package it.pagopa.pn.mandate.services.mandate.v1;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.pagopa.pn.mandate.config.PnMandateConfig;
 import it.pagopa.pn.mandate.generated.openapi.msclient.datavault.v1.dto.BaseRecipientDtoDto;
 import it.pagopa.pn.mandate.generated.openapi.msclient.extregselfcare.v1.dto.PaSummaryDto;
 import it.pagopa.pn.mandate.generated.openapi.msclient.extregselfcaregroups.v1.dto.PgGroupDto;
@@ -19,7 +21,6 @@ import it.pagopa.pn.mandate.model.InputSearchMandateDto;
 import it.pagopa.pn.mandate.model.PageResultDto;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
@@ -39,7 +40,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
-@ContextConfiguration(classes = {MandateSearchService.class})
+@ContextConfiguration(classes = {MandateSearchService.class, SearchPageSizeEstimator.class, SimpleMeterRegistry.class})
 @ExtendWith(SpringExtension.class)
 class MandateSearchServiceTest {
 
@@ -55,6 +56,8 @@ class MandateSearchServiceTest {
     private PnInfoPaClient pnInfoPaClient;
     @MockitoBean
     private PnExtRegPrvtClient pnExtRegPrvtClient;
+    @MockitoBean
+    private PnMandateConfig pnMandateConfig;
 
     @Autowired
     private MandateSearchService mandateSearchService;
@@ -94,7 +97,7 @@ class MandateSearchServiceTest {
         PgGroupDto pgGroupDto = new PgGroupDto();
         pgGroupDto.setId("pgGroupId");
         pgGroupDto.setName("pgGroupName");
-        when(pnExtRegPrvtClient.getGroups("delegateId", false))
+        when(pnExtRegPrvtClient.getCachedGroups("delegateId"))
                 .thenReturn(Flux.just(pgGroupDto));
 
         MandateDto dto1 = new MandateDto();
@@ -156,7 +159,7 @@ class MandateSearchServiceTest {
         when(pnInfoPaClient.getManyPa(any()))
                 .thenReturn(Flux.empty());
 
-        when(pnExtRegPrvtClient.getGroups(any(), Mockito.eq(false)))
+        when(pnExtRegPrvtClient.getCachedGroups(any()))
                 .thenReturn(Flux.empty());
 
         when(mandateEntityMandateDtoMapper.toDto(any()))
@@ -171,6 +174,162 @@ class MandateSearchServiceTest {
         verify(mandateEntityMandateDtoMapper).toDto(entity1);
     }
 
+    @Test
+    void testSearchByDelegateReadsPartitionsConcurrentlyInOrder() {
+        InputSearchMandateDto searchDto = InputSearchMandateDto.builder()
+                .delegateId("delegateId")
+                .statuses(List.of(20, 10))
+                .size(2)
+                .maxPageNumber(1)
+                .build();
+
+        MandateEntity entity1 = MandateDaoIT.newMandate(false);
+        entity1.setMandateId("mandate-10");
+        MandateEntity entity2 = MandateDaoIT.newMandate(false);
+        entity2.setMandateId("mandate-20");
+
+        // la prima partizione risponde dopo la seconda: l'ordine dei risultati deve restare quello delle partizioni
+        when(mandateDao.searchByDelegate(eq("delegateId"), eq(10), isNull(), isNull(), eq(3), isNull()))
+                .thenReturn(Mono.just(Page.create(List.of(entity1))).delayElement(Duration.ofMillis(300)));
+        when(mandateDao.searchByDelegate(eq("delegateId"), eq(20), isNull(), isNull(), eq(3), isNull()))
+                .thenReturn(Mono.just(Page.create(List.of(entity2))));
+
+        when(pnDataVaultClient.getRecipientDenominationByInternalId(any()))
+                .thenReturn(Flux.empty());
+        when(pnInfoPaClient.getManyPa(any()))
+                .thenReturn(Flux.empty());
+        when(mandateEntityMandateDtoMapper.toDto(any()))
+                .thenCallRealMethod();
+
+        PageResultDto<MandateDto, String> resultDto = mandateSearchService.searchByDelegate(searchDto, null)
+                .block(D);
+        assertNotNull(resultDto);
+        assertEquals(2, resultDto.getPage().size());
+        assertEquals(entity1.getMandateId(), resultDto.getPage().get(0).getMandateId());
+        assertEquals(entity2.getMandateId(), resultDto.getPage().get(1).getMandateId());
+        assertFalse(resultDto.isMore());
+        verify(mandateDao).searchByDelegate(eq("delegateId"), eq(10), isNull(), isNull(), eq(3), isNull());
+        verify(mandateDao).searchByDelegate(eq("delegateId"), eq(20), isNull(), isNull(), eq(3), isNull());
+    }
+
+    @Test
+    void testSearchByDelegateReadsAtMostNextPartitionAhead() {
+        InputSearchMandateDto searchDto = InputSearchMandateDto.builder()
+                .delegateId("delegateId")
+                .statuses(List.of(10, 20, 30))
+                .size(1)
+                .maxPageNumber(1)
+                .build();
+
+        MandateEntity entity1 = MandateDaoIT.newMandate(false);
+        entity1.setMandateId("mandate-1");
+        MandateEntity entity2 = MandateDaoIT.newMandate(false);
+        entity2.setMandateId("mandate-2");
+        MandateEntity entity3 = MandateDaoIT.newMandate(false);
+        entity3.setMandateId("mandate-3");
+
+        // la prima partizione basta a riempire la pagina: la terza non deve essere letta
+        when(mandateDao.searchByDelegate(eq("delegateId"), eq(10), isNull(), isNull(), anyInt(), isNull()))
+                .thenReturn(Mono.just(Page.create(List.of(entity1, entity2))).delayElement(Duration.ofMillis(300)));
+        when(mandateDao.searchByDelegate(eq("delegateId"), eq(20), isNull(), isNull(), anyInt(), isNull()))
+                .thenReturn(Mono.just(Page.create(List.of(entity3))));
+
+        when(pnDataVaultClient.getRecipientDenominationByInternalId(any()))
+                .thenReturn(Flux.empty());
+        when(pnInfoPaClient.getManyPa(any()))
+                .thenReturn(Flux.empty());
+        when(mandateEntityMandateDtoMapper.toDto(any()))
+                .thenCallRealMethod();
+
+        PageResultDto<MandateDto, String> resultDto = mandateSearchService.searchByDelegate(searchDto, null)
+                .block(D);
+        assertNotNull(resultDto);
+        assertEquals(1, resultDto.getPage().size());
+        assertEquals(entity1.getMandateId(), resultDto.getPage().get(0).getMandateId());
+        assertTrue(resultDto.isMore());
+        verify(mandateDao, never()).searchByDelegate(eq("delegateId"), eq(30), any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void testSearchByDelegateKeysOnlyLookAhead() {
+        InputSearchMandateDto searchDto = InputSearchMandateDto.builder()
+                .delegateId("delegateId")
+                .size(1)
+                .maxPageNumber(2)
+                .build();
+
+        MandateEntity full1 = MandateDaoIT.newMandate(false);
+        full1.setMandateId("mandate-1");
+        MandateEntity full2 = MandateDaoIT.newMandate(false);
+        full2.setMandateId("mandate-2");
+        MandateEntity key2 = keyOf(full2);
+        MandateEntity full3 = MandateDaoIT.newMandate(false);
+        full3.setMandateId("mandate-3");
+        MandateEntity key3 = keyOf(full3);
+
+        when(pnMandateConfig.getSearchKeyOnlyLookAhead()).thenReturn(true);
+        // la pagina restituita si legge per intero, il look-ahead con le sole chiavi a partire dall'ultima delega della pagina
+        when(mandateDao.searchByDelegate(eq("delegateId"), isNull(), isNull(), isNull(), eq(1), isNull()))
+                .thenReturn(Mono.just(Page.create(List.of(full1))));
+        when(mandateDao.searchKeysByDelegate(eq("delegateId"), isNull(), isNull(), isNull(), eq(2),
+                argThat(lek -> lek != null && full1.getSk().equals(lek.getInternalLastEvaluatedKey().get(MandateEntity.COL_SK).s()))))
+                .thenReturn(Mono.just(Page.create(List.of(key2, key3))));
+
+        when(pnDataVaultClient.getRecipientDenominationByInternalId(any()))
+                .thenReturn(Flux.empty());
+        when(pnInfoPaClient.getManyPa(any()))
+                .thenReturn(Flux.empty());
+        when(mandateEntityMandateDtoMapper.toDto(any()))
+                .thenCallRealMethod();
+
+        PageResultDto<MandateDto, String> resultDto = mandateSearchService.searchByDelegate(searchDto, null)
+                .block(D);
+        assertNotNull(resultDto);
+        assertEquals(1, resultDto.getPage().size());
+        assertEquals("mandate-1", resultDto.getPage().get(0).getMandateId());
+        assertTrue(resultDto.isMore());
+        assertEquals(2, resultDto.getNextPagesKey().size());
+        verify(mandateEntityMandateDtoMapper).toDto(full1);
+    }
+
+    @Test
+    void testSearchByDelegateKeysOnlyLookAheadLastPage() {
+        InputSearchMandateDto searchDto = InputSearchMandateDto.builder()
+                .delegateId("delegateId")
+                .size(2)
+                .maxPageNumber(2)
+                .build();
+
+        MandateEntity full1 = MandateDaoIT.newMandate(false);
+        full1.setMandateId("mandate-1");
+
+        when(pnMandateConfig.getSearchKeyOnlyLookAhead()).thenReturn(true);
+        when(mandateDao.searchByDelegate(eq("delegateId"), isNull(), isNull(), isNull(), eq(2), isNull()))
+                .thenReturn(Mono.just(Page.create(List.of(full1))));
+
+        when(pnDataVaultClient.getRecipientDenominationByInternalId(any()))
+                .thenReturn(Flux.empty());
+        when(pnInfoPaClient.getManyPa(any()))
+                .thenReturn(Flux.empty());
+        when(mandateEntityMandateDtoMapper.toDto(any()))
+                .thenCallRealMethod();
+
+        PageResultDto<MandateDto, String> resultDto = mandateSearchService.searchByDelegate(searchDto, null)
+                .block(D);
+        assertNotNull(resultDto);
+        assertEquals(1, resultDto.getPage().size());
+        assertFalse(resultDto.isMore());
+        assertTrue(resultDto.getNextPagesKey().isEmpty());
+        verify(mandateDao, never()).searchKeysByDelegate(any(), any(), any(), any(), anyInt(), any());
+    }
+
+    private static MandateEntity keyOf(MandateEntity mandate) {
+        MandateEntity key = new MandateEntity(mandate.getDelegator(), mandate.getMandateId());
+        key.setDelegate(mandate.getDelegate());
+        key.setState(mandate.getState());
+        return key;
+    }
+
     @Test
     void testSearchByDelegateEmpty() {
         InputSearchMandateDto searchDto = InputSearchMandateDto.builder()
@@ -187,7 +346,7 @@ class MandateSearchServiceTest {
         when(mandateDao.searchByDelegate(anyString(), isNull(), any(), any(), anyInt(), any()))
                 .thenReturn(Mono.just(page));
 
-        when(pnExtRegPrvtClient.getGroups(any(), Mockito.eq(false)))
+        when(pnExtRegPrvtClient.getCachedGroups(any()))
                 .thenReturn(Flux.empty());
 
         PageResultDto<MandateDto, String> resultDto = mandateSearchService.searchByDelegate(searchDto, lastEvaluatedKey)
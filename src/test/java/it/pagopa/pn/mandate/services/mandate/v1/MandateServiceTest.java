@@ -31,6 +31,8 @@ import it.pagopa.pn.mandate.middleware.msclient.PnDataVaultClient;
 import it.pagopa.pn.mandate.middleware.msclient.PnDeliveryClient;
 import it.pagopa.pn.mandate.middleware.msclient.PnExtRegPrvtClient;
 import it.pagopa.pn.mandate.middleware.msclient.PnInfoPaClient;
+import it.pagopa.pn.mandate.model.ExpireMandateRequestDto;
+import it.pagopa.pn.mandate.model.ExpireMandateResultDto;
 import it.pagopa.pn.mandate.model.PageResultDto;
 import it.pagopa.pn.mandate.model.WorkFlowType;
 import it.pagopa.pn.mandate.services.mandate.utils.MandateValidationUtils;
@@ -1735,6 +1737,46 @@ class MandateServiceTest extends AbstractTestConfiguration {
         verify(sqsService).sendToDelivery(mandateEntity, EventType.MANDATE_EXPIRED);
     }
 
+    @Test
+    void expireMandates() {
+        //Given
+        MandateEntity expiredPg = MandateDaoIT.newMandate(true);
+        expiredPg.setMandateId("expired-pg");
+        expiredPg.setDelegateisperson(false);
+        MandateEntity skipped = MandateDaoIT.newMandate(true);
+        skipped.setMandateId("skipped");
+        MandateEntity failing = MandateDaoIT.newMandate(true);
+        failing.setMandateId("failing");
+        List<ExpireMandateRequestDto> requests = List.of(
+                ExpireMandateRequestDto.builder().mandateId("expired-pg").build(),
+                ExpireMandateRequestDto.builder().mandateId("skipped").build(),
+                ExpireMandateRequestDto.builder().mandateId("failing").build(),
+                ExpireMandateRequestDto.builder().build());
+
+        when(mandateDao.expireMandates(Mockito.any())).thenReturn(Flux.just(
+                ExpireMandateResultDto.builder().mandateId("expired-pg").outcome(ExpireMandateResultDto.Outcome.EXPIRED).mandate(expiredPg).build(),
+                ExpireMandateResultDto.builder().mandateId("skipped").outcome(ExpireMandateResultDto.Outcome.SKIPPED).mandate(skipped).build(),
+                ExpireMandateResultDto.builder().mandateId("failing").outcome(ExpireMandateResultDto.Outcome.EXPIRED).mandate(failing).build()));
+        when(pnDatavaultClient.deleteMandateById("expired-pg")).thenReturn(Mono.empty());
+        when(pnDatavaultClient.deleteMandateById("failing")).thenReturn(Mono.error(new RuntimeException("datavault")));
+        when(sqsService.sendToDelivery(expiredPg, EventType.MANDATE_EXPIRED)).thenReturn(Mono.just(SendMessageResponse.builder().build()));
+
+        //When
+        List<ExpireMandateResultDto> results = mandateService.expireMandates(requests).collectList().block(D);
+
+        //Then
+        Assertions.assertNotNull(results);
+        Assertions.assertEquals(4, results.size());
+        Assertions.assertEquals(ExpireMandateResultDto.Outcome.NOT_FOUND, results.get(0).getOutcome());
+        Assertions.assertEquals(ExpireMandateResultDto.Outcome.EXPIRED, results.get(1).getOutcome());
+        Assertions.assertEquals(ExpireMandateResultDto.Outcome.SKIPPED, results.get(2).getOutcome());
+        Assertions.assertEquals(ExpireMandateResultDto.Outcome.FAILED, results.get(3).getOutcome());
+        verify(mandateDao).expireMandates(requests.subList(0, 3));
+        verify(pnDatavaultClient, never()).deleteMandateById("skipped");
+        verify(sqsService).sendToDelivery(expiredPg, EventType.MANDATE_EXPIRED);
+        verify(sqsService, never()).sendToDelivery(failing, EventType.MANDATE_EXPIRED);
+    }
+
     @Test
     void expireMandateFailMandateId() {
         //Given
@@ -1986,7 +2028,7 @@ class MandateServiceTest extends AbstractTestConfiguration {
         when(pnMandateConfig.getCiePendingDuration()).thenReturn(Duration.ofMinutes(5));
         when(pnMandateConfig.getCieValidToDuration()).thenReturn(Duration.ofDays(1));
         when(mandateDao.save(any())).thenReturn(Mono.just(entity));
-        doNothing().when(cieCheckerAdapter).validateCie(any(), any(), any());
+        when(cieCheckerAdapter.validateCieAsync(any(), any(), any())).thenReturn(Mono.empty());
 
         StepVerifier.create(mandateService.acceptMandateAppIo("cxId", null, mandateId, Mono.just(cieValidationData)))
                 .verifyComplete();
@@ -2046,7 +2088,7 @@ class MandateServiceTest extends AbstractTestConfiguration {
         cieValidationData.setNisData(nisData);
         when(mandateDao.retrieveMandateForDelegate(anyString(), anyString())).thenReturn(Mono.just(entity));
         when(pnDatavaultClient.getRecipientDenominationByInternalId(any())).thenReturn(Flux.just(new BaseRecipientDtoDto().taxId("TAXID")));
-        doNothing().when(cieCheckerAdapter).validateCie(any(), any(), any());
+        when(cieCheckerAdapter.validateCieAsync(any(), any(), any())).thenReturn(Mono.empty());
         when(pnMandateConfig.getCiePendingDuration()).thenReturn(Duration.ofMinutes(5));
         when(mandateDao.save(any(MandateEntity.class))).thenReturn(Mono.just(new MandateEntity()));
 
@@ -2073,7 +2115,7 @@ class MandateServiceTest extends AbstractTestConfiguration {
         cieValidationData.setNisData(nisData);
         when(mandateDao.retrieveMandateForDelegate(anyString(), anyString())).thenReturn(Mono.just(entity));
         when(pnDatavaultClient.getRecipientDenominationByInternalId(any())).thenReturn(Flux.just(new BaseRecipientDtoDto().taxId("TAXID")));
-        doNothing().when(cieCheckerAdapter).validateCie(any(), any(), any());
+        when(cieCheckerAdapter.validateCieAsync(any(), any(), any())).thenReturn(Mono.empty());
         when(pnMandateConfig.getCiePendingDuration()).thenReturn(Duration.ofMinutes(30));
         when(mandateDao.save(any(MandateEntity.class))).thenReturn(Mono.just(new MandateEntity()));
 
@@ -2122,7 +2164,7 @@ class MandateServiceTest extends AbstractTestConfiguration {
         when(pnMandateConfig.getCiePendingDuration()).thenReturn(Duration.ofMinutes(30));
         BaseRecipientDtoDto recipient = new BaseRecipientDtoDto().taxId("TAXID");
         when(pnDatavaultClient.getRecipientDenominationByInternalId(anyList())).thenReturn(Flux.just(recipient));
-        doThrow(new RuntimeException("CIE error")).when(cieCheckerAdapter).validateCie(any(), any(), any());
+        when(cieCheckerAdapter.validateCieAsync(any(), any(), any())).thenReturn(Mono.error(new RuntimeException("CIE error")));
 
         StepVerifier.create(mandateService.acceptMandateAppIo("cxId", null, mandateId, Mono.just(cieValidationData)))
                 .expectError(RuntimeException.class)
@@ -2150,8 +2192,8 @@ class MandateServiceTest extends AbstractTestConfiguration {
         when(pnMandateConfig.getRevokeCieMandateOnVerificationFailure()).thenReturn(true);
         when(mandateDao.revokeMandate(anyString(), anyString(), any(), any())).thenReturn(Mono.just(entity));
 
-        doThrow(new PnCieInvalidVerificationCodeException(ResultCieChecker.KO_EXC_NO_MATCH_NONCE_SIGNATURE))
-                .when(cieCheckerAdapter).validateCie(any(), any(), any());
+        when(cieCheckerAdapter.validateCieAsync(any(), any(), any()))
+                .thenReturn(Mono.error(new PnCieInvalidVerificationCodeException(ResultCieChecker.KO_EXC_NO_MATCH_NONCE_SIGNATURE)));
 
         StepVerifier.create(mandateService.acceptMandateAppIo("cxId", null, mandateId, Mono.just(cieValidationData)))
                 .expectError(PnCieInvalidVerificationCodeException.class)
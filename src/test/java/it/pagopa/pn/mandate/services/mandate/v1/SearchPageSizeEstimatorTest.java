@@ -0,0 +1,59 @@
+package it.pagopa.pn.mandate.services.mandate.v1;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.pagopa.pn.mandate.config.PnMandateConfig;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class SearchPageSizeEstimatorTest {
+
+    private static final SearchPageSizeEstimator.QueryShape FILTERED = SearchPageSizeEstimator.QueryShape.of(List.of("G"), null);
+    private static final SearchPageSizeEstimator.QueryShape NOT_FILTERED = SearchPageSizeEstimator.QueryShape.of(null, null);
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @Test
+    void pageSizeUsesFixedMultiplierWithoutObservations() {
+        SearchPageSizeEstimator estimator = buildEstimator(true);
+
+        Assertions.assertEquals(10 * MandateSearchService.FILTER_EXPRESSION_MULTIPLIER, estimator.pageSize(FILTERED, 10));
+        Assertions.assertEquals(10, estimator.pageSize(NOT_FILTERED, 10));
+    }
+
+    @Test
+    void pageSizeFollowsObservedSelectivity() {
+        SearchPageSizeEstimator estimator = buildEstimator(true);
+
+        estimator.record(FILTERED, 100, 50);
+        Assertions.assertEquals(20, estimator.pageSize(FILTERED, 10));
+
+        // filtro molto selettivo: il limit non supera maxMultiplier volte la dimensione richiesta
+        estimator.record(FILTERED, 100, 0);
+        estimator.record(FILTERED, 100, 0);
+        estimator.record(FILTERED, 100, 0);
+        Assertions.assertEquals(100, estimator.pageSize(FILTERED, 10));
+
+        Assertions.assertEquals(400.0, meterRegistry.get("pn.mandate.search.dynamodb.scanned").tag("shape", "groups").counter().count());
+        Assertions.assertEquals(50.0, meterRegistry.get("pn.mandate.search.dynamodb.returned").tag("shape", "groups").counter().count());
+    }
+
+    @Test
+    void pageSizeIsFixedWhenDisabled() {
+        SearchPageSizeEstimator estimator = buildEstimator(false);
+
+        estimator.record(FILTERED, 100, 100);
+        Assertions.assertEquals(10 * MandateSearchService.FILTER_EXPRESSION_MULTIPLIER, estimator.pageSize(FILTERED, 10));
+        Assertions.assertEquals(1.0, meterRegistry.get("pn.mandate.search.dynamodb.read.amplification").tag("shape", "groups").gauge().value());
+    }
+
+    private SearchPageSizeEstimator buildEstimator(boolean enabled) {
+        meterRegistry = new SimpleMeterRegistry();
+        PnMandateConfig config = new PnMandateConfig();
+        config.getSearchAdaptivePageSize().setEnabled(enabled);
+        config.getSearchAdaptivePageSize().setMaxMultiplier(10);
+        config.getSearchAdaptivePageSize().setSmoothing(0.5);
+        return new SearchPageSizeEstimator(config, meterRegistry);
+    }
+}
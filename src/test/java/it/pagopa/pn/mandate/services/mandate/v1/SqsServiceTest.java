@@ -2,32 +2,35 @@ package it.pagopa.pn.mandate.services.mandate.v1;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import it.pagopa.pn.api.dto.events.EventType;
+import it.pagopa.pn.commons.exceptions.PnInternalException;
 import it.pagopa.pn.mandate.generated.openapi.server.v1.dto.MandateDto;
 import it.pagopa.pn.mandate.mapper.StatusEnumMapper;
 import it.pagopa.pn.mandate.middleware.db.entities.MandateEntity;
 import org.junit.jupiter.api.Test;
-import software.amazon.awssdk.services.sqs.SqsClient;
-import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
-import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.*;
 
+import java.time.Duration;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
-import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 class SqsServiceTest {
 
+    private static final Duration D = Duration.ofSeconds(5);
+
     @Test
     void testPush() {
-        SqsClient amazonSQS = mock(SqsClient.class);
-        GetQueueUrlResponse getQueueUrlResponse = GetQueueUrlResponse.builder().queueUrl("queueUrl").build();
-
-        when(amazonSQS.getQueueUrl((GetQueueUrlRequest) any())).thenReturn(getQueueUrlResponse);
+        SqsAsyncClient amazonSQS = mockSqs();
 
-        SqsService sqsService = new SqsService("queueNameTest", amazonSQS, new ObjectMapper());
+        SqsService sqsService = new SqsService("queueNameTest", Duration.ofMillis(10), 3, D, amazonSQS, new ObjectMapper());
 
         MandateEntity mandateEntity = new MandateEntity("", "");
         assertDoesNotThrow(() -> sqsService.sendToDelivery(mandateEntity, EventType.MANDATE_ACCEPTED));
@@ -35,14 +38,116 @@ class SqsServiceTest {
 
     @Test
     void testSendToDeliveryAfterUpdate() {
-        SqsClient amazonSQS = mock(SqsClient.class);
-        GetQueueUrlResponse getQueueUrlResponse = GetQueueUrlResponse.builder().queueUrl("queueUrl").build();
+        SqsAsyncClient amazonSQS = mockSqs();
+
+        SqsService sqsService = new SqsService("queueNameTest", Duration.ofMillis(10), 3, D, amazonSQS, new ObjectMapper());
+
+        SendMessageResponse response = sqsService.sendToDelivery(newMandateWithGroups(), newMandateWithGroups(), EventType.MANDATE_UPDATED).block(D);
+
+        assertNotNull(response);
+        assertEquals("messageId", response.messageId());
+    }
+
+    @Test
+    void testSendToDeliveryBatchesAndResolvesQueueUrlOnce() {
+        SqsAsyncClient amazonSQS = mockSqs();
+
+        SqsService sqsService = new SqsService("queueNameTest", Duration.ofMillis(200), 3, D, amazonSQS, new ObjectMapper());
+
+        List<SendMessageResponse> responses = Mono.zip(
+                        sqsService.sendToDelivery(newMandateWithGroups(), EventType.MANDATE_ACCEPTED),
+                        sqsService.sendToDelivery(newMandateWithGroups(), EventType.MANDATE_REVOKED),
+                        sqsService.sendToDelivery(newMandateWithGroups(), EventType.MANDATE_REJECTED))
+                .map(t -> List.of(t.getT1(), t.getT2(), t.getT3()))
+                .block(D);
+
+        assertNotNull(responses);
+        assertEquals(3, responses.size());
+        verify(amazonSQS, times(1)).getQueueUrl((GetQueueUrlRequest) any());
+        verify(amazonSQS, times(1)).sendMessageBatch((SendMessageBatchRequest) any());
+    }
+
+    @Test
+    void testSendToDeliveryEntryFailedBySender() {
+        SqsAsyncClient amazonSQS = mockSqs();
+        when(amazonSQS.sendMessageBatch((SendMessageBatchRequest) any())).thenAnswer(invocation -> {
+            SendMessageBatchRequest request = invocation.getArgument(0);
+            List<BatchResultErrorEntry> failed = request.entries().stream()
+                    .map(e -> BatchResultErrorEntry.builder().id(e.id()).code("InvalidMessageContents").senderFault(true).build())
+                    .toList();
+            return CompletableFuture.completedFuture(SendMessageBatchResponse.builder().failed(failed).build());
+        });
+
+        SqsService sqsService = new SqsService("queueNameTest", Duration.ofMillis(10), 3, D, amazonSQS, new ObjectMapper());
+
+        Mono<SendMessageResponse> mono = sqsService.sendToDelivery(newMandateWithGroups(), EventType.MANDATE_ACCEPTED);
+        assertThrows(PnInternalException.class, () -> mono.block(D));
+        verify(amazonSQS, times(1)).sendMessageBatch((SendMessageBatchRequest) any());
+    }
+
+    @Test
+    void testSendToDeliveryEntryWithoutResultIsRetriedUpToLimit() {
+        SqsAsyncClient amazonSQS = mockSqs();
+        when(amazonSQS.sendMessageBatch((SendMessageBatchRequest) any()))
+                .thenReturn(CompletableFuture.completedFuture(SendMessageBatchResponse.builder().build()));
+
+        SqsService sqsService = new SqsService("queueNameTest", Duration.ofMillis(10), 2, D, amazonSQS, new ObjectMapper());
+
+        Mono<SendMessageResponse> mono = sqsService.sendToDelivery(newMandateWithGroups(), EventType.MANDATE_ACCEPTED);
+        assertThrows(PnInternalException.class, () -> mono.block(D));
+        verify(amazonSQS, times(3)).sendMessageBatch((SendMessageBatchRequest) any());
+    }
+
+    @Test
+    void testSendToDeliveryTimeout() {
+        SqsAsyncClient amazonSQS = mockSqs();
+        when(amazonSQS.sendMessageBatch((SendMessageBatchRequest) any())).thenReturn(new CompletableFuture<>());
+
+        SqsService sqsService = new SqsService("queueNameTest", Duration.ofMillis(10), 3, Duration.ofMillis(200), amazonSQS, new ObjectMapper());
 
-        when(amazonSQS.getQueueUrl((GetQueueUrlRequest) any())).thenReturn(getQueueUrlResponse);
+        Mono<SendMessageResponse> mono = sqsService.sendToDelivery(newMandateWithGroups(), EventType.MANDATE_ACCEPTED);
+        assertThrows(PnInternalException.class, () -> mono.block(D));
+    }
+
+    @Test
+    void testSendToDeliverySurvivesSlowBatches() {
+        SqsAsyncClient amazonSQS = mockSqs();
+        when(amazonSQS.sendMessageBatch((SendMessageBatchRequest) any())).thenAnswer(invocation -> {
+            SendMessageBatchRequest request = invocation.getArgument(0);
+            List<SendMessageBatchResultEntry> successful = request.entries().stream()
+                    .map(e -> SendMessageBatchResultEntry.builder().id(e.id()).messageId("messageId").build())
+                    .toList();
+            return CompletableFuture.supplyAsync(() -> SendMessageBatchResponse.builder().successful(successful).build(),
+                    CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS));
+        });
 
-        SqsService sqsService = new SqsService("queueNameTest", amazonSQS, new ObjectMapper());
+        SqsService sqsService = new SqsService("queueNameTest", Duration.ofMillis(1), 3, D, amazonSQS, new ObjectMapper());
 
-        assertDoesNotThrow(() -> sqsService.sendToDelivery(newMandateWithGroups(), newMandateWithGroups(), EventType.MANDATE_UPDATED));
+        // i batch inviati superano quelli in volo: i flush per timeout non devono chiudere la pipeline
+        List<SendMessageResponse> responses = Flux.range(0, 500)
+                .flatMap(i -> sqsService.sendToDelivery(newMandateWithGroups(), EventType.MANDATE_ACCEPTED), 500)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+        assertNotNull(responses);
+        assertEquals(500, responses.size());
+
+        SendMessageResponse after = sqsService.sendToDelivery(newMandateWithGroups(), EventType.MANDATE_ACCEPTED).block(D);
+        assertNotNull(after);
+    }
+
+    private static SqsAsyncClient mockSqs() {
+        SqsAsyncClient amazonSQS = mock(SqsAsyncClient.class);
+        GetQueueUrlResponse getQueueUrlResponse = GetQueueUrlResponse.builder().queueUrl("queueUrl").build();
+
+        when(amazonSQS.getQueueUrl((GetQueueUrlRequest) any())).thenReturn(CompletableFuture.completedFuture(getQueueUrlResponse));
+        when(amazonSQS.sendMessageBatch((SendMessageBatchRequest) any())).thenAnswer(invocation -> {
+            SendMessageBatchRequest request = invocation.getArgument(0);
+            List<SendMessageBatchResultEntry> successful = request.entries().stream()
+                    .map(e -> SendMessageBatchResultEntry.builder().id(e.id()).messageId("messageId").build())
+                    .toList();
+            return CompletableFuture.completedFuture(SendMessageBatchResponse.builder().successful(successful).build());
+        });
+        return amazonSQS;
     }
 
     public static MandateEntity newMandateWithGroups() {
@@ -61,4 +166,3 @@ class SqsServiceTest {
     }
 
 }
-
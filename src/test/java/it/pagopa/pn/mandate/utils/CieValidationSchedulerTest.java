@@ -0,0 +1,122 @@
+package it.pagopa.pn.mandate.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.pagopa.pn.ciechecker.CieChecker;
+import it.pagopa.pn.mandate.config.PnMandateConfig;
+import it.pagopa.pn.mandate.exceptions.PnCieValidationOverloadException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class CieValidationSchedulerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CieValidationScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        scheduler.dispose();
+    }
+
+    @Test
+    void executeOffloadsTaskAndRecordsMetrics() {
+        scheduler = buildScheduler(true, 2, 10);
+
+        StepVerifier.create(scheduler.execute(() -> Thread.currentThread().getName()))
+                .assertNext(threadName -> Assertions.assertTrue(threadName.startsWith("cie-validation")))
+                .verifyComplete();
+
+        Assertions.assertEquals(1, meterRegistry.get("pn.mandate.cie.validation.queue.wait").timer().count());
+        Assertions.assertEquals(1, meterRegistry.get("pn.mandate.cie.validation.execution").timer().count());
+    }
+
+    @Test
+    void executeInlineWhenDisabled() {
+        scheduler = buildScheduler(false, 2, 10);
+        String caller = Thread.currentThread().getName();
+
+        StepVerifier.create(scheduler.execute(() -> Thread.currentThread().getName()))
+                .expectNext(caller)
+                .verifyComplete();
+
+        Assertions.assertEquals(1, meterRegistry.get("pn.mandate.cie.validation.execution").timer().count());
+    }
+
+    @Test
+    void scheduleCarriesCallerMdcInContext() {
+        scheduler = buildScheduler(true, 2, 10);
+
+        MDC.put("cie_test_caller", "caller");
+        try {
+            StepVerifier.create(scheduler.schedule(worker -> Mono.deferContextual(ctx -> Mono.just(
+                            ctx.<Map<String, String>>get(CieChecker.CALLER_MDC_CONTEXT_KEY).get("cie_test_caller")))))
+                    .expectNext("caller")
+                    .verifyComplete();
+        } finally {
+            MDC.remove("cie_test_caller");
+        }
+    }
+
+    @Test
+    void executeRejectsWhenQueueIsFull() throws InterruptedException {
+        scheduler = buildScheduler(true, 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        scheduler.execute(() -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }).subscribe();
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        // il secondo task occupa l'unico posto in coda
+        scheduler.execute(() -> true).subscribe();
+
+        StepVerifier.create(scheduler.execute(() -> true))
+                .expectError(PnCieValidationOverloadException.class)
+                .verify();
+
+        release.countDown();
+        Assertions.assertEquals(1.0, meterRegistry.get("pn.mandate.cie.validation.rejected").counter().count());
+    }
+
+    @Test
+    void executeSplitsQueueSizeAcrossThreads() throws InterruptedException {
+        scheduler = buildScheduler(true, 2, 2);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+
+        for (int i = 0; i < 2; i++) {
+            scheduler.execute(() -> {
+                started.countDown();
+                return release.await(5, TimeUnit.SECONDS);
+            }).subscribe();
+        }
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        // un posto in coda per thread: la coda complessiva resta di 2 task
+        scheduler.execute(() -> true).subscribe();
+        scheduler.execute(() -> true).subscribe();
+
+        StepVerifier.create(scheduler.execute(() -> true))
+                .expectError(PnCieValidationOverloadException.class)
+                .verify();
+
+        release.countDown();
+        Assertions.assertEquals(1.0, meterRegistry.get("pn.mandate.cie.validation.rejected").counter().count());
+    }
+
+    private CieValidationScheduler buildScheduler(boolean enabled, int threads, int queueSize) {
+        meterRegistry = new SimpleMeterRegistry();
+        PnMandateConfig config = new PnMandateConfig();
+        config.getCieValidationScheduler().setEnabled(enabled);
+        config.getCieValidationScheduler().setThreads(threads);
+        config.getCieValidationScheduler().setQueueSize(queueSize);
+        return new CieValidationScheduler(config, meterRegistry);
+    }
+}
@@ -28,6 +28,7 @@ aws --profile default --region us-east-1 --endpoint-url=http://localstack:4566 \
         AttributeName=sk,AttributeType=S \
         AttributeName=s_delegate,AttributeType=S \
         AttributeName=i_state,AttributeType=N \
+        AttributeName=s_mandateid,AttributeType=S \
     --key-schema \
         AttributeName=pk,KeyType=HASH \
         AttributeName=sk,KeyType=RANGE \
@@ -48,6 +49,17 @@ aws --profile default --region us-east-1 --endpoint-url=http://localstack:4566 \
                 \"ReadCapacityUnits\": 10,
                 \"WriteCapacityUnits\": 5
             }
+        },
+        {
+            \"IndexName\": \"mandateid-gsi\",
+            \"KeySchema\": [{\"AttributeName\":\"s_mandateid\",\"KeyType\":\"HASH\"}],
+            \"Projection\":{
+                \"ProjectionType\":\"KEYS_ONLY\"
+            },
+            \"ProvisionedThroughput\": {
+                \"ReadCapacityUnits\": 10,
+                \"WriteCapacityUnits\": 5
+            }
         }
     ]"
 